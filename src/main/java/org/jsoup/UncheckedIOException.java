@@ -0,0 +1,21 @@
+package org.jsoup;
+
+import java.io.IOException;
+
+/**
+ * An UncheckedIOException wraps an {@link IOException} that was raised while reading input from within a code path
+ * that can not itself throw checked exceptions, such as the parser's {@link org.jsoup.parser.CharacterReader}.
+ */
+public class UncheckedIOException extends RuntimeException {
+    public UncheckedIOException(IOException cause) {
+        super(cause);
+    }
+
+    /**
+     * Get the underlying IOException that was wrapped.
+     * @return the wrapped IOException
+     */
+    public IOException ioException() {
+        return (IOException) getCause();
+    }
+}
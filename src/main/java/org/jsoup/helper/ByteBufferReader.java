@@ -0,0 +1,192 @@
+package org.jsoup.helper;
+
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A Reader that decodes chars on demand from a ByteBuffer, which may be a {@link java.nio.MappedByteBuffer} over a file,
+ * so that the parser's {@link org.jsoup.parser.CharacterReader} can tokenise without a full heap copy of the input.
+ * <p>UTF-8, ISO-8859-1 and US-ASCII are decoded directly, with runs of ASCII (which is most of any markup) copied
+ * straight through. Other charsets use a {@link CharsetDecoder}. Malformed input is replaced with {@code U+FFFD}.</p>
+ */
+final class ByteBufferReader extends Reader {
+    private static final char replacementChar = '\uFFFD';
+    private enum Mode { Utf8, Latin1, Ascii, Decoder }
+
+    private final ByteBuffer buf;
+    private final Mode mode;
+    private final CharsetDecoder decoder; // only in Decoder mode
+    private char pendingChar; // a char decoded that didn't fit in the last read (e.g. the second half of a surrogate pair)
+    private boolean hasPending = false; // if pendingChar is set; as it may be a NUL
+    private boolean flushed = false;
+
+    /**
+     * Create a reader over the remaining bytes of the buffer. The buffer's position is not modified.
+     * @param bytes input bytes
+     * @param charset charset to decode with
+     */
+    ByteBufferReader(ByteBuffer bytes, Charset charset) {
+        Validate.notNull(bytes);
+        Validate.notNull(charset);
+        buf = bytes.duplicate();
+        String name = charset.name();
+        if (name.equals("UTF-8"))
+            mode = Mode.Utf8;
+        else if (name.equals("ISO-8859-1"))
+            mode = Mode.Latin1;
+        else if (name.equals("US-ASCII"))
+            mode = Mode.Ascii;
+        else
+            mode = Mode.Decoder;
+        decoder = mode == Mode.Decoder ? charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE) : null;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0)
+            return 0;
+        int read = 0;
+        if (hasPending) {
+            cbuf[off] = pendingChar;
+            hasPending = false;
+            if (len == 1)
+                return 1;
+            read = 1;
+        }
+        switch (mode) {
+            case Utf8:
+                read += readUtf8(cbuf, off + read, len - read);
+                break;
+            case Latin1:
+            case Ascii:
+                read += readSingleByte(cbuf, off + read, len - read);
+                break;
+            default:
+                read += readDecoder(cbuf, off + read, len - read);
+        }
+        return read == 0 ? -1 : read;
+    }
+
+    private int readSingleByte(char[] cbuf, int off, int len) {
+        final ByteBuffer in = buf;
+        final boolean ascii = mode == Mode.Ascii;
+        int pos = in.position();
+        final int end = Math.min(in.limit(), pos + len);
+        int out = off;
+        while (pos < end) {
+            int b = in.get(pos++);
+            cbuf[out++] = b >= 0 ? (char) b : ascii ? replacementChar : (char) (b & 0xFF);
+        }
+        in.position(pos);
+        return out - off;
+    }
+
+    private int readUtf8(char[] cbuf, int off, int len) {
+        final ByteBuffer in = buf;
+        int pos = in.position();
+        final int limit = in.limit();
+        final int outEnd = off + len;
+        int out = off;
+
+        while (out < outEnd && pos < limit) {
+            // fast path: copy through a run of ascii
+            int run = Math.min(outEnd - out, limit - pos);
+            while (run-- > 0) {
+                byte b = in.get(pos);
+                if (b < 0) break;
+                cbuf[out++] = (char) b;
+                pos++;
+            }
+            if (out == outEnd || pos == limit)
+                break;
+
+            // multi-byte sequence
+            int b0 = in.get(pos) & 0xFF;
+            int need;
+            int cp;
+            if (b0 >= 0xC2 && b0 <= 0xDF) {
+                need = 1;
+                cp = b0 & 0x1F;
+            } else if (b0 >= 0xE0 && b0 <= 0xEF) {
+                need = 2;
+                cp = b0 & 0x0F;
+            } else if (b0 >= 0xF0 && b0 <= 0xF4) {
+                need = 3;
+                cp = b0 & 0x07;
+            } else { // stray continuation byte, or an invalid lead
+                cbuf[out++] = replacementChar;
+                pos++;
+                continue;
+            }
+
+            int i = 1;
+            for (; i <= need && pos + i < limit; i++) {
+                int b = in.get(pos + i) & 0xFF;
+                if ((b & 0xC0) != 0x80)
+                    break;
+                cp = (cp << 6) | (b & 0x3F);
+            }
+            if (i <= need // truncated or interrupted sequence; resume at the byte that broke it
+                || (need == 2 && (cp < 0x800 || (cp >= 0xD800 && cp <= 0xDFFF))) // overlong or surrogate
+                || (need == 3 && (cp < 0x10000 || cp > 0x10FFFF))) {
+                cbuf[out++] = replacementChar;
+                pos += i;
+                continue;
+            }
+
+            pos += need + 1;
+            if (cp < 0x10000) {
+                cbuf[out++] = (char) cp;
+            } else {
+                cbuf[out++] = (char) ((cp >>> 10) + (Character.MIN_HIGH_SURROGATE - (Character.MIN_SUPPLEMENTARY_CODE_POINT >>> 10)));
+                char low = (char) ((cp & 0x3FF) + Character.MIN_LOW_SURROGATE);
+                if (out < outEnd)
+                    cbuf[out++] = low;
+                else
+                    setPending(low);
+            }
+        }
+        in.position(pos);
+        return out - off;
+    }
+
+    private void setPending(char c) {
+        pendingChar = c;
+        hasPending = true;
+    }
+
+    private int readDecoder(char[] cbuf, int off, int len) {
+        if (flushed || len == 0)
+            return 0;
+        if (len == 1) { // may not have room for a surrogate pair, so decode via a scratch buffer
+            char[] pair = new char[2];
+            int read = readDecoder(pair, 0, 2);
+            if (read > 0)
+                cbuf[off] = pair[0];
+            if (read > 1)
+                setPending(pair[1]);
+            return Math.min(read, 1);
+        }
+
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        CoderResult result = decoder.decode(buf, out, true);
+        if (result.isUnderflow()) {
+            result = decoder.flush(out);
+            if (result.isUnderflow())
+                flushed = true;
+        }
+        return out.position() - off;
+    }
+
+    @Override
+    public void close() {
+        // nothing to release; the buffer is owned by the caller
+    }
+}
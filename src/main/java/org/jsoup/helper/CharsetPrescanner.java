@@ -0,0 +1,222 @@
+package org.jsoup.helper;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Determines the character set of a HTML document by scanning its raw bytes for a {@code <meta charset>},
+ * {@code <meta http-equiv=content-type content="...; charset=...">}, or a leading {@code <?xml encoding="...">}
+ * declaration. Follows the WHATWG "prescan a byte stream to determine its encoding" algorithm, which only depends on the
+ * ASCII bytes of the markup, so can run before the input is decoded or any tree building happens.
+ */
+final class CharsetPrescanner {
+    private final ByteBuffer bytes;
+    private final int end;
+    private int pos;
+
+    // scratch state for the attribute being read
+    private final StringBuilder attrName = new StringBuilder();
+    private final StringBuilder attrValue = new StringBuilder();
+
+    private CharsetPrescanner(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.pos = bytes.position();
+        this.end = bytes.limit();
+    }
+
+    /**
+     * Scan the remaining bytes in the buffer (from its position to its limit) for a charset declaration. The buffer's
+     * position is not changed.
+     * @param bytes the raw input
+     * @return the name of the declared charset, if one is found and is supported; otherwise null.
+     */
+    static String prescan(ByteBuffer bytes) {
+        return new CharsetPrescanner(bytes).scan();
+    }
+
+    private String scan() {
+        String charset = null;
+        if (matches("<?xml"))
+            charset = xmlDeclaration();
+
+        while (charset == null && pos < end) {
+            if (matches("<!--")) {
+                pos = indexOf("-->", pos + 4);
+                if (pos == -1) return null;
+                pos += 3;
+            } else if (matchesIgnoreCase("<meta") && isSpaceOrSlash(at(pos + 5))) {
+                pos += 6;
+                charset = meta();
+            } else if (at(pos) == '<' && (isLetter(at(pos + 1)) || (at(pos + 1) == '/' && isLetter(at(pos + 2))))) {
+                // a tag: skip its name and attributes (so '<' in attribute values doesn't start a false tag)
+                pos++;
+                while (pos < end && !isSpace(at(pos)) && at(pos) != '>')
+                    pos++;
+                while (readAttribute()) { /* skip */ }
+            } else if (matches("<!") || matches("</") || matches("<?")) {
+                pos = indexOf(">", pos + 2);
+                if (pos == -1) return null;
+            } else {
+                pos++;
+            }
+        }
+        return charset;
+    }
+
+    // <?xml version="1.0" encoding="ISO-8859-1"?> -- only as the first item in the input
+    private String xmlDeclaration() {
+        pos += 5;
+        int close = indexOf("?>", pos);
+        if (close == -1) return null;
+        while (pos < close && readAttribute()) {
+            if (attrName.toString().equals("encoding"))
+                return validate(attrValue.toString());
+        }
+        pos = close + 2;
+        return null;
+    }
+
+    private String meta() {
+        boolean isContentType = false;
+        String charset = null;
+        String contentCharset = null;
+        boolean seenCharset = false, seenContent = false, seenHttpEquiv = false;
+        while (readAttribute()) {
+            String name = attrName.toString();
+            if (name.equals("http-equiv") && !seenHttpEquiv) {
+                seenHttpEquiv = true;
+                isContentType = attrValue.toString().equalsIgnoreCase("content-type");
+            } else if (name.equals("content") && !seenContent) {
+                seenContent = true;
+                contentCharset = DataUtil.getCharsetFromContentType(attrValue.toString());
+            } else if (name.equals("charset") && !seenCharset) {
+                seenCharset = true;
+                charset = attrValue.toString();
+            }
+        }
+        if (charset != null)
+            return validate(charset);
+        if (isContentType && contentCharset != null)
+            return validate(contentCharset);
+        return null;
+    }
+
+    /**
+     * Reads the next attribute name and value into the scratch builders. Returns false when there are no more
+     * attributes in this tag (at '>' or at the end of the input).
+     */
+    private boolean readAttribute() {
+        attrName.setLength(0);
+        attrValue.setLength(0);
+
+        while (pos < end && (isSpace(at(pos)) || at(pos) == '/'))
+            pos++;
+        if (pos >= end || at(pos) == '>')
+            return false;
+
+        // name
+        while (pos < end) {
+            int b = at(pos);
+            if (b == '=' && attrName.length() > 0) {
+                pos++;
+                return readAttributeValue();
+            } else if (isSpace(b)) {
+                while (pos < end && isSpace(at(pos)))
+                    pos++;
+                if (at(pos) != '=')
+                    return true; // no value
+                pos++;
+                return readAttributeValue();
+            } else if (b == '/' || b == '>') {
+                return true;
+            } else {
+                attrName.append(lowerCase(b));
+                pos++;
+            }
+        }
+        return true;
+    }
+
+    private boolean readAttributeValue() {
+        while (pos < end && isSpace(at(pos)))
+            pos++;
+        if (pos >= end)
+            return true;
+
+        int b = at(pos);
+        if (b == '"' || b == '\'') {
+            int quote = b;
+            pos++;
+            while (pos < end && at(pos) != quote)
+                attrValue.append(lowerCase(at(pos++)));
+            pos++; // the closing quote
+        } else if (b != '>') {
+            while (pos < end && !isSpace(at(pos)) && at(pos) != '>')
+                attrValue.append(lowerCase(at(pos++)));
+        }
+        return true;
+    }
+
+    private static String validate(String charset) {
+        String validated = DataUtil.validateCharset(charset);
+        if (validated == null)
+            return null;
+        // per spec, a document can't declare itself as UTF-16 or UTF-32 in an ASCII compatible meta tag
+        String upper = validated.toUpperCase(Locale.ENGLISH);
+        if (upper.startsWith("UTF-16") || upper.startsWith("UTF-32"))
+            return DataUtil.defaultCharset;
+        return validated;
+    }
+
+    private int at(int i) {
+        return i < end ? bytes.get(i) & 0xFF : -1;
+    }
+
+    private boolean matches(String seq) {
+        if (pos + seq.length() > end)
+            return false;
+        for (int i = 0; i < seq.length(); i++) {
+            if (at(pos + i) != seq.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean matchesIgnoreCase(String seq) {
+        if (pos + seq.length() > end)
+            return false;
+        for (int i = 0; i < seq.length(); i++) {
+            if (lowerCase(at(pos + i)) != seq.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    private int indexOf(String seq, int from) {
+        int last = end - seq.length();
+        for (int i = from; i <= last; i++) {
+            int j = 0;
+            while (j < seq.length() && at(i + j) == seq.charAt(j))
+                j++;
+            if (j == seq.length())
+                return i;
+        }
+        return -1;
+    }
+
+    private static char lowerCase(int b) {
+        return (char) (b >= 'A' && b <= 'Z' ? b + 0x20 : b);
+    }
+
+    private static boolean isLetter(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z');
+    }
+
+    private static boolean isSpace(int b) {
+        return b == '\t' || b == '\n' || b == '\f' || b == '\r' || b == ' ';
+    }
+
+    private static boolean isSpaceOrSlash(int b) {
+        return isSpace(b) || b == '/';
+    }
+}
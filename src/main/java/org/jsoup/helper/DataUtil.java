@@ -1,16 +1,17 @@
 package org.jsoup.helper;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.nodes.XmlDeclaration;
 import org.jsoup.parser.Parser;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.IllegalCharsetNameException;
@@ -27,6 +28,7 @@ public final class DataUtil {
     private static final Pattern charsetPattern = Pattern.compile("(?i)\\bcharset=\\s*(?:\"|')?([^\\s,;\"']*)");
     static final String defaultCharset = "UTF-8"; // used if not found in header or meta charset
     private static final int bufferSize = 60000;
+    private static final int prescanSize = 1024 * 32; // how much of the input to scan for a meta charset
     private static final char[] mimeBoundaryChars =
             "-_1234567890abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ".toCharArray();
     static final int boundaryLength = 32;
@@ -42,8 +44,14 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(File in, String charsetName, String baseUri) throws IOException {
-        ByteBuffer byteData = readFileToByteBuffer(in);
-        return parseByteData(byteData, charsetName, baseUri, Parser.htmlParser());
+        // read through the bounded stream parse, vs mapping the file: a mapping outlives the parse (locking the file on
+        // Windows), and a file truncated while mapped faults the JVM
+        FileInputStream inStream = new FileInputStream(in);
+        try {
+            return parseInputStream(inStream, charsetName, baseUri, Parser.htmlParser());
+        } finally {
+            inStream.close();
+        }
     }
 
     /**
@@ -55,8 +63,7 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(InputStream in, String charsetName, String baseUri) throws IOException {
-        ByteBuffer byteData = readToByteBuffer(in);
-        return parseByteData(byteData, charsetName, baseUri, Parser.htmlParser());
+        return parseInputStream(in, charsetName, baseUri, Parser.htmlParser());
     }
 
     /**
@@ -69,8 +76,7 @@ public final class DataUtil {
      * @throws IOException on IO error
      */
     public static Document load(InputStream in, String charsetName, String baseUri, Parser parser) throws IOException {
-        ByteBuffer byteData = readToByteBuffer(in);
-        return parseByteData(byteData, charsetName, baseUri, parser);
+        return parseInputStream(in, charsetName, baseUri, parser);
     }
 
     /**
@@ -87,54 +93,49 @@ public final class DataUtil {
         }
     }
 
-    // reads bytes first into a buffer, then decodes with the appropriate charset. done this way to support
-    // switching the chartset midstream when a meta http-equiv tag defines the charset.
-    // todo - this is getting gnarly. needs a rewrite.
-    static Document parseByteData(ByteBuffer byteData, String charsetName, String baseUri, Parser parser) {
-        String docData;
-        Document doc = null;
+    // decodes and tokenises directly from the stream, so the input is never held in memory in full. if the charset isn't
+    // known (or set by a BOM), the head of the stream is prescanned for a meta charset before decoding starts.
+    static Document parseInputStream(InputStream inStream, String charsetName, String baseUri, Parser parser) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(inStream, bufferSize);
+        charsetName = detectCharsetFromBom(in, charsetName);
+        if (charsetName == null) {
+            charsetName = prescanCharset(in);
+            if (charsetName == null)
+                charsetName = defaultCharset;
+        }
+
+        Validate.notEmpty(charsetName, "Must set charset arg to character set of file to parse. Set to null to attempt to detect from HTML");
+        InputStreamReader reader = new InputStreamReader(in, Charset.forName(charsetName));
+        Document doc;
+        try {
+            doc = parser.parseInput(reader, baseUri);
+        } catch (UncheckedIOException e) {
+            throw e.ioException();
+        }
+        doc.outputSettings().charset(charsetName);
+        return doc;
+    }
 
+    // decodes the bytes with the appropriate charset as they are tokenised. if the charset is not specified, the raw
+    // bytes are prescanned for a <meta charset> or http-equiv content type, so the input is only decoded and parsed once.
+    static Document parseByteData(ByteBuffer byteData, String charsetName, String baseUri, Parser parser) {
         // look for BOM - overrides any other header or input
         charsetName = detectCharsetFromBom(byteData, charsetName);
 
-        if (charsetName == null) { // determine from meta. safe first parse as UTF-8
-            // look for <meta http-equiv="Content-Type" content="text/html;charset=gb2312"> or HTML5 <meta charset="gb2312">
-            docData = Charset.forName(defaultCharset).decode(byteData).toString();
-            doc = parser.parseInput(docData, baseUri);
-            Element meta = doc.select("meta[http-equiv=content-type], meta[charset]").first();
-            String foundCharset = null; // if not found, will keep utf-8 as best attempt
-            if (meta != null) {
-                if (meta.hasAttr("http-equiv")) {
-                    foundCharset = getCharsetFromContentType(meta.attr("content"));
-                }
-                if (foundCharset == null && meta.hasAttr("charset")) {
-                    foundCharset = meta.attr("charset");
-                }
-            }
-            // look for <?xml encoding='ISO-8859-1'?>
-            if (foundCharset == null && doc.childNodeSize() > 0 && doc.childNode(0) instanceof XmlDeclaration) {
-                XmlDeclaration prolog = (XmlDeclaration) doc.childNode(0);
-                if (prolog.name().equals("xml")) {
-                    foundCharset = prolog.attr("encoding");
-                }
-            }
-            foundCharset = validateCharset(foundCharset);
-
-            if (foundCharset != null && !foundCharset.equals(defaultCharset)) { // need to re-decode
-                foundCharset = foundCharset.trim().replaceAll("[\"']", "");
-                charsetName = foundCharset;
-                byteData.rewind();
-                docData = Charset.forName(foundCharset).decode(byteData).toString();
-                doc = null;
-            }
+        if (charsetName == null) { // determine from meta. if not found, will use utf-8 as best attempt
+            // look for <meta http-equiv="Content-Type" content="text/html;charset=gb2312">, HTML5 <meta charset="gb2312">,
+            // or <?xml encoding='ISO-8859-1'?>
+            ByteBuffer head = byteData.duplicate();
+            if (head.remaining() > prescanSize)
+                head.limit(head.position() + prescanSize);
+            charsetName = CharsetPrescanner.prescan(head);
+            if (charsetName == null)
+                charsetName = defaultCharset;
         } else { // specified by content type header (or by user on file load)
             Validate.notEmpty(charsetName, "Must set charset arg to character set of file to parse. Set to null to attempt to detect from HTML");
-            docData = Charset.forName(charsetName).decode(byteData).toString();
-        }
-        if (doc == null) {
-            doc = parser.parseInput(docData, baseUri);
-            doc.outputSettings().charset(charsetName);
         }
+        Document doc = parser.parseInput(new ByteBufferReader(byteData, Charset.forName(charsetName)), baseUri);
+        doc.outputSettings().charset(charsetName);
         return doc;
     }
 
@@ -174,19 +175,6 @@ public final class DataUtil {
         return readToByteBuffer(inStream, 0);
     }
 
-    static ByteBuffer readFileToByteBuffer(File file) throws IOException {
-        RandomAccessFile randomAccessFile = null;
-        try {
-            randomAccessFile = new RandomAccessFile(file, "r");
-            byte[] bytes = new byte[(int) randomAccessFile.length()];
-            randomAccessFile.readFully(bytes);
-            return ByteBuffer.wrap(bytes);
-        } finally {
-            if (randomAccessFile != null)
-                randomAccessFile.close();
-        }
-    }
-
     static ByteBuffer emptyByteBuffer() {
         return ByteBuffer.allocate(0);
     }
@@ -208,7 +196,7 @@ public final class DataUtil {
         return null;
     }
 
-    private static String validateCharset(String cs) {
+    static String validateCharset(String cs) {
         if (cs == null || cs.length() == 0) return null;
         cs = cs.trim().replaceAll("[\"']", "");
         try {
@@ -233,6 +221,39 @@ public final class DataUtil {
         return mime.toString();
     }
 
+    // peeks the head of the stream for a meta charset, without consuming it
+    private static String prescanCharset(BufferedInputStream in) throws IOException {
+        byte[] head = new byte[prescanSize];
+        in.mark(prescanSize);
+        int read = 0;
+        while (read < prescanSize) {
+            int count = in.read(head, read, prescanSize - read);
+            if (count == -1) break;
+            read += count;
+        }
+        in.reset();
+        return CharsetPrescanner.prescan(ByteBuffer.wrap(head, 0, read));
+    }
+
+    // peeks the head of the stream for a BOM; leaves the stream positioned after a UTF-8 BOM, else at the start
+    private static String detectCharsetFromBom(BufferedInputStream in, String charsetName) throws IOException {
+        byte[] bom = new byte[4];
+        in.mark(bom.length);
+        int read = 0;
+        while (read < bom.length) {
+            int count = in.read(bom, read, bom.length - read);
+            if (count == -1) break;
+            read += count;
+        }
+        in.reset();
+
+        ByteBuffer peek = ByteBuffer.wrap(bom, 0, read);
+        charsetName = detectCharsetFromBom(peek, charsetName);
+        if (peek.position() > 0) // skip the consumed UTF-8 BOM
+            in.skip(peek.position());
+        return charsetName;
+    }
+
     private static String detectCharsetFromBom(ByteBuffer byteData, String charsetName) {
         byteData.mark();
         byte[] bom = new byte[4];
@@ -605,6 +605,7 @@ public class HttpConnection implements Connection {
         private boolean executed = false;
         private int numRedirects = 0;
         private Connection.Request req;
+        private Document doc; // parsed while downloading, when the parser stops early; until retrieved by parse()
 
         /*
          * Matches XML content types (like text/xml, application/xhtml+xml;charset=UTF8, etc)
@@ -704,7 +705,14 @@ public class HttpConnection implements Connection {
                         if (res.hasHeaderWithValue(CONTENT_ENCODING, "gzip"))
                             bodyStream = new GZIPInputStream(bodyStream);
 
-                        res.byteData = DataUtil.readToByteBuffer(bodyStream, req.maxBodySize());
+                        if (req.parser().isStoppingEarly()) {
+                            // parse as the body is read, so that the download stops when the parse does
+                            CapturingInputStream capture = new CapturingInputStream(bodyStream, req.maxBodySize());
+                            res.doc = DataUtil.parseInputStream(capture, res.charset, req.url().toExternalForm(), req.parser());
+                            res.byteData = capture.captured();
+                        } else {
+                            res.byteData = DataUtil.readToByteBuffer(bodyStream, req.maxBodySize());
+                        }
                     } finally {
                         if (bodyStream != null) bodyStream.close();
                     }
@@ -744,7 +752,11 @@ public class HttpConnection implements Connection {
 
         public Document parse() throws IOException {
             Validate.isTrue(executed, "Request must be executed (with .execute(), .get(), or .post() before parsing response");
-            Document doc = DataUtil.parseByteData(byteData, charset, url.toExternalForm(), req.parser());
+            Document doc = this.doc;
+            if (doc != null)
+                this.doc = null; // later calls reparse the body that was read
+            else
+                doc = DataUtil.parseByteData(byteData, charset, url.toExternalForm(), req.parser());
             byteData.rewind();
             charset = doc.outputSettings().charset().name(); // update charset from meta-equiv, possibly
             return doc;
@@ -1057,6 +1069,57 @@ public class HttpConnection implements Connection {
         return needsMulti;
     }
 
+    /**
+     * Copies the bytes read from the response body, up to the max body size, so that the part of the body that was
+     * downloaded is available from the response after an early stopping parse.
+     */
+    private static class CapturingInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        private int remaining; // bytes left before the max body size; -1 if unlimited
+
+        CapturingInputStream(InputStream in, int maxSize) {
+            super(in);
+            remaining = maxSize > 0 ? maxSize : -1;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0)
+                return -1;
+            if (remaining > 0)
+                len = Math.min(len, remaining);
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                captured.write(b, off, read);
+                if (remaining > 0)
+                    remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0)
+                return 0;
+            return Math.max(0, read(new byte[(int) Math.min(n, 1024)])); // skipped bytes are still captured
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        ByteBuffer captured() {
+            return ByteBuffer.wrap(captured.toByteArray());
+        }
+    }
+
     public static class KeyVal implements Connection.KeyVal {
         private String key;
         private String value;
@@ -20,7 +20,8 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
     };
 
     private String key;
-    private String value;
+    String val; // null for a boolean attribute
+    Attributes parent; // if set, changes are written through to the parent
 
     /**
      * Create a new attribute from unencoded (raw) key and value.
@@ -29,11 +30,22 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      * @see #createFromEncoded
      */
     public Attribute(String key, String value) {
-        Validate.notNull(key);
+        this(key, value, null);
         Validate.notNull(value);
+    }
+
+    /**
+     * Create a new attribute, as a view of the attributes that hold it.
+     * @param key attribute key
+     * @param val attribute value; null for a boolean attribute
+     * @param parent the containing attributes, or null
+     */
+    Attribute(String key, String val, Attributes parent) {
+        Validate.notNull(key);
         this.key = key.trim();
         Validate.notEmpty(key); // trimming could potentially make empty, so validate here
-        this.value = value;
+        this.val = val;
+        this.parent = parent;
     }
 
     /**
@@ -50,7 +62,16 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      */
     public void setKey(String key) {
         Validate.notEmpty(key);
-        this.key = key.trim();
+        key = key.trim();
+        if (parent != null) {
+            int i = parent.indexOfKey(this.key);
+            if (i != Attributes.NotFound) {
+                parent.keys[i] = key;
+                parent.changed(this.key);
+                parent.changed(key);
+            }
+        }
+        this.key = key;
     }
 
     /**
@@ -58,7 +79,7 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      @return the attribute value
      */
     public String getValue() {
-        return value;
+        return Attributes.checkNotNull(val);
     }
 
     /**
@@ -67,8 +88,15 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      */
     public String setValue(String value) {
         Validate.notNull(value);
-        String old = this.value;
-        this.value = value;
+        String old = getValue();
+        if (parent != null) {
+            int i = parent.indexOfKey(this.key);
+            if (i != Attributes.NotFound) {
+                parent.vals[i] = value;
+                parent.changed(key);
+            }
+        }
+        this.val = value;
         return old;
     }
 
@@ -91,7 +119,16 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
         accum.append(key);
         if (!shouldCollapseAttribute(out)) {
             accum.append("=\"");
-            Entities.escape(accum, value, out, true, false, false);
+            Entities.escape(accum, getValue(), out, true, false, false);
+            accum.append('"');
+        }
+    }
+
+    static void html(String key, String val, Appendable accum, Document.OutputSettings out) throws IOException {
+        accum.append(key);
+        if (!shouldCollapseAttribute(key, val, out)) {
+            accum.append("=\"");
+            Entities.escape(accum, Attributes.checkNotNull(val), out, true, false, false);
             accum.append('"');
         }
     }
@@ -117,7 +154,7 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
     }
 
     protected boolean isDataAttribute() {
-        return key.startsWith(Attributes.dataPrefix) && key.length() > Attributes.dataPrefix.length();
+        return Attributes.isDataAttribute(key);
     }
 
     /**
@@ -127,12 +164,22 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
      * @return  Returns whether collapsible or not
      */
     protected final boolean shouldCollapseAttribute(Document.OutputSettings out) {
+        String value = getValue();
         return ("".equals(value) || value.equalsIgnoreCase(key))
                 && out.syntax() == Document.OutputSettings.Syntax.html
-                && isBooleanAttribute();
+                && (val == null || isBooleanAttribute());
+    }
+
+    private static boolean shouldCollapseAttribute(String key, String val, Document.OutputSettings out) {
+        return out.syntax() == Document.OutputSettings.Syntax.html
+                && (val == null || ("".equals(val) || val.equalsIgnoreCase(key)) && isBooleanAttribute(key));
     }
 
     protected boolean isBooleanAttribute() {
+        return isBooleanAttribute(key);
+    }
+
+    private static boolean isBooleanAttribute(String key) {
         return Arrays.binarySearch(booleanAttributes, key) >= 0;
     }
 
@@ -144,20 +191,22 @@ public class Attribute implements Map.Entry<String, String>, Cloneable  {
         Attribute attribute = (Attribute) o;
 
         if (key != null ? !key.equals(attribute.key) : attribute.key != null) return false;
-        return !(value != null ? !value.equals(attribute.value) : attribute.value != null);
+        return getValue().equals(attribute.getValue());
     }
 
     @Override
     public int hashCode() {
         int result = key != null ? key.hashCode() : 0;
-        result = 31 * result + (value != null ? value.hashCode() : 0);
+        result = 31 * result + getValue().hashCode();
         return result;
     }
 
     @Override
     public Attribute clone() {
         try {
-            return (Attribute) super.clone(); // only fields are immutable strings key and value, so no more deep copy required
+            Attribute clone = (Attribute) super.clone(); // key and value are immutable strings, so no more deep copy required
+            clone.parent = null; // detached from the attributes
+            return clone;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
@@ -9,9 +9,9 @@ import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
@@ -24,15 +24,63 @@ import java.util.Set;
  * normalized to lower-case on parsing. That means you should use lower-case strings when referring to attributes by
  * name.
  * </p>
+ * <p>
+ * The keys and values are held in compact parallel arrays, in insertion order, and are searched linearly (elements
+ * have few attributes). {@link Attribute} objects are only created when iterating or listing the attributes; they are
+ * views that write changes back to these attributes.
+ * </p>
  *
  * @author Jonathan Hedley, jonathan@hedley.net
  */
 public class Attributes implements Iterable<Attribute>, Cloneable {
     protected static final String dataPrefix = "data-";
+    private static final int InitialCapacity = 2; // most elements with attributes have one or two
+    private static final String[] Empty = {};
+    static final int NotFound = -1;
+
+    // parallel arrays of keys and values, in insertion order. a null value is a boolean attribute (written key only).
+    // empty by default, as so many elements have no attributes -- saves a good chunk of memory
+    private int size = 0;
+    String[] keys = Empty;
+    String[] vals = Empty;
+
+    private void checkCapacity(int minNewSize) {
+        int curSize = keys.length;
+        if (curSize >= minNewSize)
+            return;
+
+        int newSize = curSize >= InitialCapacity ? curSize * 2 : InitialCapacity;
+        if (minNewSize > newSize)
+            newSize = minNewSize;
+        keys = copyOf(keys, newSize);
+        vals = copyOf(vals, newSize);
+    }
+
+    private static String[] copyOf(String[] orig, int size) {
+        String[] copy = new String[size];
+        System.arraycopy(orig, 0, copy, 0, Math.min(orig.length, size));
+        return copy;
+    }
 
-    private LinkedHashMap<String, Attribute> attributes = null;
-    // linked hash map to preserve insertion order.
-    // null be default as so many elements have no attributes -- saves a good chunk of memory
+    int indexOfKey(String key) {
+        for (int i = 0; i < size; i++) {
+            if (key.equals(keys[i]))
+                return i;
+        }
+        return NotFound;
+    }
+
+    private int indexOfKeyIgnoreCase(String key) {
+        for (int i = 0; i < size; i++) {
+            if (key.equalsIgnoreCase(keys[i]))
+                return i;
+        }
+        return NotFound;
+    }
+
+    static String checkNotNull(String val) {
+        return val == null ? "" : val;
+    }
 
     /**
      Get an attribute value by key.
@@ -42,12 +90,8 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public String get(String key) {
         Validate.notEmpty(key);
-
-        if (attributes == null)
-            return "";
-
-        Attribute attr = attributes.get(key);
-        return attr != null ? attr.getValue() : "";
+        int i = indexOfKey(key);
+        return i == NotFound ? "" : checkNotNull(vals[i]);
     }
 
     /**
@@ -57,18 +101,10 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public String getIgnoreCase(String key) {
         Validate.notEmpty(key);
-        if (attributes == null)
-            return "";
-
-        Attribute attr = attributes.get(key);
-        if (attr != null)
-            return attr.getValue();
-
-        for (String attrKey : attributes.keySet()) {
-            if (attrKey.equalsIgnoreCase(key))
-                return attributes.get(attrKey).getValue();
-        }
-        return "";
+        int i = indexOfKey(key);
+        if (i == NotFound)
+            i = indexOfKeyIgnoreCase(key);
+        return i == NotFound ? "" : checkNotNull(vals[i]);
     }
 
     /**
@@ -77,8 +113,11 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @param value attribute value
      */
     public void put(String key, String value) {
-        Attribute attr = new Attribute(key, value);
-        put(attr);
+        Validate.notNull(key);
+        Validate.notNull(value);
+        key = key.trim();
+        Validate.notEmpty(key); // trimming could potentially make empty, so validate here
+        putValue(key, value);
     }
 
     /**
@@ -87,21 +126,60 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     @param value attribute value
     */
     public void put(String key, boolean value) {
-        if (value)
-            put(new BooleanAttribute(key));
-        else
+        if (value) {
+            Validate.notNull(key);
+            key = key.trim();
+            Validate.notEmpty(key);
+            putValue(key, null);
+        } else {
             remove(key);
+        }
     }
 
     /**
-     Set a new attribute, or replace an existing one by key.
+     Set a new attribute, or replace an existing one by key. The attribute becomes a view of these attributes, so later
+     changes to its value are reflected here.
      @param attribute attribute
      */
     public void put(Attribute attribute) {
         Validate.notNull(attribute);
-        if (attributes == null)
-             attributes = new LinkedHashMap<String, Attribute>(2);
-        attributes.put(attribute.getKey(), attribute);
+        putValue(attribute.getKey(), attribute.val);
+        attribute.parent = this;
+    }
+
+    private void putValue(String key, String val) {
+        int i = indexOfKey(key);
+        if (i != NotFound) {
+            vals[i] = val;
+        } else {
+            checkCapacity(size + 1);
+            keys[size] = key;
+            vals[size] = val;
+            size++;
+        }
+        changed(key);
+    }
+
+    /**
+     Called after an attribute is set or removed (or renamed, for both keys). A hook for attributes that back other
+     state, like a text node's text.
+     @param key attribute key
+     */
+    void changed(String key) {
+    }
+
+    private void remove(int index) {
+        Validate.isFalse(index >= size);
+        String key = keys[index];
+        int shifted = size - index - 1;
+        if (shifted > 0) {
+            System.arraycopy(keys, index + 1, keys, index, shifted);
+            System.arraycopy(vals, index + 1, vals, index, shifted);
+        }
+        size--;
+        keys[size] = null; // release hold
+        vals[size] = null;
+        changed(key);
     }
 
     /**
@@ -110,9 +188,9 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public void remove(String key) {
         Validate.notEmpty(key);
-        if (attributes == null)
-            return;
-        attributes.remove(key);
+        int i = indexOfKey(key);
+        if (i != NotFound)
+            remove(i);
     }
 
     /**
@@ -121,12 +199,9 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     public void removeIgnoreCase(String key) {
         Validate.notEmpty(key);
-        if (attributes == null)
-            return;
-        for (Iterator<String> it = attributes.keySet().iterator(); it.hasNext(); ) {
-            String attrKey = it.next();
-            if (attrKey.equalsIgnoreCase(key))
-                it.remove();
+        for (int i = size - 1; i >= 0; i--) {
+            if (key.equalsIgnoreCase(keys[i]))
+                remove(i);
         }
     }
 
@@ -136,7 +211,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @return true if key exists, false otherwise
      */
     public boolean hasKey(String key) {
-        return attributes != null && attributes.containsKey(key);
+        return key != null && indexOfKey(key) != NotFound;
     }
 
     /**
@@ -145,13 +220,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @return true if key exists, false otherwise
      */
     public boolean hasKeyIgnoreCase(String key) {
-        if (attributes == null)
-            return false;
-        for (String attrKey : attributes.keySet()) {
-            if (attrKey.equalsIgnoreCase(key))
-                return true;
-        }
-        return false;
+        return key != null && indexOfKeyIgnoreCase(key) != NotFound;
     }
 
     /**
@@ -159,9 +228,7 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @return size
      */
     public int size() {
-        if (attributes == null)
-            return 0;
-        return attributes.size();
+        return size;
     }
 
     /**
@@ -171,17 +238,31 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     public void addAll(Attributes incoming) {
         if (incoming.size() == 0)
             return;
-        if (attributes == null)
-            attributes = new LinkedHashMap<String, Attribute>(incoming.size());
-        attributes.putAll(incoming.attributes);
+        checkCapacity(size + incoming.size);
+        for (int i = 0; i < incoming.size; i++)
+            putValue(incoming.keys[i], incoming.vals[i]);
     }
 
     public Iterator<Attribute> iterator() {
-        if (attributes == null || attributes.isEmpty()) {
-            return Collections.<Attribute>emptyList().iterator();
-        }
+        return new Iterator<Attribute>() {
+            int i = 0;
+
+            public boolean hasNext() {
+                return i < size;
+            }
 
-        return attributes.values().iterator();
+            public Attribute next() {
+                if (i >= size)
+                    throw new NoSuchElementException();
+                Attribute attr = attribute(i);
+                i++;
+                return attr;
+            }
+
+            public void remove() {
+                Attributes.this.remove(--i); // next() advanced, so remove the previous
+            }
+        };
     }
 
     /**
@@ -190,16 +271,19 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      @return an view of the attributes as a List.
      */
     public List<Attribute> asList() {
-        if (attributes == null)
+        if (size == 0)
             return Collections.emptyList();
 
-        List<Attribute> list = new ArrayList<Attribute>(attributes.size());
-        for (Map.Entry<String, Attribute> entry : attributes.entrySet()) {
-            list.add(entry.getValue());
-        }
+        List<Attribute> list = new ArrayList<Attribute>(size);
+        for (int i = 0; i < size; i++)
+            list.add(attribute(i));
         return Collections.unmodifiableList(list);
     }
 
+    private Attribute attribute(int i) {
+        return vals[i] == null ? new BooleanAttribute(keys[i], this) : new Attribute(keys[i], vals[i], this);
+    }
+
     /**
      * Retrieves a filtered view of attributes that are HTML5 custom data attributes; that is, attributes with keys
      * starting with {@code data-}.
@@ -225,13 +309,9 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
     }
 
     void html(Appendable accum, Document.OutputSettings out) throws IOException {
-        if (attributes == null)
-            return;
-
-        for (Map.Entry<String, Attribute> entry : attributes.entrySet()) {
-            Attribute attribute = entry.getValue();
+        for (int i = 0; i < size; i++) {
             accum.append(" ");
-            attribute.html(accum, out);
+            Attribute.html(keys[i], vals[i], accum, out);
         }
     }
 
@@ -251,8 +331,13 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         if (!(o instanceof Attributes)) return false;
 
         Attributes that = (Attributes) o;
-
-        return !(attributes != null ? !attributes.equals(that.attributes) : that.attributes != null);
+        if (size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            int j = that.indexOfKey(keys[i]);
+            if (j == NotFound || !checkNotNull(vals[i]).equals(checkNotNull(that.vals[j])))
+                return false;
+        }
+        return true;
     }
 
     /**
@@ -261,31 +346,28 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
      */
     @Override
     public int hashCode() {
-        return attributes != null ? attributes.hashCode() : 0;
+        int result = 0;
+        for (int i = 0; i < size; i++)
+            result += 31 * keys[i].hashCode() + checkNotNull(vals[i]).hashCode(); // order independent, as in equals
+        return result;
     }
 
     @Override
     public Attributes clone() {
-        if (attributes == null)
-            return new Attributes();
-
         Attributes clone;
         try {
             clone = (Attributes) super.clone();
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
-        clone.attributes = new LinkedHashMap<String, Attribute>(attributes.size());
-        for (Attribute attribute: this)
-            clone.attributes.put(attribute.getKey(), attribute.clone());
+        clone.keys = size == 0 ? Empty : copyOf(keys, size);
+        clone.vals = size == 0 ? Empty : copyOf(vals, size);
         return clone;
     }
 
     private class Dataset extends AbstractMap<String, String> {
 
         private Dataset() {
-            if (attributes == null)
-                attributes = new LinkedHashMap<String, Attribute>(2);
         }
 
         @Override
@@ -296,9 +378,8 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         @Override
         public String put(String key, String value) {
             String dataKey = dataKey(key);
-            String oldValue = hasKey(dataKey) ? attributes.get(dataKey).getValue() : null;
-            Attribute attr = new Attribute(dataKey, value);
-            attributes.put(dataKey, attr);
+            String oldValue = hasKey(dataKey) ? get(dataKey) : null;
+            Attributes.this.put(dataKey, value);
             return oldValue;
         }
 
@@ -320,26 +401,37 @@ public class Attributes implements Iterable<Attribute>, Cloneable {
         }
 
         private class DatasetIterator implements Iterator<Map.Entry<String, String>> {
-            private Iterator<Attribute> attrIter = attributes.values().iterator();
-            private Attribute attr;
+            private int i = 0; // the index of the next data attribute, once found by hasNext
+            private int current = NotFound;
+
             public boolean hasNext() {
-                while (attrIter.hasNext()) {
-                    attr = attrIter.next();
-                    if (attr.isDataAttribute()) return true;
+                if (current != NotFound && current == i)
+                    i++; // step past the last returned
+                while (i < size) {
+                    if (isDataAttribute(keys[i])) {
+                        current = i;
+                        return true;
+                    }
+                    i++;
                 }
                 return false;
             }
 
             public Entry<String, String> next() {
-                return new Attribute(attr.getKey().substring(dataPrefix.length()), attr.getValue());
+                return new Attribute(keys[current].substring(dataPrefix.length()), checkNotNull(vals[current]));
             }
 
             public void remove() {
-                attributes.remove(attr.getKey());
+                Attributes.this.remove(current);
+                current = NotFound; // the next candidate has shifted into i
             }
         }
     }
 
+    static boolean isDataAttribute(String key) {
+        return key.startsWith(dataPrefix) && key.length() > dataPrefix.length();
+    }
+
     private static String dataKey(String key) {
         return dataPrefix + key;
     }
@@ -9,7 +9,11 @@ public class BooleanAttribute extends Attribute {
      * @param key attribute key
      */
     public BooleanAttribute(String key) {
-        super(key, "");
+        super(key, null, null);
+    }
+
+    BooleanAttribute(String key, Attributes parent) {
+        super(key, null, parent);
     }
 
     @Override
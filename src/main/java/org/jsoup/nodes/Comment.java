@@ -9,14 +9,23 @@ import java.io.IOException;
 public class Comment extends Node {
     private static final String COMMENT_KEY = "comment";
 
+    /**
+     Create a new comment node. Its base URI is resolved from its parent.
+     @param data The contents of the comment
+     */
+    public Comment(String data) {
+        super("");
+        attributes.put(COMMENT_KEY, data);
+    }
+
     /**
      Create a new comment node.
      @param data The contents of the comment
-     @param baseUri base URI
+     @param baseUri base URI; ignored
+     @deprecated the base URI is not held by a comment, which resolves it from its parent; use {@link #Comment(String)}
      */
     public Comment(String data, String baseUri) {
-        super(baseUri);
-        attributes.put(COMMENT_KEY, data);
+        this(data);
     }
 
     public String nodeName() {
@@ -9,14 +9,24 @@ import java.io.IOException;
 public class DataNode extends Node{
     private static final String DATA_KEY = "data";
 
+    /**
+     Create a new DataNode. Its base URI is resolved from its parent.
+     @param data data contents
+     */
+    public DataNode(String data) {
+        super("");
+        attributes.put(DATA_KEY, data);
+    }
+
     /**
      Create a new DataNode.
      @param data data contents
-     @param baseUri base URI
+     @param baseUri base URI; ignored
+     @deprecated the base URI is not held by a data node, which resolves it from its parent; use {@link
+     #DataNode(String)}
      */
     public DataNode(String data, String baseUri) {
-        super(baseUri);
-        attributes.put(DATA_KEY, data);
+        this(data);
     }
 
     public String nodeName() {
@@ -55,11 +65,21 @@ public class DataNode extends Node{
     /**
      Create a new DataNode from HTML encoded data.
      @param encodedData encoded data
-     @param baseUri bass URI
      @return new DataNode
      */
-    public static DataNode createFromEncoded(String encodedData, String baseUri) {
+    public static DataNode createFromEncoded(String encodedData) {
         String data = Entities.unescape(encodedData);
-        return new DataNode(data, baseUri);
+        return new DataNode(data);
+    }
+
+    /**
+     Create a new DataNode from HTML encoded data.
+     @param encodedData encoded data
+     @param baseUri bass URI; ignored
+     @return new DataNode
+     @deprecated the base URI is not held by a data node; use {@link #createFromEncoded(String)}
+     */
+    public static DataNode createFromEncoded(String encodedData, String baseUri) {
+        return createFromEncoded(encodedData);
     }
 }
@@ -20,6 +20,7 @@ public class Document extends Element {
     private QuirksMode quirksMode = QuirksMode.noQuirks;
     private String location;
     private boolean updateMetaCharset = false;
+    private boolean memoizeText = false;
 
     /**
      Create a new, empty Document.
@@ -149,7 +150,7 @@ public class Document extends Element {
         for (int i = toMove.size()-1; i >= 0; i--) {
             Node node = toMove.get(i);
             element.removeChild(node);
-            body().prependChild(new TextNode(" ", ""));
+            body().prependChild(new TextNode(" "));
             body().prependChild(node);
         }
     }
@@ -342,14 +343,14 @@ public class Document extends Element {
                             decl.attr("version", "1.0");
                         }
                     } else {
-                        decl = new XmlDeclaration("xml", baseUri, false);
+                        decl = new XmlDeclaration("xml", false);
                         decl.attr("version", "1.0");
                         decl.attr("encoding", charset().displayName());
 
                         prependChild(decl);
                     }
                 } else {
-                    XmlDeclaration decl = new XmlDeclaration("xml", baseUri, false);
+                    XmlDeclaration decl = new XmlDeclaration("xml", false);
                     decl.attr("version", "1.0");
                     decl.attr("encoding", charset().displayName());
 
@@ -551,6 +552,29 @@ public class Document extends Element {
         noQuirks, quirks, limitedQuirks
     }
 
+    /**
+     * Check if the text of this document's elements is memoized.
+     * @return true if element text is memoized
+     * @see #memoizeText(boolean)
+     */
+    public boolean memoizeText() {
+        return memoizeText;
+    }
+
+    /**
+     * Set if the text of this document's elements should be memoized. When set, {@link Element#text()} holds the text
+     * it builds for an element and its descendants (softly, so it can be reclaimed under memory pressure), until the
+     * text below that element changes. Later calls on those elements, or on their ancestors, reuse it rather than
+     * walking the subtree again; so repeated text reads, like {@code :contains} selects, are faster. Off by default, as
+     * a single text read does a little more work to build the memo.
+     * @param memoizeText true to memoize element text
+     * @return this document, for chaining
+     */
+    public Document memoizeText(boolean memoizeText) {
+        this.memoizeText = memoizeText;
+        return this;
+    }
+
     public QuirksMode quirksMode() {
         return quirksMode;
     }
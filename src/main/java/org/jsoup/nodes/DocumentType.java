@@ -18,14 +18,13 @@ public class DocumentType extends Node {
     // todo: quirk mode from publicId and systemId
 
     /**
-     * Create a new doctype element.
+     * Create a new doctype element. Its base URI is resolved from its parent.
      * @param name the doctype's name
      * @param publicId the doctype's public ID
      * @param systemId the doctype's system ID
-     * @param baseUri the doctype's base URI
      */
-    public DocumentType(String name, String publicId, String systemId, String baseUri) {
-        super(baseUri);
+    public DocumentType(String name, String publicId, String systemId) {
+        super("");
 
         attr(NAME, name);
         attr(PUBLIC_ID, publicId);
@@ -40,10 +39,25 @@ public class DocumentType extends Node {
      * @param name the doctype's name
      * @param publicId the doctype's public ID
      * @param systemId the doctype's system ID
-     * @param baseUri the doctype's base URI
+     * @param baseUri the doctype's base URI; ignored
+     * @deprecated the base URI is not held by a doctype, which resolves it from its parent; use {@link
+     * #DocumentType(String, String, String)}
+     */
+    public DocumentType(String name, String publicId, String systemId, String baseUri) {
+        this(name, publicId, systemId);
+    }
+
+    /**
+     * Create a new doctype element.
+     * @param name the doctype's name
+     * @param publicId the doctype's public ID
+     * @param systemId the doctype's system ID
+     * @param baseUri the doctype's base URI; ignored
+     * @deprecated the base URI is not held by a doctype, which resolves it from its parent; use {@link
+     * #DocumentType(String, String, String)} and {@link #setPubSysKey(String)}
      */
     public DocumentType(String name, String pubSysKey, String publicId, String systemId, String baseUri) {
-        super(baseUri);
+        super("");
 
         attr(NAME, name);
         if (pubSysKey != null) {
@@ -53,6 +67,15 @@ public class DocumentType extends Node {
         attr(SYSTEM_ID, systemId);
     }
 
+    /**
+     * Set the doctype's key for its identifiers, e.g. {@link #PUBLIC_KEY} or {@link #SYSTEM_KEY}.
+     * @param value the key; or null to leave it unset
+     */
+    public void setPubSysKey(String value) {
+        if (value != null)
+            attr(PUB_SYS_KEY, value);
+    }
+
     @Override
     public String nodeName() {
         return "#doctype";
@@ -14,6 +14,8 @@ import org.jsoup.select.QueryParser;
 import org.jsoup.select.Selector;
 
 import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -35,6 +37,9 @@ import java.util.regex.PatternSyntaxException;
  */
 public class Element extends Node {
     private Tag tag;
+    private String baseUri; // null to resolve from the parent; set on the document, and rarely elsewhere
+    private WeakReference<ChildElements> childElementsRef; // memoized child elements; cleared when the child nodes change
+    private SoftReference<NormalisedText> textRef; // memoized text, if the document memoizes it; cleared up the ancestors on change
 
     private static final Pattern classSplit = Pattern.compile("\\s+");
 
@@ -60,6 +65,9 @@ public class Element extends Node {
         
         Validate.notNull(tag);    
         this.tag = tag;
+        baseUri = baseUri.trim();
+        if (baseUri.length() > 0) // otherwise resolved from the parent
+            this.baseUri = baseUri;
     }
     
     /**
@@ -67,7 +75,7 @@ public class Element extends Node {
      * 
      * @param tag element tag
      * @param baseUri the base URI of this element. It is acceptable for the base URI to be an empty
-     *            string, but not null.
+     *            string, but not null. If empty, the base URI is resolved from the element's parent.
      * @see Tag#valueOf(String, ParseSettings)
      */
     public Element(Tag tag, String baseUri) {
@@ -98,6 +106,7 @@ public class Element extends Node {
     public Element tagName(String tagName) {
         Validate.notEmpty(tagName, "Tag name must not be empty.");
         tag = Tag.valueOf(tagName, ParseSettings.preserveCase); // preserve the requested tag case
+        textChanged(); // may change how our text is spaced and normalised
         return this;
     }
 
@@ -207,7 +216,16 @@ public class Element extends Node {
      * @see #childNode(int)
      */
     public Element child(int index) {
-        return children().get(index);
+        return childElements().elements.get(index);
+    }
+
+    /**
+     * Get the number of child elements of this element, without creating a list of them.
+     * @return the number of child elements
+     * @see #children()
+     */
+    public int childrenSize() {
+        return childElements().elements.size();
     }
 
     /**
@@ -220,13 +238,54 @@ public class Element extends Node {
      * @see #childNodes()
      */
     public Elements children() {
-        // create on the fly rather than maintaining two lists. if gets slow, memoize, and mark dirty on change
-        List<Element> elements = new ArrayList<Element>(childNodes.size());
-        for (Node node : childNodes) {
-            if (node instanceof Element)
-                elements.add((Element) node);
+        return new Elements(childElements().elements);
+    }
+
+    /**
+     * The child elements of an element, and the position of each child node in that list. Memoized until the child
+     * nodes change, so that element sibling lookups are constant time.
+     */
+    private static final class ChildElements {
+        final List<Element> elements;
+        final int[] indexes; // by child node sibling index: the index in elements of that node, or of the next element
+
+        ChildElements(List<Element> elements, int[] indexes) {
+            this.elements = elements;
+            this.indexes = indexes;
         }
-        return new Elements(elements);
+    }
+
+    private ChildElements childElements() {
+        ChildElements children = childElementsRef != null ? childElementsRef.get() : null;
+        if (children == null) {
+            final int size = childNodes.size();
+            List<Element> elements = new ArrayList<Element>(size);
+            int[] indexes = new int[size];
+            for (int i = 0; i < size; i++) {
+                indexes[i] = elements.size();
+                Node node = childNodes.get(i);
+                if (node instanceof Element)
+                    elements.add((Element) node);
+            }
+            children = new ChildElements(elements, indexes);
+            childElementsRef = new WeakReference<ChildElements>(children); // weak, so unused lists don't hold memory
+        }
+        return children;
+    }
+
+    @Override
+    void nodelistChanged() {
+        childElementsRef = null;
+        textChanged();
+    }
+
+    /**
+     * Drop the memoized text of this element and its ancestors. An element only has memoized text if its descendants
+     * do, so this stops at the first element without.
+     */
+    void textChanged() {
+        for (Element el = this; el != null && el.textRef != null; el = el.parent())
+            el.textRef = null;
     }
 
     /**
@@ -328,6 +387,7 @@ public class Element extends Node {
         ensureChildNodes();
         childNodes.add(child);
         child.setSiblingIndex(childNodes.size() - 1);
+        nodelistChanged();
         return this;
     }
 
@@ -365,6 +425,37 @@ public class Element extends Node {
         addChildren(index, nodeArray);
         return this;
     }
+
+    /**
+     * Removes the given child nodes from this element. The nodes are removed in one pass, so this is quicker than
+     * removing them one at a time when there are many.
+     *
+     * @param children child nodes of this element to remove
+     * @return this element, for chaining.
+     * @see Node#remove()
+     */
+    public Element removeChildren(Collection<? extends Node> children) {
+        Validate.notNull(children, "Children collection to be removed must not be null.");
+        removeChildren(children.toArray(new Node[children.size()]));
+        return this;
+    }
+
+    /**
+     * Replaces all of the child nodes of this element with the given nodes. The new nodes will be moved from their
+     * current parent. To prevent moving, copy the nodes first.
+     *
+     * @param children the new child nodes
+     * @return this element, for chaining.
+     * @see #empty()
+     */
+    public Element replaceChildren(Collection<? extends Node> children) {
+        Validate.notNull(children, "Children collection must not be null.");
+        Node[] nodes = children.toArray(new Node[children.size()]); // before emptying, as may be our child nodes
+        Validate.noNullElements(nodes);
+        empty();
+        addChildren(nodes);
+        return this;
+    }
     
     /**
      * Create a new element by tag name, and add it as the last child.
@@ -374,7 +465,7 @@ public class Element extends Node {
      *  {@code parent.appendElement("h1").attr("id", "header").text("Welcome");}
      */
     public Element appendElement(String tagName) {
-        Element child = new Element(Tag.valueOf(tagName), baseUri());
+        Element child = new Element(Tag.valueOf(tagName), "");
         appendChild(child);
         return child;
     }
@@ -387,7 +478,7 @@ public class Element extends Node {
      *  {@code parent.prependElement("h1").attr("id", "header").text("Welcome");}
      */
     public Element prependElement(String tagName) {
-        Element child = new Element(Tag.valueOf(tagName), baseUri());
+        Element child = new Element(Tag.valueOf(tagName), "");
         prependChild(child);
         return child;
     }
@@ -400,7 +491,7 @@ public class Element extends Node {
      */
     public Element appendText(String text) {
         Validate.notNull(text);
-        TextNode node = new TextNode(text, baseUri());
+        TextNode node = new TextNode(text);
         appendChild(node);
         return this;
     }
@@ -413,7 +504,7 @@ public class Element extends Node {
      */
     public Element prependText(String text) {
         Validate.notNull(text);
-        TextNode node = new TextNode(text, baseUri());
+        TextNode node = new TextNode(text);
         prependChild(node);
         return this;
     }
@@ -497,7 +588,10 @@ public class Element extends Node {
      * @return this element
      */
     public Element empty() {
+        for (Node child : childNodes)
+            child.parentNode = null;
         childNodes.clear();
+        nodelistChanged();
         return this;
     }
 
@@ -553,7 +647,7 @@ public class Element extends Node {
         if (parentNode == null)
             return new Elements(0);
 
-        List<Element> elements = parent().children();
+        List<Element> elements = parent().childElements().elements;
         Elements siblings = new Elements(elements.size() - 1);
         for (Element el: elements)
             if (el != this)
@@ -572,11 +666,10 @@ public class Element extends Node {
      */
     public Element nextElementSibling() {
         if (parentNode == null) return null;
-        List<Element> siblings = parent().children();
-        Integer index = indexInList(this, siblings);
-        Validate.notNull(index);
-        if (siblings.size() > index+1)
-            return siblings.get(index+1);
+        ChildElements siblings = parent().childElements();
+        int index = siblings.indexes[siblingIndex()];
+        if (siblings.elements.size() > index+1)
+            return siblings.elements.get(index+1);
         else
             return null;
     }
@@ -588,11 +681,10 @@ public class Element extends Node {
      */
     public Element previousElementSibling() {
         if (parentNode == null) return null;
-        List<Element> siblings = parent().children();
-        Integer index = indexInList(this, siblings);
-        Validate.notNull(index);
+        ChildElements siblings = parent().childElements();
+        int index = siblings.indexes[siblingIndex()];
         if (index > 0)
-            return siblings.get(index-1);
+            return siblings.elements.get(index-1);
         else
             return null;
     }
@@ -603,7 +695,7 @@ public class Element extends Node {
      */
     public Element firstElementSibling() {
         // todo: should firstSibling() exclude this?
-        List<Element> siblings = parent().children();
+        List<Element> siblings = parent().childElements().elements;
         return siblings.size() > 1 ? siblings.get(0) : null;
     }
     
@@ -612,9 +704,9 @@ public class Element extends Node {
      * sibling, returns 0.
      * @return position in element sibling list
      */
-    public Integer elementSiblingIndex() {
+    public int elementSiblingIndex() {
        if (parent() == null) return 0;
-       return indexInList(this, parent().children()); 
+       return parent().childElements().indexes[siblingIndex()];
     }
 
     /**
@@ -622,21 +714,9 @@ public class Element extends Node {
      * @return the last sibling that is an element (aka the parent's last element child) 
      */
     public Element lastElementSibling() {
-        List<Element> siblings = parent().children();
+        List<Element> siblings = parent().childElements().elements;
         return siblings.size() > 1 ? siblings.get(siblings.size() - 1) : null;
     }
-    
-    private static <E extends Element> Integer indexInList(Element search, List<E> elements) {
-        Validate.notNull(search);
-        Validate.notNull(elements);
-
-        for (int i = 0; i < elements.size(); i++) {
-            E element = elements.get(i);
-            if (element == search)
-                return i;
-        }
-        return null;
-    }
 
     // DOM type methods
 
@@ -916,6 +996,12 @@ public class Element extends Node {
      * @see #textNodes()
      */
     public String text() {
+        NormalisedText text = cachedText();
+        if (text != null)
+            return text.text();
+        if (memoizesText())
+            return NormalisedText.build(this).text();
+
         final StringBuilder accum = new StringBuilder();
         new NodeTraversor(new NodeVisitor() {
             public void head(Node node, int depth) {
@@ -937,6 +1023,198 @@ public class Element extends Node {
         return accum.toString().trim();
     }
 
+    private boolean memoizesText() {
+        Document doc = ownerDocument();
+        return doc != null && doc.memoizeText();
+    }
+
+    private NormalisedText cachedText() {
+        NormalisedText text = textRef != null ? textRef.get() : null;
+        if (text != null && text.parentPreserves != parentPreservesWhitespace())
+            return null; // moved, and its text nodes are normalised differently now
+        return text;
+    }
+
+    private boolean parentPreservesWhitespace() {
+        return parentNode instanceof Element && ((Element) parentNode).tag.preserveWhitespace();
+    }
+
+    /**
+     * The normalised text of an element, as the span of a text string built for it or for an ancestor. Memoized (when
+     * the document {@link Document#memoizeText(boolean) memoizes text}) until the text below the element changes, and
+     * reused when an ancestor's text is built, so that repeated calls of {@link #text()} on nested elements (e.g. from
+     * {@code :contains} selectors) don't each walk the subtree.
+     * <p>The span holds the element's text as built from an empty start, less any single leading space that would be
+     * dropped after preceding whitespace; the flags let an ancestor join it as if its nodes had been walked. All fields
+     * are final, so a memo read by another thread is complete.</p>
+     */
+    private static final class NormalisedText {
+        final boolean parentPreserves; // if the parent preserved whitespace when built (that applies to our text)
+        final String source; // the text built, shared with the descendants' spans
+        final int start, end; // our span in source
+        final boolean hasContent; // if any descendant text was not empty
+        final boolean hasText; // if any descendant text was not blank
+        final boolean leadingSpace; // if our text starts with a space that would be dropped after whitespace
+        final boolean leadingBreak; // if a block or br element precedes our first text
+        private String text; // trimmed span, on first use. racy, but the same value from any thread
+
+        NormalisedText(Span span, String source) {
+            this.parentPreserves = span.parentPreserves;
+            this.source = source;
+            this.start = span.start;
+            this.end = span.end;
+            this.hasContent = span.hasContent;
+            this.hasText = span.hasText;
+            this.leadingSpace = span.leadingSpace;
+            this.leadingBreak = span.leadingBreak;
+        }
+
+        String text() {
+            String t = text;
+            if (t == null) {
+                t = source.substring(start, end).trim();
+                text = t;
+            }
+            return t;
+        }
+
+        /**
+         * Build the text of the root, and the memos of it and the descendants walked. The memos are set only once the
+         * text is complete.
+         */
+        static NormalisedText build(Element root) {
+            final StringBuilder accum = new StringBuilder();
+            final List<Span> built = new ArrayList<Span>();
+            final List<Span> open = new ArrayList<Span>(); // the elements being walked
+            int noContent = 0; // open from here have no content yet
+            int noText = 0; // open from here have no non-blank text yet
+            int breaks = 0;
+
+            open.add(new Span(root, 0));
+            Node node = root;
+            while (true) {
+                // descend, or go to the next node up
+                Node next = node.childNodeSize() > 0 && open.get(open.size() - 1) != null ? node.childNode(0) : null;
+                while (next == null) {
+                    if (node instanceof Element) {
+                        Span span = open.remove(open.size() - 1);
+                        if (span != null) {
+                            span.end = accum.length();
+                            if (!span.hasContent) {
+                                span.start = span.end;
+                                span.leadingBreak = breaks > span.breaksAtHead;
+                            }
+                            built.add(span);
+                        }
+                        noContent = Math.min(noContent, open.size());
+                        noText = Math.min(noText, open.size());
+                    }
+                    if (node == root) {
+                        String source = accum.toString();
+                        NormalisedText rootText = null;
+                        for (Span span : built) {
+                            NormalisedText text = new NormalisedText(span, source);
+                            span.el.textRef = new SoftReference<NormalisedText>(text);
+                            rootText = text; // the root is built last
+                        }
+                        return rootText;
+                    }
+                    next = node.nextSibling();
+                    if (next == null)
+                        node = node.parentNode();
+                }
+                node = next;
+
+                // append the node's text, or the memoized text of an element
+                boolean content = false, leadingSpace = false, hasText = false;
+                int contentStart = 0;
+                if (node instanceof TextNode) {
+                    String wholeText = ((TextNode) node).getWholeText();
+                    if (wholeText.length() > 0) {
+                        boolean lastWasWhite = TextNode.lastCharIsWhitespace(accum);
+                        content = true;
+                        hasText = !StringUtil.isBlank(wholeText);
+                        if (preserveWhitespace(node.parentNode)) {
+                            contentStart = accum.length();
+                            accum.append(wholeText);
+                        } else {
+                            leadingSpace = StringUtil.isWhitespace(wholeText.codePointAt(0));
+                            contentStart = accum.length() + (leadingSpace && !lastWasWhite ? 1 : 0);
+                            StringUtil.appendNormalisedWhitespace(accum, wholeText, lastWasWhite);
+                        }
+                    }
+                } else if (node instanceof Element) {
+                    Element el = (Element) node;
+                    if (el.isBlock() || el.tag.getName().equals("br")) {
+                        appendBreak(accum);
+                        breaks++;
+                    }
+                    NormalisedText memo = el.cachedText();
+                    if (memo == null) {
+                        open.add(new Span(el, breaks));
+                    } else {
+                        open.add(null); // walked past
+                        if (memo.leadingBreak) {
+                            appendBreak(accum);
+                            breaks++;
+                        }
+                        if (memo.hasContent) {
+                            if (memo.leadingSpace && !TextNode.lastCharIsWhitespace(accum))
+                                accum.append(' ');
+                            content = true;
+                            leadingSpace = memo.leadingSpace;
+                            hasText = memo.hasText;
+                            contentStart = accum.length();
+                            accum.append(memo.source, memo.start, memo.end);
+                        }
+                    }
+                }
+
+                // the open elements without content start theirs here
+                if (content) {
+                    for (int i = noContent; i < open.size(); i++) {
+                        Span span = open.get(i);
+                        if (span != null) {
+                            span.hasContent = true;
+                            span.start = contentStart;
+                            span.leadingSpace = leadingSpace;
+                            span.leadingBreak = breaks > span.breaksAtHead;
+                        }
+                    }
+                    noContent = open.size();
+                }
+                if (hasText) {
+                    for (int i = noText; i < open.size(); i++) {
+                        Span span = open.get(i);
+                        if (span != null)
+                            span.hasText = true;
+                    }
+                    noText = open.size();
+                }
+            }
+        }
+
+        private static void appendBreak(StringBuilder accum) {
+            if (accum.length() > 0 && !TextNode.lastCharIsWhitespace(accum))
+                accum.append(' ');
+        }
+    }
+
+    /** A NormalisedText while it is being built. */
+    private static final class Span {
+        final Element el;
+        final boolean parentPreserves;
+        final int breaksAtHead; // block breaks seen, before our descendants
+        int start, end;
+        boolean hasContent, hasText, leadingSpace, leadingBreak;
+
+        Span(Element el, int breaksAtHead) {
+            this.el = el;
+            this.parentPreserves = el.parentPreservesWhitespace();
+            this.breaksAtHead = breaksAtHead;
+        }
+    }
+
     /**
      * Gets the text owned by this element only; does not get the combined text of all children.
      * <p>
@@ -998,7 +1276,7 @@ public class Element extends Node {
         Validate.notNull(text);
 
         empty();
-        TextNode textNode = new TextNode(text, baseUri);
+        TextNode textNode = new TextNode(text);
         appendChild(textNode);
 
         return this;
@@ -1009,6 +1287,9 @@ public class Element extends Node {
      @return true if element has non-blank text content.
      */
     public boolean hasText() {
+        NormalisedText text = cachedText();
+        if (text != null)
+            return text.hasText;
         for (Node child: childNodes) {
             if (child instanceof TextNode) {
                 TextNode textNode = (TextNode) child;
@@ -1283,8 +1564,35 @@ public class Element extends Node {
         return outerHtml();
     }
 
+    @Override
+    public String baseUri() {
+        for (Element el = this; el != null; el = el.parent()) {
+            if (el.baseUri != null)
+                return el.baseUri;
+        }
+        return "";
+    }
+
+    @Override
+    protected void doSetBaseUri(String baseUri) {
+        this.baseUri = baseUri.trim();
+    }
+
     @Override
     public Element clone() {
         return (Element) super.clone();
     }
+
+    @Override
+    protected Element doClone(Node parent) {
+        Element clone = (Element) super.doClone(parent);
+        clone.childElementsRef = null; // has its own child nodes
+        clone.textRef = null;
+        if (parent == null && baseUri == null) { // an orphan, so hold the base URI it had in its tree
+            String inherited = baseUri();
+            if (inherited.length() > 0)
+                clone.baseUri = inherited;
+        }
+        return clone;
+    }
 }
@@ -236,7 +236,13 @@ public class Entities {
             accum.append("&#x").append(Integer.toHexString(codePoint)).append(';');
     }
 
-    static String unescape(String string) {
+    /**
+     * Unescape the input string, decoding its character references (like {@code &amp;amp;} and {@code &amp;#x3C;}).
+     *
+     * @param string to un-HTML-escape
+     * @return unescaped string
+     */
+    public static String unescape(String string) {
         return unescape(string, false);
     }
 
@@ -244,10 +250,12 @@ public class Entities {
      * Unescape the input string.
      *
      * @param string to un-HTML-escape
-     * @param strict if "strict" (that is, requires trailing ';' char, otherwise that's optional)
+     * @param strict if "strict" (decoding as in an attribute value: a named reference without a trailing ';' is not
+     * decoded if it is followed by a letter, digit, '=', '-' or '_')
      * @return unescaped string
+     * @see Parser#unescapeEntities(String, boolean)
      */
-    static String unescape(String string, boolean strict) {
+    public static String unescape(String string, boolean strict) {
         return Parser.unescapeEntities(string, strict);
     }
 
@@ -10,8 +10,10 @@ import org.jsoup.select.NodeVisitor;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  The base, abstract Node model. Elements, Documents, Comments etc are all Node instances.
@@ -22,12 +24,12 @@ public abstract class Node implements Cloneable {
     Node parentNode;
     List<Node> childNodes;
     Attributes attributes;
-    String baseUri;
     int siblingIndex;
 
     /**
      Create a new Node.
-     @param baseUri base URI
+     @param baseUri base URI. Not held by the node: its base URI is resolved from its parent (see {@link #baseUri()}).
+     Elements hold a base URI that is set explicitly.
      @param attributes attributes (not null, but may be empty)
      */
     protected Node(String baseUri, Attributes attributes) {
@@ -35,7 +37,6 @@ public abstract class Node implements Cloneable {
         Validate.notNull(attributes);
         
         childNodes = EMPTY_NODES;
-        this.baseUri = baseUri.trim();
         this.attributes = attributes;
     }
 
@@ -130,28 +131,30 @@ public abstract class Node implements Cloneable {
     }
 
     /**
-     Get the base URI of this node.
+     Get the base URI of this node. The base URI is held once, typically on the document (as updated by a
+     {@code <base href>} when parsing), and is resolved from the closest element up the tree that has one set. A node
+     that is not in a tree with a base URI has an empty base URI.
      @return base URI
      */
     public String baseUri() {
-        return baseUri;
+        return parentNode != null ? parentNode.baseUri() : "";
     }
 
     /**
-     Update the base URI of this node and all of its descendants.
+     Update the base URI of this node and all of its descendants. Only elements hold a base URI; it is not copied into
+     the descendants, which resolve it from their parent. Setting it on other nodes has no effect.
      @param baseUri base URI to set
      */
     public void setBaseUri(final String baseUri) {
         Validate.notNull(baseUri);
+        doSetBaseUri(baseUri);
+    }
 
-        traverse(new NodeVisitor() {
-            public void head(Node node, int depth) {
-                node.baseUri = baseUri;
-            }
-
-            public void tail(Node node, int depth) {
-            }
-        });
+    /**
+     Set the base URI held by this node. A no-op for nodes other than elements.
+     @param baseUri base URI to set
+     */
+    protected void doSetBaseUri(String baseUri) {
     }
 
     /**
@@ -183,7 +186,7 @@ public abstract class Node implements Cloneable {
         if (!hasAttr(attributeKey)) {
             return ""; // nothing to make absolute with
         } else {
-            return StringUtil.resolve(baseUri, attr(attributeKey));
+            return StringUtil.resolve(baseUri(), attr(attributeKey));
         }
     }
 
@@ -281,7 +284,7 @@ public abstract class Node implements Cloneable {
      * @see #after(String)
      */
     public Node before(String html) {
-        addSiblingHtml(siblingIndex, html);
+        addSiblingHtml(siblingIndex(), html);
         return this;
     }
 
@@ -295,7 +298,7 @@ public abstract class Node implements Cloneable {
         Validate.notNull(node);
         Validate.notNull(parentNode);
 
-        parentNode.addChildren(siblingIndex, node);
+        parentNode.addChildren(siblingIndex(), node);
         return this;
     }
 
@@ -306,7 +309,7 @@ public abstract class Node implements Cloneable {
      * @see #before(String)
      */
     public Node after(String html) {
-        addSiblingHtml(siblingIndex + 1, html);
+        addSiblingHtml(siblingIndex() + 1, html);
         return this;
     }
 
@@ -320,7 +323,7 @@ public abstract class Node implements Cloneable {
         Validate.notNull(node);
         Validate.notNull(parentNode);
 
-        parentNode.addChildren(siblingIndex + 1, node);
+        parentNode.addChildren(siblingIndex() + 1, node);
         return this;
     }
 
@@ -382,16 +385,15 @@ public abstract class Node implements Cloneable {
         Validate.notNull(parentNode);
 
         Node firstChild = childNodes.size() > 0 ? childNodes.get(0) : null;
-        parentNode.addChildren(siblingIndex, this.childNodesAsArray());
+        parentNode.addChildren(siblingIndex(), this.childNodesAsArray());
         this.remove();
 
         return firstChild;
     }
 
     private Element getDeepChild(Element el) {
-        List<Element> children = el.children();
-        if (children.size() > 0)
-            return getDeepChild(children.get(0));
+        if (el.childrenSize() > 0)
+            return getDeepChild(el.child(0));
         else
             return el;
     }
@@ -418,40 +420,74 @@ public abstract class Node implements Cloneable {
         if (in.parentNode != null)
             in.parentNode.removeChild(in);
         
-        final int index = out.siblingIndex;
+        final int index = out.siblingIndex();
         childNodes.set(index, in);
         in.parentNode = this;
         in.setSiblingIndex(index);
         out.parentNode = null;
+        nodelistChanged();
     }
 
     protected void removeChild(Node out) {
         Validate.isTrue(out.parentNode == this);
-        final int index = out.siblingIndex;
+        final int index = out.siblingIndex();
         childNodes.remove(index);
         reindexChildren(index);
         out.parentNode = null;
+        nodelistChanged();
+    }
+
+    /**
+     * Remove a set of child nodes in one pass, rather than shifting the following nodes down for each one.
+     * @param children the child nodes to remove
+     */
+    protected void removeChildren(Node... children) {
+        Validate.noNullElements(children);
+        if (children.length == 0)
+            return;
+        for (Node out : children)
+            Validate.isTrue(out.parentNode == this);
+        for (Node out : children)
+            out.parentNode = null; // marks the nodes to drop
+
+        final int size = childNodes.size();
+        int kept = 0;
+        int firstRemoved = -1;
+        for (int i = 0; i < size; i++) {
+            Node node = childNodes.get(i);
+            if (node.parentNode == this)
+                childNodes.set(kept++, node);
+            else if (firstRemoved == -1)
+                firstRemoved = i;
+        }
+        childNodes.subList(kept, size).clear();
+        if (firstRemoved != -1)
+            reindexChildren(firstRemoved); // once, for all the removed
+        nodelistChanged();
     }
 
     protected void addChildren(Node... children) {
         //most used. short circuit addChildren(int), which hits reindex children and array copy
-        for (Node child: children) {
-            reparentChild(child);
-            ensureChildNodes();
+        ensureChildNodes();
+        for (Node child: reparentChildren(children)) {
             childNodes.add(child);
             child.setSiblingIndex(childNodes.size()-1);
         }
+        nodelistChanged();
     }
 
     protected void addChildren(int index, Node... children) {
         Validate.noNullElements(children);
         ensureChildNodes();
-        for (int i = children.length - 1; i >= 0; i--) {
-            Node in = children[i];
-            reparentChild(in);
-            childNodes.add(index, in);
-            reindexChildren(index);
-        }
+        childNodes.addAll(index, reparentChildren(children));
+        reindexChildren(index); // once, for all the inserted
+        nodelistChanged();
+    }
+
+    /**
+     * Called when the child nodes of this node have changed, to drop anything derived from them.
+     */
+    void nodelistChanged() {
     }
 
     protected void ensureChildNodes() {
@@ -465,7 +501,36 @@ public abstract class Node implements Cloneable {
             child.parentNode.removeChild(child);
         child.setParentNode(this);
     }
-    
+
+    private List<Node> reparentChildren(Node[] children) {
+        if (children.length == 1) {
+            reparentChild(children[0]);
+            return Collections.singletonList(children[0]);
+        }
+        // remove from each current parent in one pass
+        Map<Node, List<Node>> byParent = new IdentityHashMap<Node, List<Node>>();
+        for (Node child : children) {
+            if (child.parentNode == null)
+                continue;
+            List<Node> siblings = byParent.get(child.parentNode);
+            if (siblings == null) {
+                siblings = new ArrayList<Node>();
+                byParent.put(child.parentNode, siblings);
+            }
+            siblings.add(child);
+        }
+        for (Map.Entry<Node, List<Node>> entry : byParent.entrySet())
+            entry.getKey().removeChildren(entry.getValue().toArray(new Node[entry.getValue().size()]));
+        List<Node> reparented = new ArrayList<Node>(children.length);
+        for (Node child : children) {
+            if (child.parentNode == this)
+                continue; // listed twice
+            child.setParentNode(this);
+            reparented.add(child);
+        }
+        return reparented;
+    }
+
     private void reindexChildren(int start) {
         for (int i = start; i < childNodes.size(); i++) {
             childNodes.get(i).setSiblingIndex(i);
@@ -498,7 +563,7 @@ public abstract class Node implements Cloneable {
             return null; // root
         
         final List<Node> siblings = parentNode.childNodes;
-        final int index = siblingIndex+1;
+        final int index = siblingIndex()+1;
         if (siblings.size() > index)
             return siblings.get(index);
         else
@@ -513,8 +578,9 @@ public abstract class Node implements Cloneable {
         if (parentNode == null)
             return null; // root
 
-        if (siblingIndex > 0)
-            return parentNode.childNodes.get(siblingIndex-1);
+        final int index = siblingIndex();
+        if (index > 0)
+            return parentNode.childNodes.get(index-1);
         else
             return null;
     }
@@ -664,7 +730,6 @@ public abstract class Node implements Cloneable {
         clone.parentNode = parent; // can be null, to create an orphan split
         clone.siblingIndex = parent == null ? 0 : siblingIndex;
         clone.attributes = attributes != null ? attributes.clone() : null;
-        clone.baseUri = baseUri;
         clone.childNodes = new ArrayList<Node>(childNodes.size());
 
         for (Node child: childNodes)
@@ -18,16 +18,26 @@ public class TextNode extends Node {
     private static final String TEXT_KEY = "text";
     String text;
 
+    /**
+     Create a new TextNode representing the supplied (unencoded) text). Its base URI is resolved from its parent.
+
+     @param text raw text
+     @see #createFromEncoded(String)
+     */
+    public TextNode(String text) {
+        this.text = text;
+    }
+
     /**
      Create a new TextNode representing the supplied (unencoded) text).
 
      @param text raw text
-     @param baseUri base uri
-     @see #createFromEncoded(String, String)
+     @param baseUri base uri; ignored
+     @deprecated the base URI is not held by a text node, which resolves it from its parent; use {@link
+     #TextNode(String)}
      */
     public TextNode(String text, String baseUri) {
-        this.baseUri = baseUri;
-        this.text = text;
+        this(text);
     }
 
 	public String nodeName() {
@@ -51,10 +61,17 @@ public class TextNode extends Node {
     public TextNode text(String text) {
         this.text = text;
         if (attributes != null)
-            attributes.put(TEXT_KEY, text);
+            attributes.put(TEXT_KEY, text); // and calls textChanged
+        else
+            textChanged();
         return this;
     }
 
+    private void textChanged() {
+        if (parentNode instanceof Element)
+            ((Element) parentNode).textChanged();
+    }
+
     /**
      Get the (unencoded) text of this text node, including any newlines and spaces present in the original.
      @return text
@@ -84,7 +101,7 @@ public class TextNode extends Node {
         String head = getWholeText().substring(0, offset);
         String tail = getWholeText().substring(offset);
         text(head);
-        TextNode tailNode = new TextNode(tail, this.baseUri());
+        TextNode tailNode = new TextNode(tail);
         if (parent() != null)
             parent().addChildren(siblingIndex()+1, tailNode);
 
@@ -110,12 +127,22 @@ public class TextNode extends Node {
     /**
      * Create a new TextNode from HTML encoded (aka escaped) data.
      * @param encodedText Text containing encoded HTML (e.g. &amp;lt;)
-     * @param baseUri Base uri
      * @return TextNode containing unencoded data (e.g. &lt;)
      */
-    public static TextNode createFromEncoded(String encodedText, String baseUri) {
+    public static TextNode createFromEncoded(String encodedText) {
         String text = Entities.unescape(encodedText);
-        return new TextNode(text, baseUri);
+        return new TextNode(text);
+    }
+
+    /**
+     * Create a new TextNode from HTML encoded (aka escaped) data.
+     * @param encodedText Text containing encoded HTML (e.g. &amp;lt;)
+     * @param baseUri Base uri; ignored
+     * @return TextNode containing unencoded data (e.g. &lt;)
+     * @deprecated the base URI is not held by a text node; use {@link #createFromEncoded(String)}
+     */
+    public static TextNode createFromEncoded(String encodedText, String baseUri) {
+        return createFromEncoded(encodedText);
     }
 
     static String normaliseWhitespace(String text) {
@@ -134,11 +161,34 @@ public class TextNode extends Node {
     // attribute fiddling. create on first access.
     private void ensureAttributes() {
         if (attributes == null) {
-            attributes = new Attributes();
-            attributes.put(TEXT_KEY, text);
+            TextAttributes textAttributes = new TextAttributes();
+            textAttributes.put(TEXT_KEY, text);
+            textAttributes.owner = this; // after the text is put, as that is not a change
+            attributes = textAttributes;
+        }
+    }
+
+    /**
+     The attributes of a text node, which hold its text once created; so writes to the text key change the text.
+     */
+    private static final class TextAttributes extends Attributes {
+        private TextNode owner;
+
+        @Override
+        void changed(String key) {
+            if (owner != null && TEXT_KEY.equals(key))
+                owner.textChanged();
         }
     }
 
+    @Override
+    protected TextNode doClone(Node parent) {
+        TextNode clone = (TextNode) super.doClone(parent);
+        if (clone.attributes instanceof TextAttributes)
+            ((TextAttributes) clone.attributes).owner = clone;
+        return clone;
+    }
+
     @Override
     public String attr(String attributeKey) {
         ensureAttributes();
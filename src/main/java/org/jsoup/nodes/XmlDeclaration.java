@@ -13,18 +13,29 @@ public class XmlDeclaration extends Node {
     private final boolean isProcessingInstruction; // <! if true, <? if false, declaration (and last data char should be ?)
 
     /**
-     Create a new XML declaration
+     Create a new XML declaration. Its base URI is resolved from its parent.
      @param name of declaration
-     @param baseUri base uri
      @param isProcessingInstruction is processing instruction
      */
-    public XmlDeclaration(String name, String baseUri, boolean isProcessingInstruction) {
-        super(baseUri);
+    public XmlDeclaration(String name, boolean isProcessingInstruction) {
+        super("");
         Validate.notNull(name);
         this.name = name;
         this.isProcessingInstruction = isProcessingInstruction;
     }
 
+    /**
+     Create a new XML declaration
+     @param name of declaration
+     @param baseUri base uri; ignored
+     @param isProcessingInstruction is processing instruction
+     @deprecated the base URI is not held by a declaration, which resolves it from its parent; use {@link
+     #XmlDeclaration(String, boolean)}
+     */
+    public XmlDeclaration(String name, String baseUri, boolean isProcessingInstruction) {
+        this(name, isProcessingInstruction);
+    }
+
     public String nodeName() {
         return "#declaration";
     }
@@ -1,27 +1,314 @@
 package org.jsoup.parser;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Locale;
 
 /**
- CharacterReader consumes tokens off a string. Used internally by jsoup. API subject to changes.
+ CharacterReader consumes tokens off a string, or off a {@link Reader}. Used internally by jsoup. API subject to changes.
+ <p>When reading from a Reader, only a fixed size window of the input is held in memory. The window is slid forward as
+ the input is consumed, so lookahead methods (like {@link #nextIndexOf(char)}) only scan the currently buffered content.
+ The exception is {@link #containsIgnoreCase(String)}, which grows the window to read ahead as far as needed, so that
+ the document built is the same as when parsing the input as a String.</p>
+ <p>Input can also be pushed in incrementally, with {@link #append(char[], int, int)}. When consuming would need input
+ that has not arrived yet, an {@link InputUnderrun} is thrown, and the consumer rewinds to its last checkpoint.</p>
  */
 public final class CharacterReader {
     static final char EOF = (char) -1;
     private static final int maxCacheLen = 12;
-
-    private final char[] input;
-    private final int length;
-    private int pos = 0;
-    private int mark = 0;
-    private final String[] stringCache = new String[512]; // holds reused strings in this doc, to lessen garbage
+    static final int maxBufferLen = 1024 * 32; // visible for testing
+    private static final double bufSplitRatio = 0.75; // slide the window once this much of it has been consumed
+    static final int minPushLookahead = 8; // incremental input needs this much ahead of the cursor (covers "DOCTYPE" etc)
+    static final int maxRecycledBufferLen = 1024 * 256; // larger buffers are not kept for reuse by later parses
+    private static final int stringCacheSize = 512;
+    private static final InputUnderrun underrun = new InputUnderrun();
+    private static final ScanTable tagNameStops = new ScanTable('\t', '\n', '\r', '\f', ' ', '/', '>', TokeniserState.nullChar);
+
+    private char[] charBuf;
+    private final Reader reader; // null when the full input is held in charBuf, or it is being pushed in
+    private int bufSize;
+    private int bufLength; // number of chars in charBuf
+    private int bufSplitPoint; // when bufPos passes this, slide the buffer along and read more
+    private int bufPos = 0;
+    private int readerPos = 0; // position in the full input of charBuf[0]
+    private int bufMark = -1;
+    private int bufCheckpoint = 0; // incremental input: position to rewind to on underrun, and to retain input from
+    private boolean readFully; // true when the reader has been exhausted
+    private int maxChars = 0; // if set, input past this many chars is ignored
+    private boolean truncated = false; // if input was ignored due to maxChars
+    private final String[] stringCache; // holds reused strings in this doc, to lessen garbage
+    private SymbolTable symbols; // if set, strings are shared across documents through this table
+    private LineIndex lines; // if set, the newline positions are indexed, for error line numbers
 
     public CharacterReader(String input) {
+        this(input, null);
+    }
+
+    /**
+     * Create a CharacterReader over the input, reusing the char buffer and string cache of a previous reader that is
+     * done with, where they fit. The previous reader must not be used again.
+     * @param input the input to read
+     * @param recycle a finished reader to take buffers from; may be null
+     */
+    CharacterReader(String input, CharacterReader recycle) {
+        Validate.notNull(input);
+        int len = input.length();
+        if (recycle != null && recycle.isRecyclable() && recycle.charBuf.length >= len) {
+            charBuf = recycle.charBuf;
+            input.getChars(0, len, charBuf, 0);
+        } else {
+            charBuf = input.toCharArray();
+        }
+        this.stringCache = recycle != null ? recycle.stringCache : new String[stringCacheSize];
+        this.reader = null;
+        this.bufSize = len;
+        this.bufLength = len;
+        this.bufSplitPoint = bufLength;
+        this.readFully = true;
+    }
+
+    /**
+     * Create a CharacterReader that reads from the supplied Reader, holding only a bounded window of the input in
+     * memory. The reader is not closed.
+     * @param input the input to read
+     */
+    public CharacterReader(Reader input) {
+        this(input, maxBufferLen);
+    }
+
+    CharacterReader(Reader input, int bufferSize) {
+        this(input, bufferSize, null);
+    }
+
+    /**
+     * Create a CharacterReader that reads from the supplied Reader, reusing the buffers of a previous reader that is done
+     * with, where they fit. The previous reader must not be used again.
+     * @param input the input to read
+     * @param recycle a finished reader to take buffers from; may be null
+     */
+    CharacterReader(Reader input, CharacterReader recycle) {
+        this(input, maxBufferLen, recycle);
+    }
+
+    private CharacterReader(Reader input, int bufferSize, CharacterReader recycle) {
         Validate.notNull(input);
-        this.input = input.toCharArray();
-        this.length = this.input.length;
+        Validate.isTrue(bufferSize >= 16, "Buffer size must be at least 16");
+        this.reader = input;
+        this.bufSize = bufferSize;
+        this.charBuf = recycle != null && recycle.isRecyclable() && recycle.charBuf.length >= bufferSize ?
+            recycle.charBuf : new char[bufferSize];
+        this.stringCache = recycle != null ? recycle.stringCache : new String[stringCacheSize];
+        this.readFully = false;
+        bufferUp();
+    }
+
+    /**
+     * Create a CharacterReader that will have its input pushed in incrementally, via {@link #append(char[], int, int)},
+     * and then {@link #finish()}.
+     */
+    CharacterReader() {
+        this.reader = null;
+        this.bufSize = 1024;
+        this.charBuf = new char[bufSize];
+        this.stringCache = new String[stringCacheSize];
+        this.readFully = false;
+    }
+
+    /**
+     * Check if this reader's buffers are small enough to be worth keeping for reuse by a later reader.
+     */
+    boolean isRecyclable() {
+        return charBuf.length <= maxRecycledBufferLen;
+    }
+
+    /**
+     * Append incremental input. Input before the current checkpoint is discarded from the buffer.
+     */
+    void append(char[] chars, int off, int len) {
+        if (truncated)
+            return; // past maxChars
+        Validate.isTrue(reader == null && !readFully, "Input is not open for appending");
+        int keepFrom = bufCheckpoint > 0 ? bufCheckpoint - 1 : 0; // keep one char for unconsume
+        if (keepFrom > 0) {
+            if (lines != null)
+                scanLines(keepFrom);
+            bufLength -= keepFrom;
+            System.arraycopy(charBuf, keepFrom, charBuf, 0, bufLength);
+            readerPos += keepFrom;
+            bufPos -= keepFrom;
+            bufCheckpoint -= keepFrom;
+            bufMark = bufMark >= keepFrom ? bufMark - keepFrom : -1;
+        }
+        if (bufLength + len > bufSize) {
+            bufSize = Math.max(bufLength + len, bufSize * 2);
+            char[] grown = new char[bufSize];
+            System.arraycopy(charBuf, 0, grown, 0, bufLength);
+            charBuf = grown;
+        }
+        System.arraycopy(chars, off, charBuf, bufLength, len);
+        bufLength += len;
+        bufSplitPoint = Math.max(0, bufLength - minPushLookahead);
+        clip();
+    }
+
+    /**
+     * Mark the end of incremental input.
+     */
+    void finish() {
+        readFully = true;
+    }
+
+    /**
+     * Record the position to rewind to if an {@link InputUnderrun} occurs.
+     */
+    void checkpoint() {
+        bufCheckpoint = bufPos;
+    }
+
+    void rewindToCheckpoint() {
+        bufPos = bufCheckpoint;
+    }
+
+    /**
+     * Get the number of chars that are buffered but not yet consumed.
+     */
+    int available() {
+        return bufLength - bufPos;
+    }
+
+    /**
+     * Slides the buffer window forward when the cursor has passed the split point, and tops it up from the reader. The
+     * char before the cursor (for {@link #unconsume()}) and the input from a held mark are retained.
+     */
+    private void bufferUp() {
+        if (readFully || bufPos < bufSplitPoint)
+            return;
+        if (reader == null) // incremental input, and not enough has been appended yet
+            throw underrun;
+
+        int keepFrom = bufPos > 0 ? bufPos - 1 : 0;
+        if (bufMark >= 0) // held only over a char ref's bounded lookahead, until unmark()
+            keepFrom = Math.min(keepFrom, bufMark);
+        if (keepFrom == 0 && bufLength == bufSize) {
+            growBuffer(); // nothing can be slid out; make room to read on
+        } else if (keepFrom > 0) {
+            if (lines != null)
+                scanLines(keepFrom); // index the newlines before they are slid out of the buffer
+            bufLength -= keepFrom;
+            System.arraycopy(charBuf, keepFrom, charBuf, 0, bufLength);
+            readerPos += keepFrom;
+            bufPos -= keepFrom;
+            if (bufMark >= 0)
+                bufMark -= keepFrom;
+        }
+
+        readInput();
+    }
+
+    /**
+     * Grows the buffer window and reads further input into it, for lookahead that has to scan past the window.
+     * @return true if more input was read; false if the input is exhausted (or is not from a reader)
+     */
+    private boolean bufferMore() {
+        if (readFully || reader == null)
+            return false;
+        if (bufLength == bufSize)
+            growBuffer();
+        int was = bufLength;
+        readInput();
+        return bufLength > was;
+    }
+
+    private void growBuffer() {
+        bufSize *= 2;
+        if (charBuf.length < bufSize) {
+            char[] grown = new char[bufSize];
+            System.arraycopy(charBuf, 0, grown, 0, bufLength);
+            charBuf = grown;
+        }
+    }
+
+    private void readInput() {
+        try {
+            while (bufLength < bufSize) {
+                int read = reader.read(charBuf, bufLength, bufSize - bufLength);
+                if (read == -1) {
+                    readFully = true;
+                    break;
+                }
+                bufLength += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        clip();
+        bufSplitPoint = readFully ? bufLength : Math.min(bufLength, (int) (bufSize * bufSplitRatio));
+    }
+
+    /**
+     * Share the strings read with other documents, through the symbol table.
+     * @param symbols symbol table to consult on a string cache miss; or null to not share
+     */
+    void symbols(SymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    /**
+     * Start indexing the positions of newlines in the input, so that line and column numbers can be found for parse
+     * errors. Must be called before any input is consumed.
+     */
+    void trackLines() {
+        lines = new LineIndex(readerPos);
+    }
+
+    /**
+     * Get the newline index, brought up to the current position.
+     * @return the index; or null if lines are not tracked
+     */
+    LineIndex lines() {
+        if (lines != null)
+            scanLines(bufPos);
+        return lines;
+    }
+
+    private void scanLines(int to) {
+        to = Math.min(to, bufLength); // the position may be past the end, once EOF is read
+        for (int i = Math.max(0, lines.scanned - readerPos); i < to; i++) {
+            if (charBuf[i] == '\n')
+                lines.add(readerPos + i);
+        }
+        lines.scanned = Math.max(lines.scanned, readerPos + to);
+    }
+
+    /**
+     * Limit the input to its first maxChars chars. Input after that is treated as past the end of input.
+     * @param maxChars max chars to read
+     */
+    void maxChars(int maxChars) {
+        Validate.isTrue(maxChars > 0);
+        this.maxChars = maxChars;
+        clip();
+    }
+
+    /**
+     * Check if input was ignored because it was past the max chars limit.
+     * @return true if truncated
+     */
+    boolean isTruncated() {
+        return truncated;
+    }
+
+    private void clip() {
+        if (maxChars > 0 && readerPos + bufLength > maxChars) {
+            bufLength = Math.max(bufPos, maxChars - readerPos);
+            bufSplitPoint = bufLength;
+            readFully = true;
+            truncated = true;
+        }
     }
 
     /**
@@ -29,7 +316,7 @@ public final class CharacterReader {
      * @return current position
      */
     public int pos() {
-        return pos;
+        return readerPos + bufPos;
     }
 
     /**
@@ -37,7 +324,8 @@ public final class CharacterReader {
      * @return true if nothing left to read.
      */
     public boolean isEmpty() {
-        return pos >= length;
+        bufferUp();
+        return bufPos >= bufLength;
     }
 
     /**
@@ -45,36 +333,49 @@ public final class CharacterReader {
      * @return char
      */
     public char current() {
-        return pos >= length ? EOF : input[pos];
+        bufferUp();
+        return bufPos >= bufLength ? EOF : charBuf[bufPos];
     }
 
     char consume() {
-        char val = pos >= length ? EOF : input[pos];
-        pos++;
+        bufferUp();
+        char val = bufPos >= bufLength ? EOF : charBuf[bufPos];
+        bufPos++;
         return val;
     }
 
     void unconsume() {
-        pos--;
+        bufPos--;
     }
 
     /**
      * Moves the current position by one.
      */
     public void advance() {
-        pos++;
+        bufPos++;
     }
 
+    /**
+     * Mark the current position, to rewind to. The input from the mark on is retained in the buffer until {@link
+     * #unmark()}, so a mark must only be held over a short, bounded lookahead.
+     */
     void mark() {
-        mark = pos;
+        bufMark = bufPos;
+    }
+
+    void unmark() {
+        bufMark = -1;
     }
 
     void rewindToMark() {
-        pos = mark;
+        if (bufMark == -1)
+            throw new IllegalStateException("Mark invalid");
+        bufPos = bufMark;
     }
 
     String consumeAsString() {
-        return new String(input, pos++, 1);
+        bufferUp();
+        return new String(charBuf, bufPos++, 1);
     }
 
     /**
@@ -84,9 +385,10 @@ public final class CharacterReader {
      */
     int nextIndexOf(char c) {
         // doesn't handle scanning for surrogates
-        for (int i = pos; i < length; i++) {
-            if (c == input[i])
-                return i - pos;
+        bufferUp();
+        for (int i = bufPos; i < bufLength; i++) {
+            if (c == charBuf[i])
+                return i - bufPos;
         }
         return -1;
     }
@@ -99,17 +401,18 @@ public final class CharacterReader {
      */
     int nextIndexOf(CharSequence seq) {
         // doesn't handle scanning for surrogates
+        bufferUp();
         char startChar = seq.charAt(0);
-        for (int offset = pos; offset < length; offset++) {
+        for (int offset = bufPos; offset < bufLength; offset++) {
             // scan to first instance of startchar:
-            if (startChar != input[offset])
-                while(++offset < length && startChar != input[offset]) { /* empty */ }
+            if (startChar != charBuf[offset])
+                while(++offset < bufLength && startChar != charBuf[offset]) { /* empty */ }
             int i = offset + 1;
             int last = i + seq.length()-1;
-            if (offset < length && last <= length) {
-                for (int j = 1; i < last && seq.charAt(j) == input[i]; i++, j++) { /* empty */ }
+            if (offset < bufLength && last <= bufLength) {
+                for (int j = 1; i < last && seq.charAt(j) == charBuf[i]; i++, j++) { /* empty */ }
                 if (i == last) // found full sequence
-                    return offset - pos;
+                    return offset - bufPos;
             }
         }
         return -1;
@@ -123,8 +426,8 @@ public final class CharacterReader {
     public String consumeTo(char c) {
         int offset = nextIndexOf(c);
         if (offset != -1) {
-            String consumed = cacheString(pos, offset);
-            pos += offset;
+            String consumed = cacheString(bufPos, offset);
+            bufPos += offset;
             return consumed;
         } else {
             return consumeToEnd();
@@ -134,11 +437,17 @@ public final class CharacterReader {
     String consumeTo(String seq) {
         int offset = nextIndexOf(seq);
         if (offset != -1) {
-            String consumed = cacheString(pos, offset);
-            pos += offset;
+            String consumed = cacheString(bufPos, offset);
+            bufPos += offset;
             return consumed;
-        } else {
+        } else if (readFully || bufLength - bufPos < seq.length()) {
             return consumeToEnd();
+        } else {
+            // the sequence may straddle the end of the buffer, so leave (length - 1) chars unread in case they start it
+            int endPos = bufLength - seq.length() + 1;
+            String consumed = cacheString(bufPos, endPos - bufPos);
+            bufPos = endPos;
+            return consumed;
         }
     }
 
@@ -148,9 +457,11 @@ public final class CharacterReader {
      * @return characters read up to the matched delimiter.
      */
     public String consumeToAny(final char... chars) {
-        final int start = pos;
-        final int remaining = length;
-        final char[] val = input;
+        bufferUp();
+        final int start = bufPos;
+        final int remaining = bufLength;
+        final char[] val = charBuf;
+        int pos = start;
 
         OUTER: while (pos < remaining) {
             for (char c : chars) {
@@ -160,142 +471,200 @@ public final class CharacterReader {
             pos++;
         }
 
-        return pos > start ? cacheString(start, pos-start) : "";
+        bufPos = pos;
+        return pos > start ? cacheString(start, pos - start) : "";
     }
 
-    String consumeToAnySorted(final char... chars) {
-        final int start = pos;
-        final int remaining = length;
-        final char[] val = input;
+    /**
+     * Consume to the first char that is a stop in the scan table, or to the end of the buffered input.
+     * @param stops the chars to stop at
+     * @return the chars consumed
+     */
+    String consumeToAny(final ScanTable stops) {
+        bufferUp();
+        final int start = bufPos;
+        final int remaining = bufLength;
+        final char[] val = charBuf;
+        final boolean[] table = stops.stops;
+        final int tableLen = table.length;
+        int pos = start;
 
         while (pos < remaining) {
-            if (Arrays.binarySearch(chars, val[pos]) >= 0)
+            final char c = val[pos];
+            if (c < tableLen && table[c])
                 break;
             pos++;
         }
 
-        return pos > start ? cacheString(start, pos-start) : "";
+        bufPos = pos;
+        return pos > start ? cacheString(start, pos - start) : "";
     }
 
-    String consumeData() {
-        // &, <, null
-        final int start = pos;
-        final int remaining = length;
-        final char[] val = input;
+    /**
+     * Consume raw text (like script, style or title content) up to its next stop char, skipping over any {@code <} that
+     * can not start the end tag or, if {@code stopAtCommentOpen}, a {@code <!--}. So the tokeniser's less than sign
+     * states only see the markup that may change the state, and the text between is read in one bulk scan.
+     * @param stops the chars to stop at; must include {@code <}
+     * @param endTagName the appropriate end tag name (matched case insensitively); or null to stop at every {@code <}
+     * @param stopAtCommentOpen if a {@code <!--} should stop the scan (script data escapes)
+     * @param stopAtLetter if a {@code <} followed by a letter should stop the scan
+     * @return the chars consumed
+     */
+    String consumeRawText(final ScanTable stops, final String endTagName, final boolean stopAtCommentOpen, final boolean stopAtLetter) {
+        bufferUp();
+        final int start = bufPos;
+        final int remaining = bufLength;
+        final char[] val = charBuf;
+        final boolean[] table = stops.stops;
+        final int tableLen = table.length;
+        int pos = start;
 
         while (pos < remaining) {
             final char c = val[pos];
-            if (c == '&'|| c ==  '<' || c ==  TokeniserState.nullChar)
+            if (c < tableLen && table[c] && (c != '<' || rawTextStopsAt(pos, endTagName, stopAtCommentOpen, stopAtLetter)))
                 break;
             pos++;
         }
 
-        return pos > start ? cacheString(start, pos-start) : "";
+        bufPos = pos;
+        return pos > start ? cacheString(start, pos - start) : "";
     }
 
-    String consumeTagName() {
-        // '\t', '\n', '\r', '\f', ' ', '/', '>', nullChar
-        final int start = pos;
-        final int remaining = length;
-        final char[] val = input;
-
-        while (pos < remaining) {
-            final char c = val[pos];
-            if (c == '\t'|| c ==  '\n'|| c ==  '\r'|| c ==  '\f'|| c ==  ' '|| c ==  '/'|| c ==  '>'|| c ==  TokeniserState.nullChar)
-                break;
-            pos++;
+    private boolean rawTextStopsAt(int pos, String endTagName, boolean stopAtCommentOpen, boolean stopAtLetter) {
+        if (endTagName == null)
+            return true;
+        final int nameLen = endTagName.length();
+        if (pos + nameLen + 2 >= bufLength && !readFully)
+            return true; // can't see far enough ahead to tell, so let the tokeniser states handle it
+        if (pos + 1 >= bufLength)
+            return false; // a trailing < is just text
+        final char next = charBuf[pos + 1];
+        if (next == '/') {
+            if (pos + nameLen + 2 > bufLength)
+                return false;
+            for (int i = 0; i < nameLen; i++) {
+                char c = charBuf[pos + 2 + i];
+                char n = endTagName.charAt(i);
+                if (c != n && Character.toLowerCase(c) != Character.toLowerCase(n))
+                    return false;
+            }
+            return true; // an end tag candidate; the end tag name state will check what follows
         }
+        if (stopAtCommentOpen && next == '!')
+            return pos + 3 < bufLength && charBuf[pos + 2] == '-' && charBuf[pos + 3] == '-';
+        return stopAtLetter && ((next >= 'A' && next <= 'Z') || (next >= 'a' && next <= 'z') || Character.isLetter(next));
+    }
+
+    String consumeData() {
+        return consumeToAny(TokeniserState.dataStops);
+    }
 
-        return pos > start ? cacheString(start, pos-start) : "";
+    String consumeTagName() {
+        return consumeToAny(tagNameStops);
     }
 
     String consumeToEnd() {
-        String data = cacheString(pos, length-pos);
-        pos = length;
+        bufferUp();
+        String data = cacheString(bufPos, bufLength - bufPos);
+        bufPos = bufLength;
         return data;
     }
 
     String consumeLetterSequence() {
-        int start = pos;
-        while (pos < length) {
-            char c = input[pos];
+        bufferUp();
+        int start = bufPos;
+        while (bufPos < bufLength) {
+            char c = charBuf[bufPos];
             if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || Character.isLetter(c))
-                pos++;
+                bufPos++;
             else
                 break;
         }
 
-        return cacheString(start, pos - start);
+        return cacheString(start, bufPos - start);
     }
 
-    String consumeLetterThenDigitSequence() {
-        int start = pos;
-        while (pos < length) {
-            char c = input[pos];
-            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || Character.isLetter(c))
-                pos++;
-            else
+    /**
+     * Consume a run of letters then digits, as the name of a named character reference, up to a maximum length. The run
+     * may straddle the end of the buffer window.
+     * @param maxLength the most chars to consume
+     * @return the run
+     */
+    String consumeLetterThenDigitSequence(int maxLength) {
+        bufferUp();
+        int start = bufPos;
+        boolean inLetters = true;
+        while (bufPos - start < maxLength) {
+            if (bufPos == bufLength && !bufferMore()) {
+                if (reader == null && !readFully)
+                    throw underrun; // incremental input: the run may continue in input that hasn't arrived yet
                 break;
-        }
-        while (!isEmpty()) {
-            char c = input[pos];
-            if (c >= '0' && c <= '9')
-                pos++;
-            else
+            }
+            char c = charBuf[bufPos];
+            if (inLetters && ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || Character.isLetter(c))) {
+                bufPos++;
+            } else if (c >= '0' && c <= '9') {
+                inLetters = false;
+                bufPos++;
+            } else {
                 break;
+            }
         }
 
-        return cacheString(start, pos - start);
-    }
-
-    String consumeHexSequence() {
-        int start = pos;
-        while (pos < length) {
-            char c = input[pos];
-            if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f'))
-                pos++;
-            else
-                break;
-        }
-        return cacheString(start, pos - start);
+        return cacheString(start, bufPos - start);
     }
 
-    String consumeDigitSequence() {
-        int start = pos;
-        while (pos < length) {
-            char c = input[pos];
+    /**
+     * Consume a run of decimal or hex digits, as in a numeric character reference, and get its value. The run may be
+     * longer than the buffer window.
+     * @param hex if the digits are hex
+     * @return the value, capped at {@code 0x110000} (past the last code point) if larger; or -1 if there are no digits
+     */
+    int consumeNumber(boolean hex) {
+        int value = -1;
+        while (!isEmpty()) {
+            char c = charBuf[bufPos];
+            int digit;
             if (c >= '0' && c <= '9')
-                pos++;
+                digit = c - '0';
+            else if (hex && c >= 'a' && c <= 'f')
+                digit = c - 'a' + 10;
+            else if (hex && c >= 'A' && c <= 'F')
+                digit = c - 'A' + 10;
             else
                 break;
+            value = Math.min(Math.max(value, 0) * (hex ? 16 : 10) + digit, 0x110000);
+            bufPos++;
         }
-        return cacheString(start, pos - start);
+        return value;
     }
 
     boolean matches(char c) {
-        return !isEmpty() && input[pos] == c;
+        return !isEmpty() && charBuf[bufPos] == c;
 
     }
 
     boolean matches(String seq) {
+        bufferUp();
         int scanLength = seq.length();
-        if (scanLength > length - pos)
+        if (scanLength > bufLength - bufPos)
             return false;
 
         for (int offset = 0; offset < scanLength; offset++)
-            if (seq.charAt(offset) != input[pos+offset])
+            if (seq.charAt(offset) != charBuf[bufPos +offset])
                 return false;
         return true;
     }
 
     boolean matchesIgnoreCase(String seq) {
+        bufferUp();
         int scanLength = seq.length();
-        if (scanLength > length - pos)
+        if (scanLength > bufLength - bufPos)
             return false;
 
         for (int offset = 0; offset < scanLength; offset++) {
             char upScan = Character.toUpperCase(seq.charAt(offset));
-            char upTarget = Character.toUpperCase(input[pos + offset]);
+            char upTarget = Character.toUpperCase(charBuf[bufPos + offset]);
             if (upScan != upTarget)
                 return false;
         }
@@ -306,7 +675,7 @@ public final class CharacterReader {
         if (isEmpty())
             return false;
 
-        char c = input[pos];
+        char c = charBuf[bufPos];
         for (char seek : seq) {
             if (seek == c)
                 return true;
@@ -315,26 +684,26 @@ public final class CharacterReader {
     }
 
     boolean matchesAnySorted(char[] seq) {
-        return !isEmpty() && Arrays.binarySearch(seq, input[pos]) >= 0;
+        return !isEmpty() && Arrays.binarySearch(seq, charBuf[bufPos]) >= 0;
     }
 
     boolean matchesLetter() {
         if (isEmpty())
             return false;
-        char c = input[pos];
+        char c = charBuf[bufPos];
         return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || Character.isLetter(c);
     }
 
     boolean matchesDigit() {
         if (isEmpty())
             return false;
-        char c = input[pos];
+        char c = charBuf[bufPos];
         return (c >= '0' && c <= '9');
     }
 
     boolean matchConsume(String seq) {
         if (matches(seq)) {
-            pos += seq.length();
+            bufPos += seq.length();
             return true;
         } else {
             return false;
@@ -343,7 +712,7 @@ public final class CharacterReader {
 
     boolean matchConsumeIgnoreCase(String seq) {
         if (matchesIgnoreCase(seq)) {
-            pos += seq.length();
+            bufPos += seq.length();
             return true;
         } else {
             return false;
@@ -354,12 +723,18 @@ public final class CharacterReader {
         // used to check presence of </title>, </style>. only finds consistent case.
         String loScan = seq.toLowerCase(Locale.ENGLISH);
         String hiScan = seq.toUpperCase(Locale.ENGLISH);
-        return (nextIndexOf(loScan) > -1) || (nextIndexOf(hiScan) > -1);
+        boolean found;
+        do {
+            found = (nextIndexOf(loScan) > -1) || (nextIndexOf(hiScan) > -1);
+        } while (!found && bufferMore()); // reading from a reader: the end tag may be past the window
+        if (!found && reader == null && !readFully)
+            throw underrun; // incremental input: may be in input that hasn't arrived yet
+        return found;
     }
 
     @Override
     public String toString() {
-        return new String(input, pos, length - pos);
+        return new String(charBuf, bufPos, bufLength - bufPos);
     }
 
     /**
@@ -370,44 +745,52 @@ public final class CharacterReader {
      * some more duplicates.
      */
     private String cacheString(final int start, final int count) {
-        final char[] val = input;
+        final char[] val = charBuf;
         final String[] cache = stringCache;
 
         // limit (no cache):
-        if (count > maxCacheLen)
+        if (count > maxCacheLen) {
+            if (symbols != null && count <= SymbolTable.maxSymbolLength)
+                return symbols.get(val, start, count, hash(val, start, count));
             return new String(val, start, count);
+        }
 
         // calculate hash:
-        int hash = 0;
-        int offset = start;
-        for (int i = 0; i < count; i++) {
-            hash = 31 * hash + val[offset++];
-        }
+        int hash = hash(val, start, count);
 
         // get from cache
         final int index = hash & cache.length - 1;
         String cached = cache[index];
 
         if (cached == null) { // miss, add
-            cached = new String(val, start, count);
+            cached = symbols != null ? symbols.get(val, start, count, hash) : new String(val, start, count);
             cache[index] = cached;
         } else { // hashcode hit, check equality
             if (rangeEquals(start, count, cached)) { // hit
                 return cached;
             } else { // hashcode conflict
-                cached = new String(val, start, count);
+                cached = symbols != null ? symbols.get(val, start, count, hash) : new String(val, start, count);
                 cache[index] = cached; // update the cache, as recently used strings are more likely to show up again
             }
         }
         return cached;
     }
 
+    private static int hash(final char[] val, final int start, final int count) {
+        int hash = 0;
+        int offset = start;
+        for (int i = 0; i < count; i++) {
+            hash = 31 * hash + val[offset++];
+        }
+        return hash;
+    }
+
     /**
      * Check if the value of the provided range equals the string.
      */
     boolean rangeEquals(final int start, int count, final String cached) {
         if (count == cached.length()) {
-            char one[] = input;
+            char one[] = charBuf;
             int i = start;
             int j = 0;
             while (count-- != 0) {
@@ -418,4 +801,18 @@ public final class CharacterReader {
         }
         return false;
     }
+
+    /**
+     * Thrown when reading incrementally appended input, and the input needed has not arrived yet.
+     */
+    static final class InputUnderrun extends RuntimeException {
+        private InputUnderrun() {
+            super("Input underrun");
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this; // reused and expected; don't pay for a stack trace
+        }
+    }
 }
@@ -0,0 +1,296 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.DataUtil;
+import org.jsoup.nodes.Entities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Decodes character references: the named references, matched longest first with a trie of the entity names, and the
+ * numeric references. Used by the tokeniser, and to unescape strings in one pass without a tokeniser.
+ */
+final class CharacterReferences {
+    private static final int empty = -1;
+    private static final int codepointRadix = 36;
+    private static final char[] codeDelims = {',', ';'};
+    static final int maxNameLength = NameTrie.names.maxLength; // the longest entity name
+
+    private CharacterReferences() {
+    }
+
+    /**
+     * Unescape the input string, decoding its character references in one pass. If the input has no references, the
+     * input itself is returned.
+     * @param string to un-HTML-escape
+     * @param inAttribute if decoding as in an attribute value: a named reference without a trailing ';' is not decoded
+     * if it is followed by a letter, digit, '=', '-' or '_'
+     * @return unescaped string
+     */
+    static String unescape(String string, boolean inAttribute) {
+        int amp = string.indexOf('&');
+        if (amp == -1)
+            return string;
+
+        final int length = string.length();
+        final StringBuilder accum = new StringBuilder(length);
+        final int[] codepoints = new int[2];
+        int pos = 0;
+        while (amp != -1) {
+            accum.append(string, pos, amp);
+            pos = amp + 1;
+            int end = decodeReference(string, pos, inAttribute, codepoints);
+            if (end == -1) {
+                accum.append('&');
+            } else {
+                accum.appendCodePoint(codepoints[0]);
+                if (codepoints[1] != empty)
+                    accum.appendCodePoint(codepoints[1]);
+                pos = end;
+            }
+            amp = string.indexOf('&', pos);
+        }
+        accum.append(string, pos, length);
+        return accum.toString();
+    }
+
+    /**
+     * Decode the character reference that starts at the position (after its {@code &}), with the same rules as the
+     * tokeniser.
+     * @return the position after the reference, or -1 if there is no valid reference here
+     */
+    private static int decodeReference(String s, int start, boolean inAttribute, int[] codepoints) {
+        final int length = s.length();
+        if (start >= length)
+            return -1;
+        char c = s.charAt(start);
+        if (c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == ' ' || c == '<' || c == '&')
+            return -1;
+
+        int pos = start;
+        if (c == '#') { // numbered
+            pos++;
+            boolean hex = pos < length && (s.charAt(pos) == 'x' || s.charAt(pos) == 'X');
+            if (hex)
+                pos++;
+            final int digitsStart = pos;
+            int value = 0;
+            boolean valid = true;
+            while (pos < length) {
+                final char d = s.charAt(pos);
+                final int digit;
+                if (d >= '0' && d <= '9')
+                    digit = d - '0';
+                else if (hex && d >= 'a' && d <= 'f')
+                    digit = d - 'a' + 10;
+                else if (hex && d >= 'A' && d <= 'F')
+                    digit = d - 'A' + 10;
+                else
+                    break;
+                value = valid ? value * (hex ? 16 : 10) + digit : value;
+                if (value > 0x10FFFF)
+                    valid = false;
+                pos++;
+            }
+            if (pos == digitsStart)
+                return -1;
+            if (pos < length && s.charAt(pos) == ';')
+                pos++;
+            codepoints[0] = valid && (value < 0xD800 || value > 0xDFFF) ? value : 0xFFFD;
+            codepoints[1] = empty;
+            return pos;
+        }
+
+        // named
+        while (pos < length && isLetter(s.charAt(pos)))
+            pos++;
+        while (pos < length && isDigit(s.charAt(pos)))
+            pos++;
+        boolean semicolon = pos < length && s.charAt(pos) == ';';
+        int matched = matchNamed(s, start, pos, semicolon, codepoints);
+        if (matched == 0)
+            return -1;
+        pos = start + matched;
+        if (inAttribute && pos < length) {
+            char next = s.charAt(pos);
+            if (isLetter(next) || isDigit(next) || next == '=' || next == '-' || next == '_')
+                return -1;
+        }
+        if (pos < length && s.charAt(pos) == ';')
+            pos++;
+        return pos;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || Character.isLetter(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Find the longest named character reference that the input starts with, in one pass. As in the HTML spec, only
+     * the base (legacy) entities may be used without a closing {@code ;}; so a longer name that is only in the extended
+     * set matches only when it is the full run and is followed by a {@code ;}. E.g. {@literal &}notin; is &notin;, and
+     * {@literal &}notit; is &not; followed by "it;".
+     *
+     * @param input input holding the run of letters then digits that followed an {@code &}
+     * @param start start of the run in the input
+     * @param end end of the run in the input
+     * @param followedBySemicolon if the run is followed by a {@code ;}
+     * @param codepoints holder, at least two long, for the code points of the matched reference. The second is set to
+     * -1 if the reference is a single code point.
+     * @return the length of the matched name, or 0 if none matched
+     */
+    static int matchNamed(CharSequence input, int start, int end, boolean followedBySemicolon, int[] codepoints) {
+        return NameTrie.names.match(input, start, end, followedBySemicolon, codepoints);
+    }
+
+    /**
+     * A trie over the named references, for longest match decoding in one pass. Built on first use, from the entity
+     * tables of {@link Entities}.
+     */
+    private static final class NameTrie {
+        private static final int none = -1;
+        static final NameTrie names = new NameTrie();
+
+        // nodes, as parallel arrays. node 0 is the root; its children are also indexed by char in rootChildren
+        private char[] label = new char[1024 * 8];
+        private int[] firstChild = new int[label.length];
+        private int[] nextSibling = new int[label.length];
+        private int[] codepoint1 = new int[label.length]; // empty if no reference ends at this node
+        private int[] codepoint2 = new int[label.length];
+        private boolean[] isBase = new boolean[label.length]; // may be used without a closing ;
+        private final int[] rootChildren = new int[128];
+        private int size = 1;
+        private int maxLength = 0;
+
+        private NameTrie() {
+            Arrays.fill(rootChildren, none);
+            firstChild[0] = none;
+            nextSibling[0] = none;
+            codepoint1[0] = empty;
+            load("entities-full.properties", false);
+            load("entities-base.properties", true); // marks the base names, which are all also in the full set
+        }
+
+        private void load(String file, boolean baseNames) {
+            InputStream stream = Entities.class.getResourceAsStream(file);
+            if (stream == null)
+                throw new IllegalStateException("Could not read resource " + file + ". Make sure you copy resources for " + Entities.class.getCanonicalName());
+            try {
+                ByteBuffer bytes = DataUtil.readToByteBuffer(stream, 0);
+                CharacterReader reader = new CharacterReader(Charset.forName("ascii").decode(bytes).toString());
+                while (!reader.isEmpty()) {
+                    // NotNestedLessLess=10913,824;1887
+                    final String name = reader.consumeTo('=');
+                    reader.advance();
+                    final int cp1 = Integer.parseInt(reader.consumeToAny(codeDelims), codepointRadix);
+                    int cp2 = empty;
+                    if (reader.current() == ',') {
+                        reader.advance();
+                        cp2 = Integer.parseInt(reader.consumeTo(';'), codepointRadix);
+                    }
+                    reader.consumeTo('\n');
+                    reader.advance();
+                    add(name, cp1, cp2, baseNames);
+                }
+            } catch (IOException err) {
+                throw new IllegalStateException("Error reading resource " + file);
+            }
+        }
+
+        private void add(String name, int codepoint, int secondCodepoint, boolean baseName) {
+            int node = 0;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                int child = child(node, c);
+                if (child == none) {
+                    child = newNode(c);
+                    // append, so siblings stay in the sorted order the names are loaded in
+                    if (firstChild[node] == none) {
+                        firstChild[node] = child;
+                    } else {
+                        int last = firstChild[node];
+                        while (nextSibling[last] != none)
+                            last = nextSibling[last];
+                        nextSibling[last] = child;
+                    }
+                    if (node == 0 && c < rootChildren.length)
+                        rootChildren[c] = child;
+                }
+                node = child;
+            }
+            codepoint1[node] = codepoint;
+            codepoint2[node] = secondCodepoint;
+            maxLength = Math.max(maxLength, name.length());
+            if (baseName)
+                isBase[node] = true;
+        }
+
+        private int newNode(char c) {
+            if (size == label.length) {
+                int capacity = size * 2;
+                label = copy(label, capacity);
+                firstChild = copy(firstChild, capacity);
+                nextSibling = copy(nextSibling, capacity);
+                codepoint1 = copy(codepoint1, capacity);
+                codepoint2 = copy(codepoint2, capacity);
+                boolean[] grown = new boolean[capacity];
+                System.arraycopy(isBase, 0, grown, 0, size);
+                isBase = grown;
+            }
+            int node = size++;
+            label[node] = c;
+            firstChild[node] = none;
+            nextSibling[node] = none;
+            codepoint1[node] = empty;
+            return node;
+        }
+
+        private int child(int node, char c) {
+            if (node == 0)
+                return c < rootChildren.length ? rootChildren[c] : none;
+            int child = firstChild[node];
+            while (child != none && label[child] != c)
+                child = nextSibling[child];
+            return child;
+        }
+
+        int match(CharSequence input, int start, int end, boolean followedBySemicolon, int[] codepoints) {
+            int node = 0;
+            int matchedNode = none;
+            int matchedLength = 0;
+            for (int i = start; i < end; i++) {
+                node = child(node, input.charAt(i));
+                if (node == none)
+                    break;
+                if (codepoint1[node] != empty && (isBase[node] || (i == end - 1 && followedBySemicolon))) {
+                    matchedNode = node;
+                    matchedLength = i - start + 1;
+                }
+            }
+            if (matchedNode == none)
+                return 0;
+            codepoints[0] = codepoint1[matchedNode];
+            codepoints[1] = codepoint2[matchedNode];
+            return matchedLength;
+        }
+
+        private static char[] copy(char[] array, int capacity) {
+            char[] grown = new char[capacity];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            return grown;
+        }
+
+        private static int[] copy(int[] array, int capacity) {
+            int[] grown = new int[capacity];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            return grown;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Element;
+
+/**
+ * Receives elements that match a query, as they are completed during a streaming extraction parse. See
+ * {@link Parser#parseInput(java.io.Reader, String, String, ElementHandler)}.
+ */
+public interface ElementHandler {
+    /**
+     * An element matching the query has been completed (its end tag, or implied end, has been processed). After this
+     * method returns, the element is removed from the document.
+     * @param element the matched element, with its complete subtree
+     */
+    void handle(Element element);
+}
@@ -0,0 +1,175 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The stack of open elements, indexed so that the tree builder's scope checks and element lookups don't walk it. For
+ * each tag name, the index holds the topmost open element with that name, and for each entry the next lower entry with
+ * the same name; and for each kind of scope, the topmost element that bounds it. Pushes and pops update the index in
+ * constant time. Changes below the top of the stack (which are rare, e.g. in the adoption agency) rebuild it.
+ */
+class ElementStack extends ArrayList<Element> {
+    static final int DefaultScope = 0;
+    static final int ListScope = 1;
+    static final int ButtonScope = 2;
+    static final int TableScope = 3;
+    static final int SelectScope = 4;
+    static final int SpecialScope = 5; // the special elements, which end the in body any other end tag search
+    private static final int scopeCount = 6;
+
+    private final Map<String, int[]> names = new HashMap<String, int[]>(); // tag name -> {index of topmost, or -1}
+    private int[][] nameTops = new int[32][]; // per entry, the holder of its name's topmost index
+    private int[] lowerSame = new int[32]; // per entry, the index of the next lower entry with the same name, or -1
+    private int[][] boundaries = new int[scopeCount][32]; // per scope and entry, the index of the topmost boundary at or below
+
+    ElementStack() {
+        super(32);
+    }
+
+    @Override
+    public boolean add(Element el) {
+        super.add(el);
+        index(size() - 1);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Element el) {
+        super.add(index, el);
+        reindex();
+    }
+
+    @Override
+    public Element set(int index, Element el) {
+        Element out = super.set(index, el);
+        reindex();
+        return out;
+    }
+
+    @Override
+    public Element remove(int index) {
+        Element out = super.remove(index);
+        if (index == size())
+            nameTops[index][0] = lowerSame[index]; // popped
+        else
+            reindex();
+        return out;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index == -1)
+            return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        names.clear();
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return lastIndexOf(o); // elements are only open once
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!(o instanceof Element))
+            return -1;
+        for (int pos = lastIndexOfName(((Element) o).nodeName()); pos != -1; pos = lowerSame[pos]) {
+            if (get(pos) == o)
+                return pos;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return lastIndexOf(o) != -1;
+    }
+
+    /**
+     * Get the index of the topmost open element with this name.
+     * @param name the element's node name
+     * @return the index, or -1 if none is open
+     */
+    int lastIndexOfName(String name) {
+        int[] top = names.get(name);
+        return top != null ? top[0] : -1;
+    }
+
+    /**
+     * Get the index of the topmost element that bounds a scope.
+     * @param scope the scope, e.g. {@link #DefaultScope}
+     * @return the index, or -1 if no open element bounds it
+     */
+    int topBoundary(int scope) {
+        int size = size();
+        return size > 0 ? boundaries[scope][size - 1] : -1;
+    }
+
+    private void reindex() {
+        for (int[] top : names.values())
+            top[0] = -1;
+        for (int i = 0; i < size(); i++)
+            index(i);
+    }
+
+    private void index(int i) {
+        if (i >= lowerSame.length)
+            grow();
+        Element el = get(i);
+        int[] top = names.get(el.nodeName());
+        if (top == null) {
+            top = new int[]{-1};
+            names.put(el.nodeName(), top);
+        }
+        nameTops[i] = top;
+        lowerSame[i] = top[0];
+        top[0] = i;
+
+        Tag tag = el.tag();
+        for (int scope = 0; scope < scopeCount; scope++)
+            boundaries[scope][i] = isBoundary(scope, tag) ? i : i > 0 ? boundaries[scope][i - 1] : -1;
+    }
+
+    private static boolean isBoundary(int scope, Tag tag) {
+        switch (scope) {
+            case DefaultScope:
+                return tag.inTreeSet(Tag.ScopeBoundary);
+            case ListScope:
+                return tag.inTreeSet(Tag.ScopeBoundary | Tag.ListScopeBoundary);
+            case ButtonScope:
+                return tag.inTreeSet(Tag.ScopeBoundary | Tag.ButtonScopeBoundary);
+            case TableScope:
+                return tag.inTreeSet(Tag.TableScopeBoundary);
+            case SelectScope:
+                return !tag.inTreeSet(Tag.SelectScopeTransparent); // all elements except
+            default:
+                return tag.inTreeSet(Tag.Special);
+        }
+    }
+
+    private void grow() {
+        int capacity = lowerSame.length * 2;
+        int[][] nameTops = new int[capacity][];
+        System.arraycopy(this.nameTops, 0, nameTops, 0, this.nameTops.length);
+        this.nameTops = nameTops;
+        int[] lowerSame = new int[capacity];
+        System.arraycopy(this.lowerSame, 0, lowerSame, 0, this.lowerSame.length);
+        this.lowerSame = lowerSame;
+        for (int scope = 0; scope < scopeCount; scope++) {
+            int[] bounds = new int[capacity];
+            System.arraycopy(boundaries[scope], 0, bounds, 0, boundaries[scope].length);
+            boundaries[scope] = bounds;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+/**
+ * The stack of open elements used when parsing to a {@link ParseHandler}. Elements are started when pushed onto the
+ * stack and ended when removed, and are then detached from the tree, so that the document isn't retained. When an
+ * element is added, removed or replaced below the top of the stack, the elements above it are ended and then
+ * started again, so that the events stay well nested.
+ */
+final class EventStack extends ElementStack {
+    private final ParseHandler handler;
+
+    EventStack(ParseHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public boolean add(Element el) {
+        super.add(el);
+        start(el);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Element el) {
+        endDownTo(index);
+        super.add(index, el);
+        startFrom(index);
+    }
+
+    @Override
+    public Element set(int index, Element el) {
+        endDownTo(index);
+        Element out = super.set(index, el);
+        detach(out);
+        startFrom(index);
+        return out;
+    }
+
+    @Override
+    public Element remove(int index) {
+        endDownTo(index);
+        Element out = super.remove(index);
+        detach(out);
+        startFrom(index);
+        return out;
+    }
+
+    private void endDownTo(int index) {
+        for (int i = size() - 1; i >= index; i--)
+            end(get(i));
+    }
+
+    private void startFrom(int index) {
+        for (int i = index; i < size(); i++)
+            start(get(i));
+    }
+
+    private void start(Element el) {
+        if (!(el instanceof Document)) // the xml tree builder keeps the document on the stack
+            handler.startElement(el.tagName(), el.attributes());
+    }
+
+    private void end(Element el) {
+        if (!(el instanceof Document))
+            handler.endElement(el.tagName());
+    }
+
+    private static void detach(Element el) {
+        if (el.parent() != null)
+            el.remove();
+    }
+}
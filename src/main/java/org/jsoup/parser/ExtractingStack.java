@@ -0,0 +1,29 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Element;
+
+/**
+ * The stack of open elements used in a streaming extraction parse. When an element is removed (or replaced) from the
+ * stack it is complete, so is passed to the tree builder to check against the extraction query.
+ */
+final class ExtractingStack extends ElementStack {
+    private final TreeBuilder treeBuilder;
+
+    ExtractingStack(TreeBuilder treeBuilder) {
+        this.treeBuilder = treeBuilder;
+    }
+
+    @Override
+    public Element set(int index, Element el) {
+        Element out = super.set(index, el);
+        treeBuilder.elementClosed(out);
+        return out;
+    }
+
+    @Override
+    public Element remove(int index) {
+        Element out = super.remove(index);
+        treeBuilder.elementClosed(out);
+        return out;
+    }
+}
@@ -14,12 +14,12 @@ import java.util.List;
 public class HtmlTreeBuilder extends TreeBuilder {
     // tag searches
     public static final String[] TagsSearchInScope = new String[]{"applet", "caption", "html", "table", "td", "th", "marquee", "object"};
-    private static final String[] TagSearchList = new String[]{"ol", "ul"};
-    private static final String[] TagSearchButton = new String[]{"button"};
-    private static final String[] TagSearchTableScope = new String[]{"html", "table"};
-    private static final String[] TagSearchSelectScope = new String[]{"optgroup", "option"};
-    private static final String[] TagSearchEndTags = new String[]{"dd", "dt", "li", "option", "optgroup", "p", "rp", "rt"};
-    private static final String[] TagSearchSpecial = new String[]{"address", "applet", "area", "article", "aside", "base", "basefont", "bgsound",
+    static final String[] TagSearchList = new String[]{"ol", "ul"};
+    static final String[] TagSearchButton = new String[]{"button"};
+    static final String[] TagSearchTableScope = new String[]{"html", "table"};
+    static final String[] TagSearchSelectScope = new String[]{"optgroup", "option"};
+    static final String[] TagSearchEndTags = new String[]{"dd", "dt", "li", "option", "optgroup", "p", "rp", "rt"};
+    static final String[] TagSearchSpecial = new String[]{"address", "applet", "area", "article", "aside", "base", "basefont", "bgsound",
             "blockquote", "body", "br", "button", "caption", "center", "col", "colgroup", "command", "dd",
             "details", "dir", "div", "dl", "dt", "embed", "fieldset", "figcaption", "figure", "footer", "form",
             "frame", "frameset", "h1", "h2", "h3", "h4", "h5", "h6", "head", "header", "hgroup", "hr", "html",
@@ -27,6 +27,20 @@ public class HtmlTreeBuilder extends TreeBuilder {
             "noembed", "noframes", "noscript", "object", "ol", "p", "param", "plaintext", "pre", "script",
             "section", "select", "style", "summary", "table", "tbody", "td", "textarea", "tfoot", "th", "thead",
             "title", "tr", "ul", "wbr", "xmp"};
+    // in body start and end tag handling, by set, for the trusted well-formed fast path. See processWellFormed
+    static final String[] TagsInBodyFormatting = new String[]{"a", "b", "big", "code", "em", "font", "i", "nobr", "s", "small",
+            "strike", "strong", "tt", "u"};
+    static final String[] TagsInBodyPClosers = new String[]{"address", "article", "aside", "blockquote", "center", "details",
+            "dir", "div", "dl", "fieldset", "figcaption", "figure", "footer", "header", "hgroup", "menu", "nav", "ol", "p",
+            "section", "summary", "ul"};
+    static final String[] TagsInBodyVoidFormatting = new String[]{"area", "br", "embed", "img", "keygen", "wbr"};
+    static final String[] TagsInBodyStartSteps = new String[]{"a", "applet", "base", "basefont", "bgsound", "body", "button",
+            "caption", "col", "colgroup", "command", "dd", "dt", "form", "frame", "frameset", "h1", "h2", "h3", "h4", "h5", "h6",
+            "head", "hr", "html", "iframe", "image", "input", "isindex", "li", "link", "listing", "marquee", "math", "meta",
+            "nobr", "noembed", "noframes", "object", "optgroup", "option", "param", "plaintext", "pre", "rp", "rt", "script",
+            "select", "source", "style", "svg", "table", "tbody", "td", "textarea", "tfoot", "th", "thead", "title", "tr",
+            "track", "xmp"};
+    static final String[] TagsInBodyEndSteps = new String[]{"applet", "body", "br", "form", "html", "marquee", "object"};
 
     private HtmlTreeBuilderState state; // the current state
     private HtmlTreeBuilderState originalState; // original / marked state
@@ -42,6 +56,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
     private boolean framesetOk = true; // if ok to go into frameset
     private boolean fosterInserts = false; // if next inserts should be fostered
     private boolean fragmentParsing = false; // if parsing a fragment of html
+    private boolean wellFormed = false; // if trusting the input to be well-formed, until it is found not to be
 
     HtmlTreeBuilder() {}
 
@@ -50,16 +65,36 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     @Override
-    Document parse(String input, String baseUri, ParseErrorList errors, ParseSettings settings) {
+    protected void initialiseParse(CharacterReader input, String baseUri, ParseErrorList errors, ParseSettings settings) {
+        super.initialiseParse(input, baseUri, errors, settings);
+        // reset state from any previous parse by this tree builder
         state = HtmlTreeBuilderState.Initial;
+        originalState = null;
         baseUriSetFromDoc = false;
-        return super.parse(input, baseUri, errors, settings);
+        headElement = null;
+        formElement = null;
+        contextElement = null;
+        formattingElements.clear();
+        pendingTableCharacters.clear();
+        framesetOk = true;
+        fosterInserts = false;
+        fragmentParsing = false;
+        wellFormed = trustWellFormed && !settings.preserveTagCase(); // the fast path classifies tags by their lower case names
+    }
+
+    @Override
+    void release() {
+        super.release();
+        headElement = null;
+        formElement = null;
+        contextElement = null;
+        formattingElements.clear();
+        pendingTableCharacters.clear();
     }
 
     List<Node> parseFragment(String inputFragment, Element context, String baseUri, ParseErrorList errors, ParseSettings settings) {
         // context may be null
-        state = HtmlTreeBuilderState.Initial;
-        initialiseParse(inputFragment, baseUri, errors, settings);
+        initialiseParse(new CharacterReader(inputFragment, reader), baseUri, errors, settings);
         contextElement = context;
         fragmentParsing = true;
         Element root = null;
@@ -110,9 +145,62 @@ public class HtmlTreeBuilder extends TreeBuilder {
     @Override
     protected boolean process(Token token) {
         currentToken = token;
+        if (wellFormed && state == HtmlTreeBuilderState.InBody && processWellFormed(token))
+            return true;
         return this.state.process(token, this);
     }
 
+    /**
+     * Process start and end tags in body without the full set of checks, when the input is trusted to be well-formed:
+     * each element explicitly closed, in order. Only the tags whose in body steps reduce to a plain insert or pop are
+     * taken here; all others (and void elements, raw text elements, etc) go through the full algorithm. An end tag that
+     * does not close the current element, or any tree builder error, shows the input is malformed, and the full
+     * algorithm is used for the rest of the parse.
+     * @return true if processed; false if the token should go through the full algorithm.
+     */
+    private boolean processWellFormed(Token token) {
+        if (token.type == Token.TokenType.StartTag) {
+            Token.StartTag startTag = token.asStartTag();
+            Tag tag = Tag.valueOf(startTag.name(), settings);
+            if (tag.inTreeSet(Tag.BodyStartSteps))
+                return false;
+            if (tag.inTreeSet(Tag.BodyVoidFormatting)) {
+                reconstructFormattingElements();
+                insertEmpty(startTag, tag);
+                framesetOk = false;
+            } else if (startTag.isSelfClosing()) {
+                return false;
+            } else if (tag.inTreeSet(Tag.BodyPCloser)) {
+                if (inButtonScope("p"))
+                    return false; // implicitly closes the p
+                insert(startTag, tag);
+            } else {
+                reconstructFormattingElements();
+                Element el = insert(startTag, tag);
+                if (tag.inTreeSet(Tag.BodyFormatting))
+                    pushActiveFormattingElements(el);
+            }
+            return true;
+        } else if (token.type == Token.TokenType.EndTag) {
+            Element el = currentElement();
+            if (!el.nodeName().equals(token.asEndTag().normalName())) {
+                wellFormed = false;
+                return false;
+            }
+            Tag tag = el.tag();
+            if (tag.inTreeSet(Tag.BodyEndSteps))
+                return false;
+            if (tag.inTreeSet(Tag.BodyFormatting)) {
+                if (lastFormattingElement() != el)
+                    return false; // let the adoption agency sort it out
+                removeLastFormattingElement();
+            }
+            pop();
+            return true;
+        }
+        return false;
+    }
+
     boolean process(Token token, HtmlTreeBuilderState state) {
         currentToken = token;
         return state.process(token, this);
@@ -120,6 +208,8 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
     void transition(HtmlTreeBuilderState state) {
         this.state = state;
+        if (state == HtmlTreeBuilderState.AfterHead && stopAfterHead)
+            stopped = true; // the head is complete
     }
 
     HtmlTreeBuilderState state() {
@@ -146,19 +236,17 @@ public class HtmlTreeBuilder extends TreeBuilder {
         return doc;
     }
 
-    String getBaseUri() {
-        return baseUri;
-    }
-
-    void maybeSetBaseUri(Element base) {
+    void maybeSetBaseUri(Element base, String baseHref) {
         if (baseUriSetFromDoc) // only listen to the first <base href> in parse
             return;
 
-        String href = base.absUrl("href");
+        String href = StringUtil.resolve(base.baseUri(), baseHref);
         if (href.length() != 0) { // ignore <base target> etc
             baseUri = href;
             baseUriSetFromDoc = true;
-            doc.setBaseUri(href); // set on the doc so doc.createElement(Tag) will get updated base, and to update all descendants
+            doc.setBaseUri(href); // held once on the doc, which all nodes resolve it from
+            if (fragmentParsing && stack.size() > 0)
+                stack.get(0).setBaseUri(href); // the fragment root holds the base of its nodes
         }
     }
 
@@ -167,28 +255,35 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     void error(HtmlTreeBuilderState state) {
+        wellFormed = false;
         if (errors.canAddError())
-            errors.add(new ParseError(reader.pos(), "Unexpected token [%s] when in state [%s]", currentToken.tokenType(), state));
+            errors.add(ParseError.Code.UnexpectedToken, reader, currentToken.type, state);
     }
 
     Element insert(Token.StartTag startTag) {
+        return insert(startTag, Tag.valueOf(startTag.name(), settings));
+    }
+
+    private Element insert(Token.StartTag startTag, Tag tag) {
         // handle empty unknown tags
         // when the spec expects an empty tag, will directly hit insertEmpty, so won't generate this fake end tag.
         if (startTag.isSelfClosing()) {
-            Element el = insertEmpty(startTag);
+            Element el = insertEmptyNode(startTag, tag);
+            if (handler != null)
+                insertNode(el); // will be detached when popped
             stack.add(el);
             tokeniser.transition(TokeniserState.Data); // handles <script />, otherwise needs breakout steps from script data
             tokeniser.emit(emptyEnd.reset().name(el.tagName()));  // ensure we get out of whatever state we are in. emitted for yielded processing
             return el;
         }
         
-        Element el = new Element(Tag.valueOf(startTag.name(), settings), baseUri, settings.normalizeAttributes(startTag.attributes));
+        Element el = new Element(tag, "", settings.normalizeAttributes(retainedAttributes(startTag)));
         insert(el);
         return el;
     }
 
     Element insertStartTag(String startTagName) {
-        Element el = new Element(Tag.valueOf(startTagName, settings), baseUri);
+        Element el = new Element(Tag.valueOf(startTagName, settings), "");
         insert(el);
         return el;
     }
@@ -199,9 +294,24 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     Element insertEmpty(Token.StartTag startTag) {
-        Tag tag = Tag.valueOf(startTag.name(), settings);
-        Element el = new Element(tag, baseUri, startTag.attributes);
-        insertNode(el);
+        return insertEmpty(startTag, Tag.valueOf(startTag.name(), settings));
+    }
+
+    private Element insertEmpty(Token.StartTag startTag, Tag tag) {
+        Element el = insertEmptyNode(startTag, tag);
+        if (handler != null) {
+            handler.startElement(el.tagName(), el.attributes());
+            handler.endElement(el.tagName());
+        } else if (tracksClosedElements()) {
+            elementClosed(el);
+        }
+        return el;
+    }
+
+    private Element insertEmptyNode(Token.StartTag startTag, Tag tag) {
+        Element el = new Element(tag, "", retainedAttributes(startTag));
+        if (handler == null)
+            insertNode(el);
         if (startTag.isSelfClosing()) {
             if (tag.isKnownTag()) {
                 if (tag.isSelfClosing()) tokeniser.acknowledgeSelfClosingFlag(); // if not acked, promulagates error
@@ -216,28 +326,62 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
     FormElement insertForm(Token.StartTag startTag, boolean onStack) {
         Tag tag = Tag.valueOf(startTag.name(), settings);
-        FormElement el = new FormElement(tag, baseUri, startTag.attributes);
+        FormElement el = new FormElement(tag, "", retainedAttributes(startTag));
         setFormElement(el);
-        insertNode(el);
-        if (onStack)
+        if (handler == null || onStack)
+            insertNode(el);
+        if (onStack) {
             stack.add(el);
+        } else if (handler != null) {
+            handler.startElement(el.tagName(), el.attributes());
+            handler.endElement(el.tagName());
+        } else if (tracksClosedElements()) {
+            elementClosed(el);
+        }
         return el;
     }
 
     void insert(Token.Comment commentToken) {
-        Comment comment = new Comment(commentToken.getData(), baseUri);
+        if (handler != null) {
+            handler.comment(commentToken.getData());
+            return;
+        }
+        if (retention != null && !retention.retainComment(currentElement()))
+            return;
+        Comment comment = new Comment(commentToken.getData());
         insertNode(comment);
     }
 
     void insert(Token.Character characterToken) {
+        if (handler != null) {
+            handler.text(characterToken.getData());
+            return;
+        }
         Node node;
         // characters in script and style go in as datanodes, not text nodes
-        String tagName = currentElement().tagName();
-        if (tagName.equals("script") || tagName.equals("style"))
-            node = new DataNode(characterToken.getData(), baseUri);
-        else
-            node = new TextNode(characterToken.getData(), baseUri);
-        currentElement().appendChild(node); // doesn't use insertNode, because we don't foster these; and will always have a stack.
+        Element el = currentElement();
+        String tagName = el.tagName();
+        if (tagName.equals("script") || tagName.equals("style")) {
+            if (retention != null && !retention.retainData(el))
+                return;
+            node = new DataNode(characterToken.getData());
+        } else {
+            if (retention != null && !retention.retainText(el, characterToken.getData()))
+                return;
+            node = new TextNode(characterToken.getData());
+        }
+        el.appendChild(node); // doesn't use insertNode, because we don't foster these; and will always have a stack.
+    }
+
+    void insert(Token.Doctype d) {
+        if (handler != null) {
+            handler.doctype(settings.normalizeTag(d.getName()), d.getPublicIdentifier(), d.getSystemIdentifier());
+            return;
+        }
+        DocumentType doctype = new DocumentType(
+            settings.normalizeTag(d.getName()), d.getPublicIdentifier(), d.getSystemIdentifier());
+        doctype.setPubSysKey(d.getPubSysKey());
+        doc.appendChild(doctype);
     }
 
     private void insertNode(Node node) {
@@ -250,7 +394,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
             currentElement().appendChild(node);
 
         // connect form controls to their form element
-        if (node instanceof Element && ((Element) node).tag().isFormListed()) {
+        if (handler == null && node instanceof Element && ((Element) node).tag().isFormListed()) {
             if (formElement != null)
                 formElement.addElement((Element) node);
         }
@@ -270,7 +414,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     boolean onStack(Element el) {
-        return isElementInQueue(stack, el);
+        return stack.contains(el); // indexed by name, so does not walk the stack
     }
 
     private boolean isElementInQueue(ArrayList<Element> queue, Element element) {
@@ -284,24 +428,16 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     Element getFromStack(String elName) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element next = stack.get(pos);
-            if (next.nodeName().equals(elName)) {
-                return next;
-            }
-        }
-        return null;
+        int pos = stack.lastIndexOfName(elName);
+        return pos != -1 ? stack.get(pos) : null;
     }
 
     boolean removeFromStack(Element el) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element next = stack.get(pos);
-            if (next == el) {
-                stack.remove(pos);
-                return true;
-            }
-        }
-        return false;
+        int pos = stack.lastIndexOf(el);
+        if (pos == -1)
+            return false;
+        stack.remove(pos);
+        return true;
     }
 
     void popStackToClose(String elName) {
@@ -356,14 +492,8 @@ public class HtmlTreeBuilder extends TreeBuilder {
     }
 
     Element aboveOnStack(Element el) {
-        assert onStack(el);
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element next = stack.get(pos);
-            if (next == el) {
-                return stack.get(pos-1);
-            }
-        }
-        return null;
+        int pos = stack.lastIndexOf(el);
+        return pos != -1 ? stack.get(pos-1) : null;
     }
 
     void insertOnStackAfter(Element after, Element in) {
@@ -431,66 +561,58 @@ public class HtmlTreeBuilder extends TreeBuilder {
         }
     }
 
-    // todo: tidy up in specific scope methods
-    private String[] specificScopeTarget = {null};
-
-    private boolean inSpecificScope(String targetName, String[] baseTypes, String[] extraTypes) {
-        specificScopeTarget[0] = targetName;
-        return inSpecificScope(specificScopeTarget, baseTypes, extraTypes);
+    private boolean inSpecificScope(String targetName, int scope) {
+        return inSpecificScope(stack.lastIndexOfName(targetName), scope);
     }
 
-    private boolean inSpecificScope(String[] targetNames, String[] baseTypes, String[] extraTypes) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element el = stack.get(pos);
-            String elName = el.nodeName();
-            if (StringUtil.in(elName, targetNames))
-                return true;
-            if (StringUtil.in(elName, baseTypes))
-                return false;
-            if (extraTypes != null && StringUtil.in(elName, extraTypes))
-                return false;
-        }
-        Validate.fail("Should not be reachable");
-        return false;
+    // the target is in scope if it is not below the topmost element bounding the scope (it may be that element)
+    private boolean inSpecificScope(int targetPos, int scope) {
+        int boundaryPos = stack.topBoundary(scope);
+        if (targetPos == -1 && boundaryPos == -1)
+            Validate.fail("Should not be reachable");
+        return targetPos != -1 && targetPos >= boundaryPos;
     }
 
     boolean inScope(String[] targetNames) {
-        return inSpecificScope(targetNames, TagsSearchInScope, null);
+        int targetPos = -1;
+        for (String targetName : targetNames)
+            targetPos = Math.max(targetPos, stack.lastIndexOfName(targetName));
+        return inSpecificScope(targetPos, ElementStack.DefaultScope);
     }
 
     boolean inScope(String targetName) {
-        return inScope(targetName, null);
-    }
-
-    boolean inScope(String targetName, String[] extras) {
-        return inSpecificScope(targetName, TagsSearchInScope, extras);
+        return inSpecificScope(targetName, ElementStack.DefaultScope);
         // todo: in mathml namespace: mi, mo, mn, ms, mtext annotation-xml
         // todo: in svg namespace: forignOjbect, desc, title
     }
 
     boolean inListItemScope(String targetName) {
-        return inScope(targetName, TagSearchList);
+        return inSpecificScope(targetName, ElementStack.ListScope);
     }
 
     boolean inButtonScope(String targetName) {
-        return inScope(targetName, TagSearchButton);
+        return inSpecificScope(targetName, ElementStack.ButtonScope);
     }
 
     boolean inTableScope(String targetName) {
-        return inSpecificScope(targetName, TagSearchTableScope, null);
+        return inSpecificScope(targetName, ElementStack.TableScope);
     }
 
     boolean inSelectScope(String targetName) {
-        for (int pos = stack.size() -1; pos >= 0; pos--) {
-            Element el = stack.get(pos);
-            String elName = el.nodeName();
-            if (elName.equals(targetName))
-                return true;
-            if (!StringUtil.in(elName, TagSearchSelectScope)) // all elements except
-                return false;
-        }
-        Validate.fail("Should not be reachable");
-        return false;
+        return inSpecificScope(targetName, ElementStack.SelectScope);
+    }
+
+    /**
+     * Check if an element with this name is open, with no special element above it; as searched for by the in body
+     * any other end tag steps.
+     */
+    boolean inSpecialScope(String targetName) {
+        int targetPos = stack.lastIndexOfName(targetName);
+        return targetPos != -1 && targetPos >= stack.topBoundary(ElementStack.SpecialScope);
+    }
+
+    boolean specialOnStack() {
+        return stack.topBoundary(ElementStack.SpecialScope) != -1;
     }
 
     void setHeadElement(Element headElement) {
@@ -540,7 +662,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
      */
     void generateImpliedEndTags(String excludeTag) {
         while ((excludeTag != null && !currentElement().nodeName().equals(excludeTag)) &&
-                StringUtil.in(currentElement().nodeName(), TagSearchEndTags))
+                currentElement().tag().inTreeSet(Tag.ImpliedEndTag))
             pop();
     }
 
@@ -551,8 +673,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
     boolean isSpecial(Element el) {
         // todo: mathml's mi, mo, mn
         // todo: svg's foreigObject, desc, title
-        String name = el.nodeName();
-        return StringUtil.in(name, TagSearchSpecial);
+        return el.tag().inTreeSet(Tag.Special);
     }
 
     Element lastFormattingElement() {
@@ -569,6 +690,7 @@ public class HtmlTreeBuilder extends TreeBuilder {
 
     // active formatting elements
     void pushActiveFormattingElements(Element in) {
+        // Noah's Ark clause: at most three of the same element (with the same attributes) after the last marker
         int numSeen = 0;
         for (int pos = formattingElements.size() -1; pos >= 0; pos--) {
             Element el = formattingElements.get(pos);
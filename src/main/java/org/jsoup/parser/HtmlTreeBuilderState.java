@@ -19,9 +19,7 @@ enum HtmlTreeBuilderState {
                 // todo: parse error check on expected doctypes
                 // todo: quirk state check on doctype ids
                 Token.Doctype d = t.asDoctype();
-                DocumentType doctype = new DocumentType(
-                    tb.settings.normalizeTag(d.getName()), d.getPubSysKey(), d.getPublicIdentifier(), d.getSystemIdentifier(), tb.getBaseUri());
-                tb.getDocument().appendChild(doctype);
+                tb.insert(d);
                 if (d.isForceQuirks())
                     tb.getDocument().quirksMode(Document.QuirksMode.quirks);
                 tb.transition(BeforeHtml);
@@ -110,9 +108,9 @@ enum HtmlTreeBuilderState {
                         return InBody.process(t, tb);
                     } else if (StringUtil.in(name, "base", "basefont", "bgsound", "command", "link")) {
                         Element el = tb.insertEmpty(start);
-                        // jsoup special: update base the frist time it is seen
-                        if (name.equals("base") && el.hasAttr("href"))
-                            tb.maybeSetBaseUri(el);
+                        // jsoup special: update base the frist time it is seen. read from the tag, as a retention policy may drop href
+                        if (name.equals("base") && start.attributes.hasKeyIgnoreCase("href"))
+                            tb.maybeSetBaseUri(el, start.attributes.getIgnoreCase("href"));
                     } else if (name.equals("meta")) {
                         Element meta = tb.insertEmpty(start);
                         // todo: charset switches
@@ -321,7 +319,7 @@ enum HtmlTreeBuilderState {
                         // merge attributes onto real html
                         Element html = tb.getStack().get(0);
                         for (Attribute attribute : startTag.getAttributes()) {
-                            if (!html.hasAttr(attribute.getKey()))
+                            if (!html.hasAttr(attribute.getKey()) && (tb.retention == null || tb.retention.retainAttribute(name, attribute.getKey())))
                                 html.attributes().put(attribute);
                         }
                     } else if (StringUtil.inSorted(name, Constants.InBodyStartToHead)) {
@@ -336,7 +334,7 @@ enum HtmlTreeBuilderState {
                             tb.framesetOk(false);
                             Element body = stack.get(1);
                             for (Attribute attribute : startTag.getAttributes()) {
-                                if (!body.hasAttr(attribute.getKey()))
+                                if (!body.hasAttr(attribute.getKey()) && (tb.retention == null || tb.retention.retainAttribute(name, attribute.getKey())))
                                     body.attributes().put(attribute);
                             }
                         }
@@ -443,8 +441,8 @@ enum HtmlTreeBuilderState {
                         tb.transition(InTable);
                     } else if (name.equals("input")) {
                         tb.reconstructFormattingElements();
-                        Element el = tb.insertEmpty(startTag);
-                        if (!el.attr("type").equalsIgnoreCase("hidden"))
+                        tb.insertEmpty(startTag);
+                        if (!startTag.attributes.getIgnoreCase("type").equalsIgnoreCase("hidden"))
                             tb.framesetOk(false);
                     } else if (StringUtil.inSorted(name, Constants.InBodyStartMedia)) {
                         tb.insertEmpty(startTag);
@@ -467,7 +465,7 @@ enum HtmlTreeBuilderState {
 
                         tb.tokeniser.acknowledgeSelfClosingFlag();
                         tb.processStartTag("form");
-                        if (startTag.attributes.hasKey("action")) {
+                        if (startTag.attributes.hasKey("action") && (tb.retention == null || tb.retention.retainAttribute("form", "action"))) {
                             Element form = tb.getFormElement();
                             form.attr("action", startTag.attributes.get("action"));
                         }
@@ -609,7 +607,7 @@ enum HtmlTreeBuilderState {
                                 } else if (node == formatEl)
                                     break;
 
-                                Element replacement = new Element(Tag.valueOf(node.nodeName(), ParseSettings.preserveCase), tb.getBaseUri());
+                                Element replacement = new Element(Tag.valueOf(node.nodeName(), ParseSettings.preserveCase), "");
                                 // case will follow the original node (so honours ParseSettings)
                                 tb.replaceActiveFormattingElement(node, replacement);
                                 tb.replaceOnStack(node, replacement);
@@ -636,11 +634,14 @@ enum HtmlTreeBuilderState {
                                 commonAncestor.appendChild(lastNode);
                             }
 
-                            Element adopter = new Element(formatEl.tag(), tb.getBaseUri());
+                            Element adopter = new Element(formatEl.tag(), "");
                             adopter.attributes().addAll(formatEl.attributes());
                             Node[] childNodes = furthestBlock.childNodes().toArray(new Node[furthestBlock.childNodeSize()]);
+                            for (int ci = childNodes.length - 1; ci >= 0; ci--) {
+                                childNodes[ci].remove(); // from the end, so the remaining children need no reindex
+                            }
                             for (Node childNode : childNodes) {
-                                adopter.appendChild(childNode); // append will reparent. thus the clone to avoid concurrent mod.
+                                adopter.appendChild(childNode);
                             }
                             furthestBlock.appendChild(adopter);
                             tb.removeFromActiveFormattingElements(formatEl);
@@ -762,21 +763,15 @@ enum HtmlTreeBuilderState {
 
         boolean anyOtherEndTag(Token t, HtmlTreeBuilder tb) {
             String name = t.asEndTag().normalName();
-            ArrayList<Element> stack = tb.getStack();
-            for (int pos = stack.size() -1; pos >= 0; pos--) {
-                Element node = stack.get(pos);
-                if (node.nodeName().equals(name)) {
-                    tb.generateImpliedEndTags(name);
-                    if (!name.equals(tb.currentElement().nodeName()))
-                        tb.error(this);
-                    tb.popStackToClose(name);
-                    break;
-                } else {
-                    if (tb.isSpecial(node)) {
-                        tb.error(this);
-                        return false;
-                    }
-                }
+            // walking up the stack, the first element either has this name, or is special. found by the stack's index
+            if (tb.inSpecialScope(name)) {
+                tb.generateImpliedEndTags(name);
+                if (!name.equals(tb.currentElement().nodeName()))
+                    tb.error(this);
+                tb.popStackToClose(name);
+            } else if (tb.specialOnStack()) {
+                tb.error(this);
+                return false;
             }
             return true;
         }
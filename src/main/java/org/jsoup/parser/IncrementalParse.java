@@ -0,0 +1,136 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Document;
+
+import java.nio.CharBuffer;
+
+/**
+ * A push mode parse, that accepts input in chunks as it arrives (e.g. from a network read loop), and tokenises and
+ * builds the tree as far as the input received allows. This lets parsing overlap with I/O, without holding the full
+ * input in memory.
+ * <p>Create with {@link Parser#newIncrementalParse(String)}, {@link #feed(char[], int, int) feed} the input, and then
+ * {@link #finish()} to complete and retrieve the document. The resulting document is the same as would be parsed from
+ * the full input at once.</p>
+ * <p>If the input runs out in the middle of a token (a tag, comment, etc), that token is tokenised again once more
+ * input arrives. To keep that linear, tokenising is only resumed once the input buffered has at least doubled.</p>
+ * <p>An incremental parse uses its Parser's tree builder, so that Parser must not be used for another parse until this
+ * one is finished. Not thread safe.</p>
+ */
+public class IncrementalParse {
+    private final Parser parser;
+    private final TreeBuilder treeBuilder;
+    private final CharacterReader reader;
+    private int resumeAt = 0; // tokenise again once this many chars are buffered
+    private boolean finished = false;
+    private boolean parsedEof = false; // may be before finished, if the parse was truncated by its limits
+
+    IncrementalParse(Parser parser, TreeBuilder treeBuilder, ParseErrorList errors, ParseSettings settings, String baseUri) {
+        this.parser = parser;
+        this.treeBuilder = treeBuilder;
+        reader = new CharacterReader();
+        treeBuilder.initialiseParse(reader, baseUri, errors, settings);
+    }
+
+    /**
+     * Feed the next chunk of input. Tokens completed by this input are processed into the document before returning.
+     * @param chars input chars
+     * @param offset offset of the first char to read from the array
+     * @param length number of chars to read
+     * @return this, for chaining
+     */
+    public IncrementalParse feed(char[] chars, int offset, int length) {
+        Validate.notNull(chars);
+        Validate.isTrue(offset >= 0 && length >= 0 && offset + length <= chars.length, "Invalid offset or length");
+        Validate.isFalse(finished, "Parse is already finished");
+        if (parsedEof)
+            return this;
+        reader.append(chars, offset, length);
+        if (reader.available() >= resumeAt)
+            step();
+        return this;
+    }
+
+    /**
+     * Feed the next chunk of input.
+     * @param chars input chars
+     * @return this, for chaining
+     */
+    public IncrementalParse feed(char[] chars) {
+        Validate.notNull(chars);
+        return feed(chars, 0, chars.length);
+    }
+
+    /**
+     * Feed the next chunk of input. The buffer's remaining chars are read, and its position moved to its limit.
+     * @param chars input chars
+     * @return this, for chaining
+     */
+    public IncrementalParse feed(CharBuffer chars) {
+        Validate.notNull(chars);
+        if (chars.hasArray()) {
+            feed(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+            chars.position(chars.limit());
+        } else {
+            char[] copy = new char[chars.remaining()];
+            chars.get(copy);
+            feed(copy);
+        }
+        return this;
+    }
+
+    /**
+     * Feed the next chunk of input.
+     * @param chars input chars
+     * @return this, for chaining
+     */
+    public IncrementalParse feed(String chars) {
+        Validate.notNull(chars);
+        return feed(chars.toCharArray());
+    }
+
+    /**
+     * Signal the end of input, process any remaining input, and get the parsed document.
+     * @return the parsed document
+     */
+    public Document finish() {
+        if (!finished) {
+            finished = true;
+            if (!parsedEof) {
+                reader.finish();
+                treeBuilder.runParserIncremental();
+            }
+        }
+        return treeBuilder.doc;
+    }
+
+    /**
+     * Get the document as parsed so far. It will be modified by further input, until the parse is finished.
+     * @return the document being built
+     */
+    public Document document() {
+        return treeBuilder.doc;
+    }
+
+    /**
+     * Check if {@link #finish()} has been called.
+     * @return true if the parse is finished
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Get the parser this parse was created from, e.g. to retrieve its tracked errors.
+     * @return the parser
+     */
+    public Parser parser() {
+        return parser;
+    }
+
+    private void step() {
+        parsedEof = treeBuilder.runParserIncremental();
+        // ran out of input; the unconsumed input is the token in progress, which will be tokenised again
+        resumeAt = Math.max(reader.available() * 2, CharacterReader.minPushLookahead);
+    }
+}
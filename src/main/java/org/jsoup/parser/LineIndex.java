@@ -0,0 +1,56 @@
+package org.jsoup.parser;
+
+/**
+ * The positions of the newlines in the input read so far, so that the line and column of an input position can be
+ * derived when needed. Built by the {@link CharacterReader} as it reads, when tracking parse errors.
+ */
+final class LineIndex {
+    private int[] newlines = new int[64];
+    private int size = 0;
+    int scanned; // input position that newlines have been scanned up to
+
+    LineIndex(int scanned) {
+        this.scanned = scanned;
+    }
+
+    void add(int pos) {
+        if (size == newlines.length) {
+            int[] grown = new int[size * 2];
+            System.arraycopy(newlines, 0, grown, 0, size);
+            newlines = grown;
+        }
+        newlines[size++] = pos;
+    }
+
+    /**
+     * Get the line number of an input position.
+     * @param pos input position
+     * @return the line number, starting at 1
+     */
+    int lineNumber(int pos) {
+        return newlinesBefore(pos) + 1;
+    }
+
+    /**
+     * Get the column number of an input position.
+     * @param pos input position
+     * @return the column number, starting at 1
+     */
+    int columnNumber(int pos) {
+        int line = newlinesBefore(pos);
+        return line == 0 ? pos + 1 : pos - newlines[line - 1];
+    }
+
+    private int newlinesBefore(int pos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (newlines[mid] < pos)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -2,19 +2,44 @@ package org.jsoup.parser;
 
 /**
  * A Parse Error records an error in the input HTML that occurs in either the tokenisation or the tree building phase.
+ * <p>The error is held as its {@link Code} and arguments; the message is only formatted when it is retrieved.</p>
  */
 public class ParseError {
-    private int pos;
-    private String errorMsg;
+    /**
+     * The kinds of parse error.
+     */
+    public enum Code {
+        UnexpectedCharacter("Unexpected character '%s' in input state [%s]"),
+        UnexpectedEof("Unexpectedly reached end of file (EOF) in input state [%s]"),
+        UnacknowledgedSelfClosingFlag("Self closing flag not acknowledged"),
+        AttributesOnEndTag("Attributes incorrectly present on end tag"),
+        CharacterReferenceNoNumerals("Invalid character reference: numeric reference with no numerals"),
+        CharacterReferenceMissingSemicolon("Invalid character reference: missing semicolon"),
+        CharacterReferenceOutOfRange("Invalid character reference: character outside of valid range"),
+        CharacterReferenceInvalidName("Invalid character reference: invalid named referenece '%s'"),
+        UnexpectedToken("Unexpected token [%s] when in state [%s]"),
+        LimitExceeded("Parse limit exceeded: %s");
 
-    ParseError(int pos, String errorMsg) {
-        this.pos = pos;
-        this.errorMsg = errorMsg;
+        private final String format;
+
+        Code(String format) {
+            this.format = format;
+        }
     }
 
-    ParseError(int pos, String errorFormat, Object... args) {
-        this.errorMsg = String.format(errorFormat, args);
+    private static final Object[] noArgs = new Object[0];
+
+    private final int pos;
+    private final Code code;
+    private final Object[] args;
+    private final LineIndex lines; // null if lines were not tracked
+    private String errorMsg; // formatted on first use
+
+    ParseError(Code code, int pos, LineIndex lines, Object... args) {
+        this.code = code;
         this.pos = pos;
+        this.lines = lines;
+        this.args = args.length == 0 ? noArgs : args;
     }
 
     /**
@@ -22,9 +47,19 @@ public class ParseError {
      * @return the error message.
      */
     public String getErrorMessage() {
+        if (errorMsg == null)
+            errorMsg = args.length == 0 ? code.format : String.format(code.format, args);
         return errorMsg;
     }
 
+    /**
+     * Retrieve the kind of error.
+     * @return the error code
+     */
+    public Code getCode() {
+        return code;
+    }
+
     /**
      * Retrieves the offset of the error.
      * @return error offset within input
@@ -33,8 +68,24 @@ public class ParseError {
         return pos;
     }
 
+    /**
+     * Retrieves the line number of the error.
+     * @return line number within input, starting at 1; or -1 if not known
+     */
+    public int getLineNumber() {
+        return lines != null ? lines.lineNumber(pos) : -1;
+    }
+
+    /**
+     * Retrieves the column number of the error.
+     * @return column number within the line, starting at 1; or -1 if not known
+     */
+    public int getColumnNumber() {
+        return lines != null ? lines.columnNumber(pos) : -1;
+    }
+
     @Override
     public String toString() {
-        return pos + ": " + errorMsg;
+        return pos + ": " + getErrorMessage();
     }
 }
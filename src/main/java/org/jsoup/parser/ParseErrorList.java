@@ -3,32 +3,113 @@ package org.jsoup.parser;
 import java.util.ArrayList;
 
 /**
- * A container for ParseErrors.
- * 
+ * A container for ParseErrors. Also counts the errors found by {@link ParseError.Code}, including any past the maximum
+ * size; a counting only list records no errors, just the counts.
+ *
  * @author Jonathan Hedley
  */
 public class ParseErrorList extends ArrayList<ParseError>{
     private static final int INITIAL_CAPACITY = 16;
     private final int maxSize;
-    
+    private final int[] counts; // by code ordinal; null when not tracking
+    private int total = 0;
+    private int checkpointSize = 0; // incremental parses rewind to here, when a token is incomplete
+    private int[] checkpointCounts; // copy of counts at the checkpoint; null when not tracking
+    private int checkpointTotal = 0;
+
     ParseErrorList(int initialCapacity, int maxSize) {
+        this(initialCapacity, maxSize, maxSize > 0);
+    }
+
+    private ParseErrorList(int initialCapacity, int maxSize, boolean counting) {
         super(initialCapacity);
         this.maxSize = maxSize;
+        this.counts = counting ? new int[ParseError.Code.values().length] : null;
+        this.checkpointCounts = counting ? new int[counts.length] : null;
     }
-    
+
     boolean canAddError() {
-        return size() < maxSize;
+        return counts != null;
     }
 
     int getMaxSize() {
         return maxSize;
     }
 
+    void add(ParseError.Code code, CharacterReader reader) {
+        if (record(code))
+            add(new ParseError(code, reader.pos(), reader.lines()));
+    }
+
+    void add(ParseError.Code code, CharacterReader reader, Object arg) {
+        if (record(code))
+            add(new ParseError(code, reader.pos(), reader.lines(), arg));
+    }
+
+    void add(ParseError.Code code, CharacterReader reader, Object arg1, Object arg2) {
+        if (record(code))
+            add(new ParseError(code, reader.pos(), reader.lines(), arg1, arg2));
+    }
+
+    private boolean record(ParseError.Code code) {
+        counts[code.ordinal()]++;
+        total++;
+        return size() < maxSize;
+    }
+
+    /**
+     * Mark the errors found so far, to be returned to by {@link #rewindToCheckpoint()}.
+     */
+    void checkpoint() {
+        checkpointSize = size();
+        if (counts != null && checkpointTotal != total) { // only copy if errors were found since the last checkpoint
+            System.arraycopy(counts, 0, checkpointCounts, 0, counts.length);
+            checkpointTotal = total;
+        }
+    }
+
+    /**
+     * Drop the errors (and their counts) found since the last checkpoint, as they will be found again.
+     */
+    void rewindToCheckpoint() {
+        while (size() > checkpointSize)
+            remove(size() - 1);
+        if (counts != null && total != checkpointTotal) {
+            System.arraycopy(checkpointCounts, 0, counts, 0, counts.length);
+            total = checkpointTotal;
+        }
+    }
+
+    /**
+     * Get the number of errors found of a kind.
+     * @param code kind of error
+     * @return number of errors found, including any past the maximum size of the list
+     */
+    public int count(ParseError.Code code) {
+        return counts != null ? counts[code.ordinal()] : 0;
+    }
+
+    /**
+     * Get the total number of errors found.
+     * @return number of errors found, including any past the maximum size of the list
+     */
+    public int totalCount() {
+        return total;
+    }
+
     public static ParseErrorList noTracking() {
         return new ParseErrorList(0, 0);
     }
-    
+
     public static ParseErrorList tracking(int maxSize) {
         return new ParseErrorList(INITIAL_CAPACITY, maxSize);
     }
+
+    /**
+     * Create a list that only counts errors by code, without recording each error.
+     * @return a counting only error list
+     */
+    public static ParseErrorList counting() {
+        return new ParseErrorList(0, 0, true);
+    }
 }
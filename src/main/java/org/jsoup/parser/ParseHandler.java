@@ -0,0 +1,50 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Attributes;
+
+/**
+ * Receives events as a document is parsed, instead of the parser building a retained DOM. Use with
+ * {@link Parser#parseInput(String, String, ParseHandler)}.
+ * <p>Events follow the HTML tree building rules, so implied elements (like {@code html}, {@code head}, {@code body} and
+ * {@code tbody}) are started and ended, and misnested tags are corrected. Start and end events are always balanced and
+ * well nested: if the tree builder has to close an element that has open descendants (e.g. when the adoption agency
+ * corrects misnested formatting elements), those descendants are ended and then started again.</p>
+ * <p>The parser does not retain elements, text or comments after they have been reported, so extraction-only uses
+ * (link harvesting, metadata sniffing, counting) don't pay for the full document tree. Objects passed to the handler
+ * should not be retained or modified.</p>
+ */
+public interface ParseHandler {
+    /**
+     * An element was started.
+     * @param name the element's tag name (normalized per the parser's settings)
+     * @param attributes the element's attributes
+     */
+    void startElement(String name, Attributes attributes);
+
+    /**
+     * An element was ended.
+     * @param name the element's tag name
+     */
+    void endElement(String name);
+
+    /**
+     * Character data (including the data in {@code script} and {@code style} elements) was found in the current
+     * element. A run of text may be reported in more than one event.
+     * @param text the (unescaped) text
+     */
+    void text(String text);
+
+    /**
+     * A comment was found.
+     * @param data the comment's data
+     */
+    void comment(String data);
+
+    /**
+     * A doctype was found.
+     * @param name the doctype name
+     * @param publicId the public identifier, or an empty string
+     * @param systemId the system identifier, or an empty string
+     */
+    void doctype(String name, String publicId, String systemId);
+}
@@ -0,0 +1,31 @@
+package org.jsoup.parser;
+
+/**
+ * Thrown when a parse exceeds one of its {@link ParseLimits}, and the limits are set to throw rather than truncate.
+ */
+public class ParseLimitException extends RuntimeException {
+    private final ParseLimits.Limit limit;
+    private final int pos;
+
+    ParseLimitException(ParseLimits.Limit limit, int pos) {
+        super(String.format("Parse limit exceeded: %s, at input position %d", limit, pos));
+        this.limit = limit;
+        this.pos = pos;
+    }
+
+    /**
+     * Get the limit that was exceeded.
+     * @return the limit
+     */
+    public ParseLimits.Limit limit() {
+        return limit;
+    }
+
+    /**
+     * Get the input position the parse had reached when the limit was exceeded.
+     * @return input position
+     */
+    public int position() {
+        return pos;
+    }
+}
@@ -0,0 +1,146 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+
+/**
+ * Resource budgets for a parse, to bound the time and memory that hostile or broken input can consume. Set on a parser
+ * with {@link Parser#limits(ParseLimits)}. A limit of {@code 0} is unlimited.
+ * <p>When a limit is exceeded, by default the parse is gracefully truncated: too many attributes on a tag are dropped,
+ * input past the character limit is ignored, and exceeding the node, depth or time limits stops the parse, returning
+ * the document as parsed so far. If parse errors are being tracked, an error is recorded for each limit exceeded.
+ * Alternatively, set {@link #throwOnExceed(boolean)} to have a {@link ParseLimitException} thrown.</p>
+ * <p>A parse with limits set is also interruptible: if the parsing thread is interrupted, the parse is stopped by an
+ * {@link org.jsoup.UncheckedIOException} wrapping an {@link java.io.InterruptedIOException}. The thread's interrupted
+ * status is left set.</p>
+ */
+public class ParseLimits {
+    /**
+     * The kinds of limit.
+     */
+    public enum Limit {
+        nodes, depth, attributes, chars, time
+    }
+
+    private int maxNodes = 0;
+    private int maxDepth = 0;
+    private int maxAttributes = 0;
+    private int maxChars = 0;
+    private int timeoutMillis = 0;
+    private boolean throwOnExceed = false;
+
+    /**
+     * Get the maximum number of nodes (elements, text, comments) to parse.
+     * @return max nodes, or 0 if unlimited
+     */
+    public int maxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Set the maximum number of nodes (elements, text, comments) to parse. This is counted from the tokens processed,
+     * so doesn't include elements implied by the tree builder (like {@code tbody}).
+     * @param maxNodes max nodes, or 0 for unlimited
+     * @return this, for chaining
+     */
+    public ParseLimits maxNodes(int maxNodes) {
+        Validate.isTrue(maxNodes >= 0, "maxNodes must be 0 (unlimited) or larger");
+        this.maxNodes = maxNodes;
+        return this;
+    }
+
+    /**
+     * Get the maximum depth of open elements.
+     * @return max depth, or 0 if unlimited
+     */
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Set the maximum depth of open elements (the tree builder's stack).
+     * @param maxDepth max depth, or 0 for unlimited
+     * @return this, for chaining
+     */
+    public ParseLimits maxDepth(int maxDepth) {
+        Validate.isTrue(maxDepth >= 0, "maxDepth must be 0 (unlimited) or larger");
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Get the maximum number of attributes per tag.
+     * @return max attributes, or 0 if unlimited
+     */
+    public int maxAttributes() {
+        return maxAttributes;
+    }
+
+    /**
+     * Set the maximum number of attributes per tag. When truncating, further attributes are dropped.
+     * @param maxAttributes max attributes, or 0 for unlimited
+     * @return this, for chaining
+     */
+    public ParseLimits maxAttributes(int maxAttributes) {
+        Validate.isTrue(maxAttributes >= 0, "maxAttributes must be 0 (unlimited) or larger");
+        this.maxAttributes = maxAttributes;
+        return this;
+    }
+
+    /**
+     * Get the maximum number of input characters to parse.
+     * @return max chars, or 0 if unlimited
+     */
+    public int maxChars() {
+        return maxChars;
+    }
+
+    /**
+     * Set the maximum number of input characters to parse. When truncating, the input after that is treated as past
+     * the end of the input.
+     * @param maxChars max chars, or 0 for unlimited
+     * @return this, for chaining
+     */
+    public ParseLimits maxChars(int maxChars) {
+        Validate.isTrue(maxChars >= 0, "maxChars must be 0 (unlimited) or larger");
+        this.maxChars = maxChars;
+        return this;
+    }
+
+    /**
+     * Get the parse timeout.
+     * @return the timeout in milliseconds, or 0 if unlimited
+     */
+    public int timeout() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Set the maximum elapsed (wall clock) time for a parse.
+     * @param millis timeout in milliseconds, or 0 for unlimited
+     * @return this, for chaining
+     */
+    public ParseLimits timeout(int millis) {
+        Validate.isTrue(millis >= 0, "Timeout must be 0 (unlimited) or larger");
+        this.timeoutMillis = millis;
+        return this;
+    }
+
+    /**
+     * Check if a {@link ParseLimitException} will be thrown when a limit is exceeded.
+     * @return true if throwing; false if truncating.
+     */
+    public boolean throwOnExceed() {
+        return throwOnExceed;
+    }
+
+    /**
+     * Set whether to throw a {@link ParseLimitException} when a limit is exceeded, vs gracefully truncating the parse.
+     * Default is false (truncate).
+     * @param throwOnExceed true to throw
+     * @return this, for chaining
+     */
+    public ParseLimits throwOnExceed(boolean throwOnExceed) {
+        this.throwOnExceed = throwOnExceed;
+        return this;
+    }
+}
@@ -34,6 +34,10 @@ public class ParseSettings {
         preserveAttributeCase = attribute;
     }
 
+    boolean preserveTagCase() {
+        return preserveTagCase;
+    }
+
     String normalizeTag(String name) {
         name = name.trim();
         if (!preserveTagCase)
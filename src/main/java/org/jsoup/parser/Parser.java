@@ -1,22 +1,37 @@
 package org.jsoup.parser;
 
+import org.jsoup.helper.Validate;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
 
+import java.io.Reader;
 import java.util.List;
 
 /**
  * Parses HTML into a {@link org.jsoup.nodes.Document}. Generally best to use one of the  more convenient parse methods
  * in {@link org.jsoup.Jsoup}.
+ * <p>A Parser instance may be reused for many parses, and reuses its reader and tokeniser buffers between them, which
+ * saves allocation when parsing many documents. An instance is not thread safe, so confine each to one thread (e.g. one
+ * per worker thread in a fixed pool). The static parse methods borrow from a shared lock free pool of tree builders, so
+ * are safe to call from any thread, including virtual threads.</p>
  */
 public class Parser {
     private static final int DEFAULT_MAX_ERRORS = 0; // by default, error tracking is disabled.
     
     private TreeBuilder treeBuilder;
     private int maxErrors = DEFAULT_MAX_ERRORS;
+    private boolean countErrors = false;
     private ParseErrorList errors;
     private ParseSettings settings;
+    private ParseLimits limits;
+    private SymbolTable symbols;
+    private RetentionPolicy retention;
+    private Evaluator stopQuery;
+    private boolean stopAfterHead = false;
+    private boolean trustWellFormed = false;
 
     /**
      * Create a new Parser, using the specified TreeBuilder
@@ -28,10 +43,127 @@ public class Parser {
     }
     
     public Document parseInput(String html, String baseUri) {
-        errors = isTrackErrors() ? ParseErrorList.tracking(maxErrors) : ParseErrorList.noTracking();
+        errors = newErrorList();
         return treeBuilder.parse(html, baseUri, errors, settings);
     }
 
+    /**
+     * Parse HTML from a Reader into a Document. The input is tokenised directly from the reader, through a bounded
+     * buffer, so the full input is never held in memory as a String. The reader is not closed.
+     * @param inputHtml the input to read and parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @return parsed Document
+     * @throws org.jsoup.UncheckedIOException if the reader throws an IOException
+     */
+    public Document parseInput(Reader inputHtml, String baseUri) {
+        errors = newErrorList();
+        return treeBuilder.parse(inputHtml, baseUri, errors, settings);
+    }
+
+    /**
+     * Parse HTML, sending parse events to a handler instead of building a document. The tree building rules (implied
+     * elements, misnested tag correction, etc) are applied as for a normal parse, but the parsed nodes are not retained.
+     * @param html HTML to parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @param handler handler to receive the parse events
+     * @see ParseHandler
+     */
+    public void parseInput(String html, String baseUri, ParseHandler handler) {
+        Validate.notNull(html, "String input must not be null");
+        parseInput(new CharacterReader(html), baseUri, handler);
+    }
+
+    /**
+     * Parse HTML from a Reader, sending parse events to a handler instead of building a document. The reader is not
+     * closed.
+     * @param inputHtml the input to read and parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @param handler handler to receive the parse events
+     * @throws org.jsoup.UncheckedIOException if the reader throws an IOException
+     * @see ParseHandler
+     */
+    public void parseInput(Reader inputHtml, String baseUri, ParseHandler handler) {
+        Validate.notNull(inputHtml, "Reader input must not be null");
+        parseInput(new CharacterReader(inputHtml), baseUri, handler);
+    }
+
+    private void parseInput(CharacterReader input, String baseUri, ParseHandler handler) {
+        Validate.notNull(handler, "Handler must not be null");
+        errors = newErrorList();
+        treeBuilder.handler = handler;
+        try {
+            treeBuilder.parse(input, baseUri, errors, settings);
+        } finally {
+            treeBuilder.handler = null;
+        }
+    }
+
+    /**
+     * Parse HTML from a Reader in a streaming extraction mode: each element that matches the query is passed to the
+     * handler once it is complete (when its end tag, or implied end, has been processed), and is then removed from the
+     * document. As the bulk of a large document (e.g. the rows of a giant table) is handed off and discarded as it is
+     * parsed, memory use is bounded by the unmatched content rather than by the full input.
+     * <p>The query is evaluated when each element is complete, against the document as parsed so far. So selectors on
+     * ancestors, preceding siblings and descendants work, but those that depend on following content (like
+     * {@code :last-child}) don't. Nested matches are handed off innermost first, and earlier matches have been removed
+     * by the time later elements are evaluated (so index selectors like {@code :nth-child} count the remaining
+     * elements).</p>
+     * @param inputHtml the input to read and parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @param query CSS query to match elements to extract
+     * @param handler handler to receive the matched elements
+     * @return the parsed Document, without the extracted elements
+     * @throws org.jsoup.UncheckedIOException if the reader throws an IOException
+     * @throws org.jsoup.select.Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     */
+    public Document parseInput(Reader inputHtml, String baseUri, String query, ElementHandler handler) {
+        Validate.notNull(inputHtml, "Reader input must not be null");
+        return parseInput(new CharacterReader(inputHtml), baseUri, query, handler);
+    }
+
+    /**
+     * Parse HTML in a streaming extraction mode: each element that matches the query is passed to the handler once it
+     * is complete, and is then removed from the document.
+     * @param html HTML to parse
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @param query CSS query to match elements to extract
+     * @param handler handler to receive the matched elements
+     * @return the parsed Document, without the extracted elements
+     * @throws org.jsoup.select.Selector.SelectorParseException (unchecked) on an invalid CSS query.
+     * @see #parseInput(Reader, String, String, ElementHandler)
+     */
+    public Document parseInput(String html, String baseUri, String query, ElementHandler handler) {
+        Validate.notNull(html, "String input must not be null");
+        return parseInput(new CharacterReader(html), baseUri, query, handler);
+    }
+
+    private Document parseInput(CharacterReader input, String baseUri, String query, ElementHandler handler) {
+        Validate.notEmpty(query, "Query must not be empty");
+        Validate.notNull(handler, "Handler must not be null");
+        Evaluator evaluator = QueryParser.parse(query);
+        errors = newErrorList();
+        treeBuilder.extractQuery = evaluator;
+        treeBuilder.extractHandler = handler;
+        try {
+            return treeBuilder.parse(input, baseUri, errors, settings);
+        } finally {
+            treeBuilder.extractQuery = null;
+            treeBuilder.extractHandler = null;
+        }
+    }
+
+    /**
+     * Start a push mode parse, where input is fed in chunks as it arrives, and parsed as far as it allows. Call
+     * {@link IncrementalParse#finish()} to complete the parse and get the document. This parser must not be used for
+     * another parse until that parse is finished.
+     * @param baseUri base URI of document (i.e. original fetch location), for resolving relative URLs.
+     * @return an incremental parse, ready to be fed
+     */
+    public IncrementalParse newIncrementalParse(String baseUri) {
+        errors = newErrorList();
+        return new IncrementalParse(this, treeBuilder, errors, settings, baseUri);
+    }
+
     // gets & sets
     /**
      * Get the TreeBuilder currently in use.
@@ -48,6 +180,12 @@ public class Parser {
      */
     public Parser setTreeBuilder(TreeBuilder treeBuilder) {
         this.treeBuilder = treeBuilder;
+        treeBuilder.limits = limits;
+        treeBuilder.symbols = symbols;
+        treeBuilder.retention = retention;
+        treeBuilder.stopQuery = stopQuery;
+        treeBuilder.stopAfterHead = stopAfterHead;
+        treeBuilder.trustWellFormed = trustWellFormed;
         return this;
     }
 
@@ -69,6 +207,27 @@ public class Parser {
         return this;
     }
 
+    /**
+     * Check if parse errors are counted, without being tracked.
+     * @return current count errors state.
+     */
+    public boolean isCountErrors() {
+        return countErrors;
+    }
+
+    /**
+     * Enable or disable counting parse errors by code for the next parse, without recording each error. This is
+     * cheaper than tracking errors, when only the number of each kind of error is needed. If errors are tracked, they
+     * are also counted.
+     * @param countErrors true to count errors
+     * @return this, for chaining
+     * @see #getErrorCount(ParseError.Code)
+     */
+    public Parser setCountErrors(boolean countErrors) {
+        this.countErrors = countErrors;
+        return this;
+    }
+
     /**
      * Retrieve the parse errors, if any, from the last parse.
      * @return list of parse errors, up to the size of the maximum errors tracked.
@@ -77,6 +236,21 @@ public class Parser {
         return errors;
     }
 
+    /**
+     * Retrieve the number of parse errors of a kind found in the last parse, when tracking or counting errors.
+     * @param code kind of error
+     * @return number of errors, including any past the maximum errors tracked
+     */
+    public int getErrorCount(ParseError.Code code) {
+        return errors != null ? errors.count(code) : 0;
+    }
+
+    private ParseErrorList newErrorList() {
+        if (isTrackErrors())
+            return ParseErrorList.tracking(maxErrors);
+        return countErrors ? ParseErrorList.counting() : ParseErrorList.noTracking();
+    }
+
     public Parser settings(ParseSettings settings) {
         this.settings = settings;
         return this;
@@ -86,6 +260,155 @@ public class Parser {
         return settings;
     }
 
+    /**
+     * Set resource limits for parses by this parser, to bound the time and memory used on hostile or broken input.
+     * @param limits the limits to apply, or null for unlimited
+     * @return this, for chaining
+     * @see ParseLimits
+     */
+    public Parser limits(ParseLimits limits) {
+        this.limits = limits;
+        treeBuilder.limits = limits;
+        return this;
+    }
+
+    /**
+     * Get the resource limits for parses by this parser.
+     * @return the limits, or null if unlimited
+     */
+    public ParseLimits limits() {
+        return limits;
+    }
+
+    /**
+     * Share the tag names, attribute names, and short attribute values and text of documents parsed by this parser with
+     * other documents, through a symbol table. This reduces the memory retained by many parsed documents.
+     * @param symbols the symbol table to use, e.g. {@link SymbolTable#shared()}; or null to not share
+     * @return this, for chaining
+     */
+    public Parser symbols(SymbolTable symbols) {
+        this.symbols = symbols;
+        treeBuilder.symbols = symbols;
+        return this;
+    }
+
+    /**
+     * Get the symbol table used to share strings across documents parsed by this parser.
+     * @return the symbol table, or null if not sharing
+     */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    /**
+     * Set which nodes and attributes parses by this parser retain, e.g. to drop comments and whitespace text when only
+     * extracting content. Nodes that are not retained are never created.
+     * @param retention the retention policy, or null to retain everything
+     * @return this, for chaining
+     * @see RetentionPolicy
+     */
+    public Parser retention(RetentionPolicy retention) {
+        this.retention = retention;
+        treeBuilder.retention = retention;
+        return this;
+    }
+
+    /**
+     * Get the retention policy for parses by this parser.
+     * @return the retention policy, or null if everything is retained
+     */
+    public RetentionPolicy retention() {
+        return retention;
+    }
+
+    /**
+     * Stop parsing once the document's head is complete, when only head data (like the title, canonical link, and meta
+     * tags) is needed. The rest of the input is not read, and the document as parsed so far is returned. When fetching
+     * with a connection that uses this parser, the rest of the response body is not downloaded.
+     * <p>The head is complete when the HTML tree builder leaves its in head state: at {@code </head>}, or at the first
+     * body content. Only applies to the HTML parser.</p>
+     * @param stopAfterHead true to stop after the head
+     * @return this, for chaining
+     */
+    public Parser stopAfterHead(boolean stopAfterHead) {
+        this.stopAfterHead = stopAfterHead;
+        treeBuilder.stopAfterHead = stopAfterHead;
+        return this;
+    }
+
+    /**
+     * Check if parses stop once the head is complete.
+     * @return true if stopping after the head
+     */
+    public boolean stopAfterHead() {
+        return stopAfterHead;
+    }
+
+    /**
+     * Stop parsing once an element matching the CSS query is complete (closed). The rest of the input is not read, and
+     * the document as parsed so far, including the matched element, is returned. When fetching with a connection that
+     * uses this parser, the rest of the response body is not downloaded. Not applied in event parses, which build no
+     * tree to match against.
+     * @param cssQuery query to match elements against, e.g. {@code link[rel=canonical]}; or null to not stop
+     * @return this, for chaining
+     */
+    public Parser stopAt(String cssQuery) {
+        return stopAt(cssQuery != null ? QueryParser.parse(cssQuery) : null);
+    }
+
+    /**
+     * Stop parsing once an element matching the evaluator is complete.
+     * @param evaluator evaluator to match elements against; or null to not stop
+     * @return this, for chaining
+     * @see #stopAt(String)
+     */
+    public Parser stopAt(Evaluator evaluator) {
+        this.stopQuery = evaluator;
+        treeBuilder.stopQuery = evaluator;
+        return this;
+    }
+
+    /**
+     * Get the evaluator that stops parses once matched.
+     * @return the stop evaluator; or null if not set
+     */
+    public Evaluator stopAt() {
+        return stopQuery;
+    }
+
+    /**
+     * Check if parses by this parser may stop before the end of the input, on {@link #stopAfterHead(boolean)} or
+     * {@link #stopAt(String)}.
+     * @return true if parses may stop early
+     */
+    public boolean isStoppingEarly() {
+        return stopAfterHead || stopQuery != null;
+    }
+
+    /**
+     * Trust that input is well-formed, for a faster parse of known clean HTML (like the output of a template engine, or
+     * of {@link org.jsoup.safety.Cleaner}). While trusted, start and end tags in the body that need no error recovery
+     * skip most of the tree builder's checks. Void and raw text elements are still handled as HTML. As soon as the
+     * input is found to be malformed (e.g. an end tag that does not close the current element), the parse falls back to
+     * the full algorithm, so the document built is the same as without this setting. Only applies to the HTML parser,
+     * with settings that do not preserve tag case.
+     * @param trustWellFormed true to trust the input to be well-formed
+     * @return this, for chaining
+     */
+    public Parser trustWellFormed(boolean trustWellFormed) {
+        this.trustWellFormed = trustWellFormed;
+        treeBuilder.trustWellFormed = trustWellFormed;
+        return this;
+    }
+
+    /**
+     * Check if input is trusted to be well-formed.
+     * @return true if trusted
+     */
+    public boolean trustWellFormed() {
+        return trustWellFormed;
+    }
+
     // static parse functions below
     /**
      * Parse HTML into a Document.
@@ -96,8 +419,10 @@ public class Parser {
      * @return parsed Document
      */
     public static Document parse(String html, String baseUri) {
-        TreeBuilder treeBuilder = new HtmlTreeBuilder();
-        return treeBuilder.parse(html, baseUri, ParseErrorList.noTracking(), treeBuilder.defaultSettings());
+        HtmlTreeBuilder treeBuilder = TreeBuilderPool.borrow();
+        Document doc = treeBuilder.parse(html, baseUri, ParseErrorList.noTracking(), treeBuilder.defaultSettings());
+        TreeBuilderPool.release(treeBuilder);
+        return doc;
     }
 
     /**
@@ -111,8 +436,7 @@ public class Parser {
      * @return list of nodes parsed from the input HTML. Note that the context element, if supplied, is not modified.
      */
     public static List<Node> parseFragment(String fragmentHtml, Element context, String baseUri) {
-        HtmlTreeBuilder treeBuilder = new HtmlTreeBuilder();
-        return treeBuilder.parseFragment(fragmentHtml, context, baseUri, ParseErrorList.noTracking(), treeBuilder.defaultSettings());
+        return parseFragment(fragmentHtml, context, baseUri, ParseErrorList.noTracking());
     }
 
     /**
@@ -127,8 +451,10 @@ public class Parser {
      * @return list of nodes parsed from the input HTML. Note that the context element, if supplied, is not modified.
      */
     public static List<Node> parseFragment(String fragmentHtml, Element context, String baseUri, ParseErrorList errorList) {
-        HtmlTreeBuilder treeBuilder = new HtmlTreeBuilder();
-        return treeBuilder.parseFragment(fragmentHtml, context, baseUri, errorList, treeBuilder.defaultSettings());
+        HtmlTreeBuilder treeBuilder = TreeBuilderPool.borrow();
+        List<Node> nodes = treeBuilder.parseFragment(fragmentHtml, context, baseUri, errorList, treeBuilder.defaultSettings());
+        TreeBuilderPool.release(treeBuilder);
+        return nodes;
     }
 
     /**
@@ -166,14 +492,14 @@ public class Parser {
     }
 
     /**
-     * Utility method to unescape HTML entities from a string
+     * Utility method to unescape HTML entities from a string. The string is decoded in one pass, without a tokeniser;
+     * if it has no references, the string itself is returned.
      * @param string HTML escaped string
      * @param inAttribute if the string is to be escaped in strict mode (as attributes are)
      * @return an unescaped string
      */
     public static String unescapeEntities(String string, boolean inAttribute) {
-        Tokeniser tokeniser = new Tokeniser(new CharacterReader(string), ParseErrorList.noTracking());
-        return tokeniser.unescapeEntities(inAttribute);
+        return CharacterReferences.unescape(string, inAttribute);
     }
 
     /**
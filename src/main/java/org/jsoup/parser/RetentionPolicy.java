@@ -0,0 +1,268 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.helper.Validate;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Element;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Controls which nodes and attributes a parse retains in the document it builds. Set on a parser with
+ * {@link Parser#retention(RetentionPolicy)}. Nodes and attributes that are not retained are never created, so for
+ * extraction work the parsed document is much smaller, without a cleaning pass afterwards.
+ * <p>By default everything is retained. Comments, whitespace only text, and the data (bodies) of {@code script} and
+ * {@code style} elements can be dropped; attributes can be limited to an allowlist, for all tags or per tag; and
+ * attributes can be dropped by a denylist, which may hold prefixes like {@code on*}. The content of the elements in
+ * {@link #retainTags(String...)} is always retained (e.g. to keep whitespace in {@code pre}).</p>
+ * <p>The tree structure is built as if nothing was dropped: attributes that tree construction reads (like an
+ * {@code input}'s {@code type}, or a {@code base}'s {@code href}) are held until their element is created, and only
+ * then dropped. Two exceptions: dropping whitespace text also drops the whitespace between inline elements, so e.g.
+ * {@code <b>One</b> <i>Two</i>} has text {@code OneTwo}; and reopened formatting elements are matched by their
+ * retained attributes.</p>
+ */
+public class RetentionPolicy {
+    private boolean dropComments = false;
+    private boolean dropWhitespaceText = false;
+    private boolean dropData = false;
+    private Set<String> retainTags = Collections.emptySet(); // lower case
+    private Set<String> retainAttributes = null; // lower case; null if all are retained
+    private Map<String, Set<String>> retainTagAttributes = Collections.emptyMap(); // tag name -> attribute names, lower case
+    private Set<String> dropAttributes = Collections.emptySet(); // lower case, as set
+    private String[] dropPrefixes = new String[0]; // lower case, without the trailing *
+
+    // attributes that tree construction reads, so are held until the element is created. sorted
+    private static final String[] treeAttributes = new String[]{"action", "href", "prompt", "type"};
+
+    /**
+     * Check if comments are dropped.
+     * @return true if comments are dropped
+     */
+    public boolean dropComments() {
+        return dropComments;
+    }
+
+    /**
+     * Set if comments should be dropped.
+     * @param dropComments true to drop comments
+     * @return this, for chaining
+     */
+    public RetentionPolicy dropComments(boolean dropComments) {
+        this.dropComments = dropComments;
+        return this;
+    }
+
+    /**
+     * Check if whitespace only text nodes are dropped.
+     * @return true if whitespace text is dropped
+     */
+    public boolean dropWhitespaceText() {
+        return dropWhitespaceText;
+    }
+
+    /**
+     * Set if text nodes that are only whitespace (like the whitespace between tags) should be dropped.
+     * @param dropWhitespaceText true to drop whitespace text
+     * @return this, for chaining
+     */
+    public RetentionPolicy dropWhitespaceText(boolean dropWhitespaceText) {
+        this.dropWhitespaceText = dropWhitespaceText;
+        return this;
+    }
+
+    /**
+     * Check if script and style data is dropped.
+     * @return true if data is dropped
+     */
+    public boolean dropData() {
+        return dropData;
+    }
+
+    /**
+     * Set if the data nodes of {@code script} and {@code style} elements should be dropped. The elements themselves
+     * (and their attributes) are retained.
+     * @param dropData true to drop data
+     * @return this, for chaining
+     */
+    public RetentionPolicy dropData(boolean dropData) {
+        this.dropData = dropData;
+        return this;
+    }
+
+    /**
+     * Get the tags whose content is always retained.
+     * @return the tag names (lower case)
+     */
+    public Set<String> retainTags() {
+        return Collections.unmodifiableSet(retainTags);
+    }
+
+    /**
+     * Set the tags whose content (comments, text, and data) is always retained, overriding the drop settings. E.g.
+     * {@code retainTags("pre", "script")}. Only the direct children of these elements are considered.
+     * @param tagNames names of the tags (case insensitive)
+     * @return this, for chaining
+     */
+    public RetentionPolicy retainTags(String... tagNames) {
+        retainTags = lowerCaseSet(tagNames);
+        return this;
+    }
+
+    /**
+     * Get the attribute allowlist.
+     * @return the attribute names that are retained (lower case); or null if all attributes are retained
+     */
+    public Set<String> retainAttributes() {
+        return retainAttributes != null ? Collections.unmodifiableSet(retainAttributes) : null;
+    }
+
+    /**
+     * Set an allowlist of attributes to retain; other attributes are dropped as they are read. E.g.
+     * {@code retainAttributes("href", "src", "id", "class")}.
+     * @param keys names of the attributes (case insensitive); or null to retain all attributes
+     * @return this, for chaining
+     */
+    public RetentionPolicy retainAttributes(String... keys) {
+        retainAttributes = keys != null ? lowerCaseSet(keys) : null;
+        return this;
+    }
+
+    /**
+     * Set an allowlist of attributes to retain on a specific tag. The attributes retained on that tag are these, plus
+     * any in the {@link #retainAttributes(String...) allowlist for all tags}. Tags without an allowlist of their own
+     * follow the allowlist for all tags (or retain all attributes if that is not set). E.g.
+     * {@code retainTagAttributes("a", "href")} keeps only {@code href} on links, and every attribute elsewhere.
+     * @param tagName name of the tag (case insensitive)
+     * @param keys names of the attributes (case insensitive); or null to remove the tag's allowlist
+     * @return this, for chaining
+     */
+    public RetentionPolicy retainTagAttributes(String tagName, String... keys) {
+        Validate.notEmpty(tagName);
+        Map<String, Set<String>> tagAttributes = new HashMap<String, Set<String>>(retainTagAttributes);
+        String name = tagName.trim().toLowerCase(Locale.ENGLISH);
+        if (keys != null)
+            tagAttributes.put(name, lowerCaseSet(keys));
+        else
+            tagAttributes.remove(name);
+        retainTagAttributes = tagAttributes;
+        return this;
+    }
+
+    /**
+     * Get the attribute denylist.
+     * @return the attribute names that are dropped (lower case); prefix rules end with {@code *}
+     */
+    public Set<String> dropAttributes() {
+        return Collections.unmodifiableSet(dropAttributes);
+    }
+
+    /**
+     * Set a denylist of attributes to drop, on all tags. This takes precedence over the allowlists. A name ending in
+     * {@code *} drops all attributes with that prefix. E.g. {@code dropAttributes("style", "on*")} drops inline
+     * styles and event handlers.
+     * @param keys names or prefixes of the attributes (case insensitive)
+     * @return this, for chaining
+     */
+    public RetentionPolicy dropAttributes(String... keys) {
+        Set<String> drops = lowerCaseSet(keys);
+        List<String> prefixes = new ArrayList<String>();
+        for (String drop : drops) {
+            if (drop.endsWith("*"))
+                prefixes.add(drop.substring(0, drop.length() - 1));
+        }
+        dropAttributes = drops;
+        dropPrefixes = prefixes.toArray(new String[prefixes.size()]);
+        return this;
+    }
+
+    boolean retainComment(Element parent) {
+        return !dropComments || retainsContent(parent);
+    }
+
+    boolean retainText(Element parent, String text) {
+        return !dropWhitespaceText || !StringUtil.isBlank(text) || retainsContent(parent);
+    }
+
+    boolean retainData(Element parent) {
+        return !dropData || retainsContent(parent);
+    }
+
+    /**
+     * Check if an attribute is retained on a tag.
+     * @param tagName the normal (lower case) tag name
+     * @param key the attribute name, in any case
+     */
+    boolean retainAttribute(String tagName, String key) {
+        String lowerKey = key.toLowerCase(Locale.ENGLISH);
+        if (dropAttributes.contains(lowerKey))
+            return false;
+        for (String prefix : dropPrefixes) {
+            if (lowerKey.startsWith(prefix))
+                return false;
+        }
+        Set<String> tagAttributes = retainTagAttributes.isEmpty() ? null : retainTagAttributes.get(tagName);
+        if (retainAttributes == null && tagAttributes == null)
+            return true;
+        return (retainAttributes != null && retainAttributes.contains(lowerKey))
+            || (tagAttributes != null && tagAttributes.contains(lowerKey));
+    }
+
+    /**
+     * Check if an attribute should be read by the tokeniser. Those the tree builder reads are held until the element
+     * is created, and filtered then.
+     */
+    boolean readAttribute(String tagName, String key) {
+        return retainAttribute(tagName, key) || Arrays.binarySearch(treeAttributes, key.toLowerCase(Locale.ENGLISH)) >= 0;
+    }
+
+    /**
+     * Filter a start tag's attributes for the element being created from it. The tag's attributes are left as is, as
+     * the tree builder may still read them.
+     * @return the attributes, or a filtered copy if any are not retained
+     */
+    Attributes retained(String tagName, Attributes attributes) {
+        if (attributes == null || attributes.size() == 0)
+            return attributes;
+        boolean retainsAll = true;
+        for (Attribute attribute : attributes) {
+            if (!retainAttribute(tagName, attribute.getKey())) {
+                retainsAll = false;
+                break;
+            }
+        }
+        if (retainsAll)
+            return attributes;
+
+        Attributes retained = new Attributes();
+        for (Attribute attribute : attributes) {
+            if (retainAttribute(tagName, attribute.getKey()))
+                retained.put(attribute);
+        }
+        return retained;
+    }
+
+    private boolean retainsContent(Element parent) {
+        if (parent == null || retainTags.isEmpty())
+            return false;
+        String name = parent.tagName();
+        return retainTags.contains(name) || retainTags.contains(name.toLowerCase(Locale.ENGLISH));
+    }
+
+    private static Set<String> lowerCaseSet(String... names) {
+        Set<String> set = new HashSet<String>();
+        for (String name : names) {
+            Validate.notEmpty(name);
+            set.add(name.trim().toLowerCase(Locale.ENGLISH));
+        }
+        return set;
+    }
+}
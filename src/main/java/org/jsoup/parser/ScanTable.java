@@ -0,0 +1,18 @@
+package org.jsoup.parser;
+
+/**
+ * A precomputed lookup table of the chars that a {@link CharacterReader} scan stops at. The tokeniser's hot scanning
+ * loops test each char with one array lookup, instead of comparing it against each stop char in turn.
+ */
+final class ScanTable {
+    final boolean[] stops; // indexed by char; sized to the highest stop char, so any char past the end is not a stop
+
+    ScanTable(char... chars) {
+        char max = 0;
+        for (char c : chars)
+            max = c > max ? c : max;
+        stops = new boolean[max + 1];
+        for (char c : chars)
+            stops[c] = true;
+    }
+}
@@ -0,0 +1,86 @@
+package org.jsoup.parser;
+
+import org.jsoup.helper.Validate;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, thread safe table of short strings (tag names, attribute names, short attribute values and text like
+ * whitespace runs), that can be shared by the parses of many documents, so that a large set of parsed documents held in
+ * memory share one copy of each common string.
+ * <p>Enable for a parser with {@link Parser#symbols(SymbolTable)}; e.g. {@code Parser.htmlParser().symbols(SymbolTable.shared())}.
+ * Each parse first checks its own per-document string cache, and consults the symbol table on a miss.</p>
+ * <p>The table is a fixed size, lock free open addressing table: a lookup checks two slots, and on a miss the new
+ * string replaces an older one. So memory use is bounded, and any thread can use it without blocking.</p>
+ */
+public final class SymbolTable {
+    static final int maxSymbolLength = 32; // longer strings are not shared
+    private static final int maxCapacity = 1024 * 1024;
+    private static final SymbolTable shared = new SymbolTable(1024 * 8);
+
+    private final AtomicReferenceArray<String> symbols;
+    private final int mask;
+
+    /**
+     * Create a new symbol table.
+     * @param capacity the number of strings the table can hold; rounded up to a power of two
+     */
+    public SymbolTable(int capacity) {
+        Validate.isTrue(capacity > 0 && capacity <= maxCapacity, "Capacity must be between 1 and " + maxCapacity);
+        int size = 2;
+        while (size < capacity)
+            size <<= 1;
+        symbols = new AtomicReferenceArray<String>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Get the shared global symbol table.
+     * @return the shared symbol table
+     */
+    public static SymbolTable shared() {
+        return shared;
+    }
+
+    /**
+     * Get the string for the run of chars, from the table if present, or else adding it.
+     * @param chars buffer to read from
+     * @param start offset of the first char
+     * @param count number of chars
+     * @param hash the String hash code of the chars
+     * @return the shared string
+     */
+    String get(char[] chars, int start, int count, int hash) {
+        int index = (hash ^ (hash >>> 16)) & mask;
+        int next = (index + 1) & mask;
+
+        String symbol = symbols.get(index);
+        if (symbol != null && rangeEquals(symbol, chars, start, count))
+            return symbol;
+        String other = symbols.get(next);
+        if (other != null && rangeEquals(other, chars, start, count))
+            return other;
+
+        String added = new String(chars, start, count);
+        symbols.set(symbol != null && other == null ? next : index, added); // prefer an empty slot
+        return added;
+    }
+
+    /**
+     * Remove all strings from the table.
+     */
+    public void clear() {
+        for (int i = 0; i < symbols.length(); i++)
+            symbols.set(i, null);
+    }
+
+    private static boolean rangeEquals(String symbol, char[] chars, int start, int count) {
+        if (symbol.length() != count)
+            return false;
+        for (int i = 0; i < count; i++) {
+            if (symbol.charAt(i) != chars[start + i])
+                return false;
+        }
+        return true;
+    }
+}
@@ -22,9 +22,26 @@ public class Tag {
     private boolean preserveWhitespace = false; // for pre, textarea, script etc
     private boolean formList = false; // a control that appears in forms: input, textarea, output etc
     private boolean formSubmit = false; // a control that can be submitted in a form: input etc
+    private final int treeSets; // HtmlTreeBuilder tag sets this tag is in, as bit flags. Also set for unregistered tags
+
+    // tag sets, for tree builder scope checks by bit test instead of by name
+    static final int ScopeBoundary = 1; // ends the default scope
+    static final int ListScopeBoundary = 1 << 1; // also ends list item scope
+    static final int ButtonScopeBoundary = 1 << 2; // also ends button scope
+    static final int TableScopeBoundary = 1 << 3; // ends table scope
+    static final int SelectScopeTransparent = 1 << 4; // does not end select scope
+    static final int ImpliedEndTag = 1 << 5; // closed by generate implied end tags
+    static final int Special = 1 << 6; // in the special category
+    static final int BodyFormatting = 1 << 7; // in body, a formatting element closed by the adoption agency
+    static final int BodyPCloser = 1 << 8; // in body, closes an open p when started
+    static final int BodyVoidFormatting = 1 << 9; // in body, inserted empty after reconstructing formatting when started
+    static final int BodyStartSteps = 1 << 10; // in body, has other steps when started
+    static final int BodyEndSteps = 1 << 11; // in body, has other steps when ended
 
     private Tag(String tagName) {
         this.tagName = tagName;
+        Integer sets = treeSetsByName.get(tagName);
+        treeSets = sets != null ? sets : 0;
     }
 
     /**
@@ -265,7 +282,23 @@ public class Tag {
             "input", "keygen", "object", "select", "textarea"
     };
 
+    private static final Map<String, Integer> treeSetsByName = new HashMap<String, Integer>();
+
     static {
+        // tree builder sets, by name, so that unregistered tags like marquee get them too:
+        addTreeSet(HtmlTreeBuilder.TagsSearchInScope, ScopeBoundary);
+        addTreeSet(HtmlTreeBuilder.TagSearchList, ListScopeBoundary);
+        addTreeSet(HtmlTreeBuilder.TagSearchButton, ButtonScopeBoundary);
+        addTreeSet(HtmlTreeBuilder.TagSearchTableScope, TableScopeBoundary);
+        addTreeSet(HtmlTreeBuilder.TagSearchSelectScope, SelectScopeTransparent);
+        addTreeSet(HtmlTreeBuilder.TagSearchEndTags, ImpliedEndTag);
+        addTreeSet(HtmlTreeBuilder.TagSearchSpecial, Special);
+        addTreeSet(HtmlTreeBuilder.TagsInBodyFormatting, BodyFormatting);
+        addTreeSet(HtmlTreeBuilder.TagsInBodyPClosers, BodyPCloser);
+        addTreeSet(HtmlTreeBuilder.TagsInBodyVoidFormatting, BodyVoidFormatting);
+        addTreeSet(HtmlTreeBuilder.TagsInBodyStartSteps, BodyStartSteps);
+        addTreeSet(HtmlTreeBuilder.TagsInBodyEndSteps, BodyEndSteps);
+
         // creates
         for (String tagName : blockTags) {
             Tag tag = new Tag(tagName);
@@ -311,7 +344,22 @@ public class Tag {
         }
     }
 
+    /**
+     * Check if this tag is in any of the tree builder tag sets.
+     * @param sets bit flags of the sets, e.g. {@link #ScopeBoundary}
+     */
+    boolean inTreeSet(int sets) {
+        return (treeSets & sets) != 0;
+    }
+
     private static void register(Tag tag) {
         tags.put(tag.tagName, tag);
     }
+
+    private static void addTreeSet(String[] tagNames, int set) {
+        for (String tagName : tagNames) {
+            Integer sets = treeSetsByName.get(tagName);
+            treeSetsByName.put(tagName, (sets != null ? sets : 0) | set);
+        }
+    }
 }
@@ -1,9 +1,7 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
-import org.jsoup.nodes.Attribute;
 import org.jsoup.nodes.Attributes;
-import org.jsoup.nodes.BooleanAttribute;
 
 /**
  * Parse tokens for the Tokeniser.
@@ -82,6 +80,9 @@ abstract class Token {
         private boolean hasPendingAttributeValue = false;
         boolean selfClosing = false;
         Attributes attributes; // start tags get attributes on construction. End tags get attributes on first new attribute (but only for parser convenience, not used).
+        int maxAttributes = 0; // if set, attributes past this count are dropped
+        RetentionPolicy retention; // if set, attributes it does not read are dropped
+        boolean droppedAttributes = false;
 
         @Override
         Tag reset() {
@@ -94,6 +95,7 @@ abstract class Token {
             hasPendingAttributeValue = false;
             selfClosing = false;
             attributes = null;
+            droppedAttributes = false;
             return this;
         }
 
@@ -104,16 +106,16 @@ abstract class Token {
             if (pendingAttributeName != null) {
                 // the tokeniser has skipped whitespace control chars, but trimming could collapse to empty for other control codes, so verify here
                 pendingAttributeName = pendingAttributeName.trim();
-                if (pendingAttributeName.length() > 0) {
-                    Attribute attribute;
+                if (pendingAttributeName.length() > 0 && maxAttributes > 0 && attributes.size() >= maxAttributes) {
+                    droppedAttributes = true;
+                } else if (pendingAttributeName.length() > 0 && (retention == null || retention.readAttribute(normalName, pendingAttributeName))) {
                     if (hasPendingAttributeValue)
-                        attribute = new Attribute(pendingAttributeName,
+                        attributes.put(pendingAttributeName,
                             pendingAttributeValue.length() > 0 ? pendingAttributeValue.toString() : pendingAttributeValueS);
                     else if (hasEmptyAttributeValue)
-                        attribute = new Attribute(pendingAttributeName, "");
+                        attributes.put(pendingAttributeName, "");
                     else
-                        attribute = new BooleanAttribute(pendingAttributeName);
-                    attributes.put(attribute);
+                        attributes.put(pendingAttributeName, true);
                 }
             }
             pendingAttributeName = null;
@@ -0,0 +1,182 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Attributes;
+
+import java.io.Reader;
+import java.util.NoSuchElementException;
+
+/**
+ * A pull reader over the HTML tokeniser, that steps through the input one token at a time without building a tree.
+ * Useful as a fast pre-filter, e.g. to check if a page has any {@code <form>} elements before paying for a full parse.
+ * <p>Usage: call {@link #next()} to advance to the next token, and then the accessors to read the current token. The
+ * token values are only valid until the next call to {@code next()}.</p>
+ * <pre>
+ * TokenReader reader = new TokenReader(html);
+ * while (reader.hasNext()) {
+ *     if (reader.next() == TokenReader.TokenType.StartTag &amp;&amp; reader.tagName().equals("form"))
+ *         return true;
+ * }
+ * </pre>
+ * <p>As no tree is built, implied elements are not generated, and misnested tags are not corrected: the tokens are
+ * as they occur in the input. The contents of {@code script}, {@code style}, {@code title}, {@code textarea} etc
+ * are read as text, as they are in a full parse. Tag and attribute names are normalized to lower case.</p>
+ */
+public class TokenReader {
+    /**
+     * The type of the current token.
+     */
+    public enum TokenType {
+        Doctype,
+        StartTag,
+        EndTag,
+        Comment,
+        Character,
+        EOF
+    }
+
+    private final Tokeniser tokeniser;
+    private Token token;
+    private TokenType type;
+
+    /**
+     * Create a token reader over a String of HTML.
+     * @param html HTML to read
+     */
+    public TokenReader(String html) {
+        this(new CharacterReader(html));
+    }
+
+    /**
+     * Create a token reader over a Reader of HTML. The input is read through a bounded buffer. The reader is not
+     * closed.
+     * @param html HTML to read
+     */
+    public TokenReader(Reader html) {
+        this(new CharacterReader(html));
+    }
+
+    private TokenReader(CharacterReader reader) {
+        tokeniser = new Tokeniser(reader, ParseErrorList.noTracking());
+    }
+
+    /**
+     * Check if there are more tokens to read.
+     * @return true until the EOF token has been read
+     */
+    public boolean hasNext() {
+        return type != TokenType.EOF;
+    }
+
+    /**
+     * Advance to the next token.
+     * @return the type of the token read. The last token in the input is {@link TokenType#EOF}.
+     * @throws NoSuchElementException if the EOF token has already been read
+     * @throws org.jsoup.UncheckedIOException if the underlying reader throws an IOException
+     */
+    public TokenType next() {
+        if (type == TokenType.EOF)
+            throw new NoSuchElementException("No more tokens");
+        if (token != null)
+            token.reset();
+
+        token = tokeniser.read();
+        switch (token.type) {
+            case Doctype:
+                type = TokenType.Doctype;
+                break;
+            case StartTag:
+                type = TokenType.StartTag;
+                Token.StartTag startTag = token.asStartTag();
+                ParseSettings.htmlDefault.normalizeAttributes(startTag.attributes);
+                if (startTag.isSelfClosing())
+                    tokeniser.acknowledgeSelfClosingFlag();
+                else
+                    transitionForContent(startTag.normalName());
+                break;
+            case EndTag:
+                type = TokenType.EndTag;
+                break;
+            case Comment:
+                type = TokenType.Comment;
+                break;
+            case Character:
+                type = TokenType.Character;
+                break;
+            default:
+                type = TokenType.EOF;
+        }
+        return type;
+    }
+
+    // the tree builder switches the tokeniser into text states for these elements; mirror that here
+    private void transitionForContent(String name) {
+        if (name.equals("title") || name.equals("textarea"))
+            tokeniser.transition(TokeniserState.Rcdata);
+        else if (name.equals("script"))
+            tokeniser.transition(TokeniserState.ScriptData);
+        else if (name.equals("style") || name.equals("xmp") || name.equals("iframe") || name.equals("noembed")
+            || name.equals("noframes"))
+            tokeniser.transition(TokeniserState.Rawtext);
+        else if (name.equals("plaintext"))
+            tokeniser.transition(TokeniserState.PLAINTEXT);
+    }
+
+    /**
+     * Get the type of the current token.
+     * @return the current token type, or null if {@link #next()} has not been called yet
+     */
+    public TokenType type() {
+        return type;
+    }
+
+    /**
+     * Get the (lower case) tag name of the current start or end tag.
+     * @return tag name
+     * @throws IllegalStateException if the current token is not a tag
+     */
+    public String tagName() {
+        if (type != TokenType.StartTag && type != TokenType.EndTag)
+            throw new IllegalStateException("Current token is not a tag");
+        return ((Token.Tag) token).normalName();
+    }
+
+    /**
+     * Get the attributes of the current start tag.
+     * @return attributes (may be empty)
+     * @throws IllegalStateException if the current token is not a start tag
+     */
+    public Attributes attributes() {
+        if (type != TokenType.StartTag)
+            throw new IllegalStateException("Current token is not a start tag");
+        return token.asStartTag().attributes;
+    }
+
+    /**
+     * Check if the current start tag is self closing (e.g. {@code <br />}).
+     * @return true if self closing
+     * @throws IllegalStateException if the current token is not a start tag
+     */
+    public boolean isSelfClosing() {
+        if (type != TokenType.StartTag)
+            throw new IllegalStateException("Current token is not a start tag");
+        return token.asStartTag().isSelfClosing();
+    }
+
+    /**
+     * Get the text of the current token: the (unescaped) character data, the comment data, or the doctype name.
+     * @return text
+     * @throws IllegalStateException if the current token is not character data, a comment, or a doctype
+     */
+    public String text() {
+        switch (token == null ? Token.TokenType.EOF : token.type) {
+            case Character:
+                return token.asCharacter().getData();
+            case Comment:
+                return token.asComment().getData();
+            case Doctype:
+                return token.asDoctype().getName();
+            default:
+                throw new IllegalStateException("Current token has no text");
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.jsoup.parser;
 
 import org.jsoup.helper.Validate;
-import org.jsoup.nodes.Entities;
 
 import java.util.Arrays;
 
@@ -16,8 +15,10 @@ final class Tokeniser {
         Arrays.sort(notCharRefCharsSorted);
     }
 
-    private final CharacterReader reader; // html input
-    private final ParseErrorList errors; // errors found while tokenising
+    private static final int maxRecycledBuilderLen = 1024 * 8; // larger builders are not kept for reuse by later parses
+
+    private CharacterReader reader; // html input
+    private ParseErrorList errors; // errors found while tokenising
 
     private TokeniserState state = TokeniserState.Data; // current tokenisation state
     private Token emitPending; // the token we are about to emit on next read
@@ -35,20 +36,182 @@ final class Tokeniser {
     private String lastStartTag; // the last start tag emitted, to test appropriate end tag
     private boolean selfClosingFlagAcknowledged = true;
 
+    // incremental input: the state to resume from if the input runs out mid token
+    private TokeniserState checkpointState;
+    private int checkpointChars;
+
     Tokeniser(CharacterReader reader, ParseErrorList errors) {
         this.reader = reader;
         this.errors = errors;
     }
 
+    /**
+     * Reset this tokeniser to read a new input, reusing its buffers and pending tokens from the previous parse.
+     */
+    void reset(CharacterReader reader, ParseErrorList errors) {
+        this.reader = reader;
+        this.errors = errors;
+        state = TokeniserState.Data;
+        emitPending = null;
+        isEmitPending = false;
+        charsString = null;
+        charsBuilder = recycle(charsBuilder);
+        dataBuffer = recycle(dataBuffer);
+        tagPending = null;
+        startPending.reset();
+        endPending.reset();
+        charPending.reset();
+        doctypePending.reset();
+        commentPending.reset();
+        maxAttributes(0);
+        lastStartTag = null;
+        selfClosingFlagAcknowledged = true;
+        checkpointState = null;
+    }
+
+    private static StringBuilder recycle(StringBuilder sb) {
+        if (sb.capacity() > maxRecycledBuilderLen)
+            return new StringBuilder(1024);
+        sb.setLength(0);
+        return sb;
+    }
+
     Token read() {
         if (!selfClosingFlagAcknowledged) {
-            error("Self closing flag not acknowledged");
+            error(ParseError.Code.UnacknowledgedSelfClosingFlag);
             selfClosingFlagAcknowledged = true;
         }
 
         while (!isEmitPending)
-            state.read(this, reader);
+            step();
+
+        return takePending();
+    }
+
+    /**
+     * Run the current state. The common states are each dispatched from their own call site, so each site only ever
+     * sees one state class and the JIT can inline its body; a single {@code state.read()} site sees every state, and is
+     * left as a virtual call. The rest fall through to that shared site.
+     */
+    private void step() {
+        final CharacterReader r = reader;
+        switch (state) {
+            case Data:
+                TokeniserState.Data.read(this, r);
+                break;
+            case CharacterReferenceInData:
+                TokeniserState.CharacterReferenceInData.read(this, r);
+                break;
+            case Rcdata:
+                TokeniserState.Rcdata.read(this, r);
+                break;
+            case Rawtext:
+                TokeniserState.Rawtext.read(this, r);
+                break;
+            case ScriptData:
+                TokeniserState.ScriptData.read(this, r);
+                break;
+            case TagOpen:
+                TokeniserState.TagOpen.read(this, r);
+                break;
+            case EndTagOpen:
+                TokeniserState.EndTagOpen.read(this, r);
+                break;
+            case TagName:
+                TokeniserState.TagName.read(this, r);
+                break;
+            case BeforeAttributeName:
+                TokeniserState.BeforeAttributeName.read(this, r);
+                break;
+            case AttributeName:
+                TokeniserState.AttributeName.read(this, r);
+                break;
+            case AfterAttributeName:
+                TokeniserState.AfterAttributeName.read(this, r);
+                break;
+            case BeforeAttributeValue:
+                TokeniserState.BeforeAttributeValue.read(this, r);
+                break;
+            case AttributeValue_doubleQuoted:
+                TokeniserState.AttributeValue_doubleQuoted.read(this, r);
+                break;
+            case AttributeValue_singleQuoted:
+                TokeniserState.AttributeValue_singleQuoted.read(this, r);
+                break;
+            case AttributeValue_unquoted:
+                TokeniserState.AttributeValue_unquoted.read(this, r);
+                break;
+            case AfterAttributeValue_quoted:
+                TokeniserState.AfterAttributeValue_quoted.read(this, r);
+                break;
+            case SelfClosingStartTag:
+                TokeniserState.SelfClosingStartTag.read(this, r);
+                break;
+            case MarkupDeclarationOpen:
+                TokeniserState.MarkupDeclarationOpen.read(this, r);
+                break;
+            case Comment:
+                TokeniserState.Comment.read(this, r);
+                break;
+            default:
+                state.read(this, r);
+        }
+    }
+
+    /**
+     * Read the next token from incrementally appended input. If the input runs out before the token is complete, the
+     * tokeniser rewinds to its last checkpoint and returns null; call again once more input has been appended.
+     * @return the next token, or null if more input is needed
+     */
+    Token readIncremental() {
+        if (!selfClosingFlagAcknowledged) {
+            error(ParseError.Code.UnacknowledgedSelfClosingFlag);
+            selfClosingFlagAcknowledged = true;
+        }
 
+        try {
+            checkpoint(); // between tokens, so no pending token is part built
+            while (!isEmitPending) {
+                if (isTextState(state))
+                    checkpoint(); // no tag, comment etc is part built, so we can resume here, keeping the pending chars
+                step();
+            }
+        } catch (CharacterReader.InputUnderrun e) {
+            rewindToCheckpoint();
+            return null;
+        }
+        return takePending();
+    }
+
+    private static boolean isTextState(TokeniserState state) {
+        return state == TokeniserState.Data || state == TokeniserState.Rcdata || state == TokeniserState.Rawtext
+            || state == TokeniserState.ScriptData || state == TokeniserState.PLAINTEXT;
+    }
+
+    private void checkpoint() {
+        reader.checkpoint();
+        checkpointState = state;
+        checkpointChars = charsBuilder.length() > 0 ? charsBuilder.length() : charsString != null ? charsString.length() : 0;
+        errors.checkpoint();
+    }
+
+    private void rewindToCheckpoint() {
+        reader.rewindToCheckpoint();
+        state = checkpointState;
+        isEmitPending = false;
+
+        // drop any chars and errors emitted after the checkpoint; they will be emitted again on resume
+        if (charsBuilder.length() > 0) {
+            charsBuilder.setLength(checkpointChars);
+            if (checkpointChars == 0)
+                charsString = null;
+        } else if (charsString != null && charsString.length() > checkpointChars) {
+            charsString = checkpointChars == 0 ? null : charsString.substring(0, checkpointChars);
+        }
+        errors.rewindToCheckpoint();
+    }
+
+    private Token takePending() {
         // if emit is pending, a non-character token was found: return any chars in buffer, and leave token for next read:
         if (charsBuilder.length() > 0) {
             String str = charsBuilder.toString();
@@ -65,6 +228,16 @@ final class Tokeniser {
         }
     }
 
+    void maxAttributes(int maxAttributes) {
+        startPending.maxAttributes = maxAttributes;
+        endPending.maxAttributes = maxAttributes;
+    }
+
+    void retention(RetentionPolicy retention) {
+        startPending.retention = retention;
+        endPending.retention = retention;
+    }
+
     void emit(Token token) {
         Validate.isFalse(isEmitPending, "There is an unread token pending!");
 
@@ -79,7 +252,7 @@ final class Tokeniser {
         } else if (token.type == Token.TokenType.EndTag) {
             Token.EndTag endTag = (Token.EndTag) token;
             if (endTag.attributes != null)
-                error("Attributes incorrectly present on end tag");
+                error(ParseError.Code.AttributesOnEndTag);
         }
     }
 
@@ -136,67 +309,69 @@ final class Tokeniser {
         if (reader.matchesAnySorted(notCharRefCharsSorted))
             return null;
 
-        final int[] codeRef = codepointHolder;
         reader.mark();
-        if (reader.matchConsume("#")) { // numbered
-            boolean isHexMode = reader.matchConsumeIgnoreCase("X");
-            String numRef = isHexMode ? reader.consumeHexSequence() : reader.consumeDigitSequence();
-            if (numRef.length() == 0) { // didn't match anything
-                characterReferenceError("numeric reference with no numerals");
-                reader.rewindToMark();
-                return null;
-            }
-            if (!reader.matchConsume(";"))
-                characterReferenceError("missing semicolon"); // missing semi
-            int charval = -1;
-            try {
-                int base = isHexMode ? 16 : 10;
-                charval = Integer.valueOf(numRef, base);
-            } catch (NumberFormatException e) {
-            } // skip
-            if (charval == -1 || (charval >= 0xD800 && charval <= 0xDFFF) || charval > 0x10FFFF) {
-                characterReferenceError("character outside of valid range");
-                codeRef[0] = replacementChar;
-                return codeRef;
-            } else {
-                // todo: implement number replacement table
-                // todo: check for extra illegal unicode points as parse errors
-                codeRef[0] = charval;
-                return codeRef;
-            }
-        } else { // named
-            // get as many letters as possible, and look for matching entities.
-            String nameRef = reader.consumeLetterThenDigitSequence();
-            boolean looksLegit = reader.matches(';');
-            // found if a base named entity without a ;, or an extended entity with the ;.
-            boolean found = (Entities.isBaseNamedEntity(nameRef) || (Entities.isNamedEntity(nameRef) && looksLegit));
-
-            if (!found) {
-                reader.rewindToMark();
-                if (looksLegit) // named with semicolon
-                    characterReferenceError(String.format("invalid named referenece '%s'", nameRef));
-                return null;
-            }
-            if (inAttribute && (reader.matchesLetter() || reader.matchesDigit() || reader.matchesAny('=', '-', '_'))) {
-                // don't want that to match
-                reader.rewindToMark();
-                return null;
-            }
-            if (!reader.matchConsume(";"))
-                characterReferenceError("missing semicolon"); // missing semi
-            int numChars = Entities.codepointsForName(nameRef, multipointHolder);
-            if (numChars == 1) {
-                codeRef[0] = multipointHolder[0];
-                return codeRef;
-            } else if (numChars ==2) {
-                return multipointHolder;
-            } else {
-                Validate.fail("Unexpected characters returned for " + nameRef);
-                return multipointHolder;
-            }
+        int[] ref = reader.matchConsume("#") ? consumeNumericReference() : consumeNamedReference(inAttribute);
+        reader.unmark();
+        return ref;
+    }
+
+    private int[] consumeNumericReference() {
+        final int[] codeRef = codepointHolder;
+        boolean isHexMode = reader.matchConsumeIgnoreCase("X");
+        int charval = reader.consumeNumber(isHexMode);
+        if (charval == -1) { // didn't match anything
+            error(ParseError.Code.CharacterReferenceNoNumerals);
+            reader.rewindToMark();
+            return null;
+        }
+        if (!reader.matchConsume(";"))
+            error(ParseError.Code.CharacterReferenceMissingSemicolon);
+        if ((charval >= 0xD800 && charval <= 0xDFFF) || charval > 0x10FFFF) {
+            error(ParseError.Code.CharacterReferenceOutOfRange);
+            codeRef[0] = replacementChar;
+            return codeRef;
+        } else {
+            // todo: implement number replacement table
+            // todo: check for extra illegal unicode points as parse errors
+            codeRef[0] = charval;
+            return codeRef;
         }
     }
 
+    private int[] consumeNamedReference(boolean inAttribute) {
+        final int[] codeRef = codepointHolder;
+        // get as many letters as possible, and look for matching entities. a run longer than any name can't match in
+        // full, so only scan one past the longest, to keep the lookahead (and the mark) bounded.
+        String nameRef = reader.consumeLetterThenDigitSequence(CharacterReferences.maxNameLength + 1);
+        boolean looksLegit = reader.matches(';');
+        // the longest base named entity, which may omit the ;, or an extended entity of the full run with the ;.
+        int matched = CharacterReferences.matchNamed(nameRef, 0, nameRef.length(), looksLegit, multipointHolder);
+
+        if (matched == 0) {
+            reader.rewindToMark();
+            if (looksLegit && errors.canAddError()) // named with semicolon
+                errors.add(ParseError.Code.CharacterReferenceInvalidName, reader, nameRef);
+            return null;
+        }
+        if (matched < nameRef.length()) { // give back the rest of the run
+            reader.rewindToMark();
+            for (int i = 0; i < matched; i++)
+                reader.advance();
+        }
+        if (inAttribute && (reader.matchesLetter() || reader.matchesDigit() || reader.matchesAny('=', '-', '_'))) {
+            // don't want that to match
+            reader.rewindToMark();
+            return null;
+        }
+        if (!reader.matchConsume(";"))
+            error(ParseError.Code.CharacterReferenceMissingSemicolon);
+        if (multipointHolder[1] == -1) {
+            codeRef[0] = multipointHolder[0];
+            return codeRef;
+        }
+        return multipointHolder;
+    }
+
     Token.Tag createTagPending(boolean start) {
         tagPending = start ? startPending.reset() : endPending.reset();
         return tagPending;
@@ -239,22 +414,17 @@ final class Tokeniser {
 
     void error(TokeniserState state) {
         if (errors.canAddError())
-            errors.add(new ParseError(reader.pos(), "Unexpected character '%s' in input state [%s]", reader.current(), state));
+            errors.add(ParseError.Code.UnexpectedCharacter, reader, reader.current(), state);
     }
 
     void eofError(TokeniserState state) {
         if (errors.canAddError())
-            errors.add(new ParseError(reader.pos(), "Unexpectedly reached end of file (EOF) in input state [%s]", state));
-    }
-
-    private void characterReferenceError(String message) {
-        if (errors.canAddError())
-            errors.add(new ParseError(reader.pos(), "Invalid character reference: %s", message));
+            errors.add(ParseError.Code.UnexpectedEof, reader, state);
     }
 
-    private void error(String errorMsg) {
+    private void error(ParseError.Code code) {
         if (errors.canAddError())
-            errors.add(new ParseError(reader.pos(), errorMsg));
+            errors.add(code, reader);
     }
 
     boolean currentNodeInHtmlNS() {
@@ -263,29 +433,4 @@ final class Tokeniser {
         // Element currentNode = currentNode();
         // return currentNode != null && currentNode.namespace().equals("HTML");
     }
-
-    /**
-     * Utility method to consume reader and unescape entities found within.
-     * @param inAttribute
-     * @return unescaped string from reader
-     */
-    String unescapeEntities(boolean inAttribute) {
-        StringBuilder builder = new StringBuilder();
-        while (!reader.isEmpty()) {
-            builder.append(reader.consumeTo('&'));
-            if (reader.matches('&')) {
-                reader.consume();
-                int[] c = consumeCharacterReference(null, inAttribute);
-                if (c == null || c.length==0)
-                    builder.append('&');
-                else {
-                    builder.appendCodePoint(c[0]);
-                    if (c.length == 2)
-                        builder.appendCodePoint(c[1]);
-                }
-
-            }
-        }
-        return builder.toString();
-    }
 }
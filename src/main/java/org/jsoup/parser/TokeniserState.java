@@ -2,7 +2,6 @@ package org.jsoup.parser;
 
 import org.jsoup.nodes.DocumentType;
 
-import java.util.Arrays;
 
 /**
  * States and transition activations for the Tokeniser.
@@ -57,7 +56,8 @@ enum TokeniserState {
                     t.emit(new Token.EOF());
                     break;
                 default:
-                    String data = r.consumeToAny('&', '<', nullChar);
+                    // a < with a letter may need to break out of the rcdata, in RcdataLessthanSign, so stops there
+                    String data = r.consumeRawText(dataStops, t.appropriateEndTagName(), false, true);
                     t.emit(data);
                     break;
             }
@@ -144,11 +144,11 @@ enum TokeniserState {
         // from < or </ in data, will have start or end tag pending
         void read(Tokeniser t, CharacterReader r) {
             // previous TagOpen state did NOT consume, will have a letter char in current
-            //String tagName = r.consumeToAnySorted(tagCharsSorted).toLowerCase();
             String tagName = r.consumeTagName();
             t.tagPending.appendTagName(tagName);
 
-            switch (r.consume()) {
+            char c = r.consume();
+            switch (c) {
                 case '\t':
                 case '\n':
                 case '\r':
@@ -169,7 +169,9 @@ enum TokeniserState {
                 case eof: // should emit pending tag?
                     t.eofError(this);
                     t.transition(Data);
-                // no default, as covered with above consumeToAny
+                    break;
+                default: // buffer underrun
+                    t.tagPending.appendTagName(c);
             }
         }
     },
@@ -342,7 +344,7 @@ enum TokeniserState {
                     t.emit(replacementChar);
                     break;
                 default:
-                    String data = r.consumeToAny('-', '<', nullChar);
+                    String data = r.consumeToAny(scriptDataEscapedStops);
                     t.emit(data);
             }
         }
@@ -467,7 +469,7 @@ enum TokeniserState {
                     t.transition(Data);
                     break;
                 default:
-                    String data = r.consumeToAny('-', '<', nullChar);
+                    String data = r.consumeToAny(scriptDataEscapedStops);
                     t.emit(data);
             }
         }
@@ -592,7 +594,7 @@ enum TokeniserState {
     AttributeName {
         // from before attribute name
         void read(Tokeniser t, CharacterReader r) {
-            String name = r.consumeToAnySorted(attributeNameCharsSorted);
+            String name = r.consumeToAny(attributeNameStops);
             t.tagPending.appendAttributeName(name);
 
             char c = r.consume();
@@ -627,7 +629,9 @@ enum TokeniserState {
                 case '<':
                     t.error(this);
                     t.tagPending.appendAttributeName(c);
-                // no default, as covered in consumeToAny
+                    break;
+                default: // buffer underrun
+                    t.tagPending.appendAttributeName(c);
             }
         }
     },
@@ -727,7 +731,7 @@ enum TokeniserState {
     },
     AttributeValue_doubleQuoted {
         void read(Tokeniser t, CharacterReader r) {
-            String value = r.consumeToAny(attributeDoubleValueCharsSorted);
+            String value = r.consumeToAny(attributeDoubleValueStops);
             if (value.length() > 0)
                 t.tagPending.appendAttributeValue(value);
             else
@@ -753,13 +757,14 @@ enum TokeniserState {
                     t.eofError(this);
                     t.transition(Data);
                     break;
-                // no default, handled in consume to any above
+                default: // buffer underrun
+                    t.tagPending.appendAttributeValue(c);
             }
         }
     },
     AttributeValue_singleQuoted {
         void read(Tokeniser t, CharacterReader r) {
-            String value = r.consumeToAny(attributeSingleValueCharsSorted);
+            String value = r.consumeToAny(attributeSingleValueStops);
             if (value.length() > 0)
                 t.tagPending.appendAttributeValue(value);
             else
@@ -785,13 +790,14 @@ enum TokeniserState {
                     t.eofError(this);
                     t.transition(Data);
                     break;
-                // no default, handled in consume to any above
+                default: // buffer underrun
+                    t.tagPending.appendAttributeValue(c);
             }
         }
     },
     AttributeValue_unquoted {
         void read(Tokeniser t, CharacterReader r) {
-            String value = r.consumeToAnySorted(attributeValueUnquoted);
+            String value = r.consumeToAny(attributeValueUnquotedStops);
             if (value.length() > 0)
                 t.tagPending.appendAttributeValue(value);
 
@@ -831,7 +837,8 @@ enum TokeniserState {
                     t.error(this);
                     t.tagPending.appendAttributeValue(c);
                     break;
-                // no default, handled in consume to any above
+                default: // buffer underrun
+                    t.tagPending.appendAttributeValue(c);
             }
 
         }
@@ -895,6 +902,8 @@ enum TokeniserState {
             Token.Comment comment = new Token.Comment();
             comment.bogus = true;
             comment.data.append(r.consumeTo('>'));
+            while (!r.isEmpty() && !r.matches('>')) // buffer underrun, keep reading to the end of the comment
+                comment.data.append(r.consumeTo('>'));
             // todo: replace nullChar with replaceChar
             t.emit(comment);
             t.advanceTransition(Data);
@@ -992,7 +1001,7 @@ enum TokeniserState {
                     t.transition(Data);
                     break;
                 default:
-                    t.commentPending.data.append(r.consumeToAny('-', nullChar));
+                    t.commentPending.data.append(r.consumeToAny(commentStops));
             }
         }
     },
@@ -1595,8 +1604,9 @@ enum TokeniserState {
         void read(Tokeniser t, CharacterReader r) {
             String data = r.consumeTo("]]>");
             t.emit(data);
-            r.matchConsume("]]>");
-            t.transition(Data);
+            if (r.matchConsume("]]>") || r.isEmpty())
+                t.transition(Data);
+            // otherwise, buffer underrun, stay in the cdata section
         }
     };
 
@@ -1604,22 +1614,20 @@ enum TokeniserState {
     abstract void read(Tokeniser t, CharacterReader r);
 
     static final char nullChar = '\u0000';
-    private static final char[] attributeSingleValueCharsSorted = new char[]{'\'', '&', nullChar};
-    private static final char[] attributeDoubleValueCharsSorted = new char[]{'"', '&', nullChar};
-    private static final char[] attributeNameCharsSorted = new char[]{'\t', '\n', '\r', '\f', ' ', '/', '=', '>', nullChar, '"', '\'', '<'};
-    private static final char[] attributeValueUnquoted = new char[]{'\t', '\n', '\r', '\f', ' ', '&', '>', nullChar, '"', '\'', '<', '=', '`'};
+    // the chars that end a run of text or a name, in each scanning state
+    static final ScanTable dataStops = new ScanTable('&', '<', nullChar); // also used by CharacterReader.consumeData()
+    private static final ScanTable scriptDataEscapedStops = new ScanTable('-', '<', nullChar);
+    private static final ScanTable commentStops = new ScanTable('-', nullChar);
+    private static final ScanTable rawDataStops = new ScanTable('<', nullChar);
+    private static final ScanTable attributeSingleValueStops = new ScanTable('\'', '&', nullChar);
+    private static final ScanTable attributeDoubleValueStops = new ScanTable('"', '&', nullChar);
+    private static final ScanTable attributeNameStops = new ScanTable('\t', '\n', '\r', '\f', ' ', '/', '=', '>', nullChar, '"', '\'', '<');
+    private static final ScanTable attributeValueUnquotedStops = new ScanTable('\t', '\n', '\r', '\f', ' ', '&', '>', nullChar, '"', '\'', '<', '=', '`');
 
     private static final char replacementChar = Tokeniser.replacementChar;
     private static final String replacementStr = String.valueOf(Tokeniser.replacementChar);
     private static final char eof = CharacterReader.EOF;
 
-    static {
-        Arrays.sort(attributeSingleValueCharsSorted);
-        Arrays.sort(attributeDoubleValueCharsSorted);
-        Arrays.sort(attributeNameCharsSorted);
-        Arrays.sort(attributeValueUnquoted);
-    }
-
     /**
      * Handles RawtextEndTagName, ScriptDataEndTagName, and ScriptDataEscapedEndTagName. Same body impl, just
      * different else exit transitions.
@@ -1678,7 +1686,8 @@ enum TokeniserState {
                 t.emit(new Token.EOF());
                 break;
             default:
-                String data = r.consumeToAny('<', nullChar);
+                // bulk scan to the next end tag candidate; in script data, also to an escape's <!--
+                String data = r.consumeRawText(rawDataStops, t.appropriateEndTagName(), current == ScriptData, false);
                 t.emit(data);
                 break;
         }
@@ -1,11 +1,16 @@
 package org.jsoup.parser;
 
+import org.jsoup.UncheckedIOException;
 import org.jsoup.helper.Validate;
 import org.jsoup.nodes.Attributes;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.Evaluator;
 
-import java.util.ArrayList;
+import java.io.InterruptedIOException;
+import java.io.Reader;
 
 /**
  * @author Jonathan Hedley
@@ -14,49 +19,213 @@ abstract class TreeBuilder {
     CharacterReader reader;
     Tokeniser tokeniser;
     protected Document doc; // current doc we are building into
-    protected ArrayList<Element> stack; // the stack of open elements
-    protected String baseUri; // current base uri, for creating new elements
+    protected ElementStack stack; // the stack of open elements
+    protected String baseUri; // current base uri. held on the document, which nodes resolve it from
     protected Token currentToken; // currentToken is used only for error tracking.
     protected ParseErrorList errors; // null when not tracking errors
     protected ParseSettings settings;
+    ParseHandler handler; // if set, parse events are sent to the handler, and the tree is not retained
+    Evaluator extractQuery; // if set, completed elements that match are sent to the extractHandler, and detached
+    ElementHandler extractHandler;
+    ParseLimits limits; // null if unlimited
+    SymbolTable symbols; // null if strings are not shared across documents
+    RetentionPolicy retention; // null if all nodes are retained
+    Evaluator stopQuery; // if set, the parse stops once an element matching this is complete
+    boolean stopAfterHead; // if set, the parse stops once the head is complete (html only)
+    boolean stopped; // set when a stop condition is met
+    boolean trustWellFormed; // if set, html parses take a fast path until the input is found malformed
+
+    private int nodeCount; // when limited, the count of node tokens processed
+    private int tokenCount;
+    private long deadline; // nanoTime the parse must complete by, if a timeout is set
+    private boolean reportedTruncated;
 
     private Token.StartTag start = new Token.StartTag(); // start tag to process
     private Token.EndTag end  = new Token.EndTag();
 
     abstract ParseSettings defaultSettings();
 
-    protected void initialiseParse(String input, String baseUri, ParseErrorList errors, ParseSettings settings) {
-        Validate.notNull(input, "String input must not be null");
+    protected void initialiseParse(CharacterReader input, String baseUri, ParseErrorList errors, ParseSettings settings) {
+        Validate.notNull(input, "Input must not be null");
         Validate.notNull(baseUri, "BaseURI must not be null");
 
         doc = new Document(baseUri);
         this.settings = settings;
-        reader = new CharacterReader(input);
+        reader = input;
         this.errors = errors;
-        tokeniser = new Tokeniser(reader, errors);
-        stack = new ArrayList<Element>(32);
+        if (tokeniser == null)
+            tokeniser = new Tokeniser(reader, errors);
+        else
+            tokeniser.reset(reader, errors); // reuses its buffers from the previous parse
+        if (handler != null)
+            stack = new EventStack(handler);
+        else if (tracksClosedElements())
+            stack = new ExtractingStack(this);
+        else if (stack != null && stack.getClass() == ElementStack.class)
+            stack.clear();
+        else
+            stack = new ElementStack();
         this.baseUri = baseUri;
+        stopped = false;
+        if (symbols != null)
+            reader.symbols(symbols);
+        if (errors.getMaxSize() > 0)
+            reader.trackLines(); // for error line numbers
+        tokeniser.retention(retention);
+
+        if (limits != null) {
+            nodeCount = 0;
+            tokenCount = 0;
+            reportedTruncated = false;
+            deadline = limits.timeout() > 0 ? System.nanoTime() + limits.timeout() * 1000000L : 0;
+            if (limits.maxChars() > 0)
+                reader.maxChars(limits.maxChars());
+            if (limits.maxAttributes() > 0)
+                tokeniser.maxAttributes(limits.maxAttributes());
+        }
     }
 
     Document parse(String input, String baseUri, ParseErrorList errors, ParseSettings settings) {
+        Validate.notNull(input, "String input must not be null");
+        return parse(new CharacterReader(input, reader), baseUri, errors, settings);
+    }
+
+    Document parse(Reader input, String baseUri, ParseErrorList errors, ParseSettings settings) {
+        Validate.notNull(input, "Reader input must not be null");
+        return parse(new CharacterReader(input, reader), baseUri, errors, settings);
+    }
+
+    /**
+     * Drop references to the last parse's input and document, keeping the buffers that the next parse can reuse. Used
+     * when holding this tree builder in a pool between parses.
+     */
+    void release() {
+        doc = null;
+        if (stack != null)
+            stack.clear();
+        currentToken = null;
+        errors = null;
+        baseUri = null;
+        if (reader != null && !reader.isRecyclable())
+            reader = null;
+        if (tokeniser != null)
+            tokeniser.reset(reader, null);
+    }
+
+    Document parse(CharacterReader input, String baseUri, ParseErrorList errors, ParseSettings settings) {
         initialiseParse(input, baseUri, errors, settings);
         runParser();
+        if (handler != null || extractQuery != null) { // end any elements left open at the end of the input
+            while (!stack.isEmpty())
+                stack.remove(stack.size() - 1);
+        }
         return doc;
     }
 
+    /**
+     * Get the attributes for an element created from a start tag, without those the retention policy does not retain.
+     * Called once tree construction has read the tag's attributes.
+     */
+    Attributes retainedAttributes(Token.StartTag startTag) {
+        return retention != null ? retention.retained(startTag.normalName(), startTag.attributes) : startTag.attributes;
+    }
+
     protected void runParser() {
         while (true) {
             Token token = tokeniser.read();
             process(token);
+            boolean stop = (limits != null && exceedsLimits(token)) || stopped;
             token.reset();
 
-            if (token.type == Token.TokenType.EOF)
+            if (token.type == Token.TokenType.EOF || stop)
                 break;
         }
     }
 
+    /**
+     * Process tokens from incrementally appended input, until that input runs out, or the end of input is processed.
+     * @return true if the end of input has been processed
+     */
+    boolean runParserIncremental() {
+        while (true) {
+            Token token = tokeniser.readIncremental();
+            if (token == null)
+                return false;
+            process(token);
+            boolean stop = (limits != null && exceedsLimits(token)) || stopped;
+            token.reset();
+
+            if (token.type == Token.TokenType.EOF || stop)
+                return true;
+        }
+    }
+
+    /**
+     * Check the parse against its limits, after a token has been processed. Throws if a limit is exceeded and the
+     * limits are set to throw. Also checks if the thread has been interrupted.
+     * @return true if the parse should stop here
+     */
+    private boolean exceedsLimits(Token token) {
+        if (token.type != Token.TokenType.EndTag && token.type != Token.TokenType.EOF)
+            nodeCount++;
+        if (token.type == Token.TokenType.StartTag && ((Token.Tag) token).droppedAttributes)
+            exceeded(ParseLimits.Limit.attributes); // already truncated, so continue
+        if (!reportedTruncated && reader.isTruncated()) {
+            reportedTruncated = true;
+            exceeded(ParseLimits.Limit.chars); // will run to the truncated end of input
+        }
+        if (limits.maxNodes() > 0 && nodeCount > limits.maxNodes())
+            return exceeded(ParseLimits.Limit.nodes);
+        if (limits.maxDepth() > 0 && stack.size() > limits.maxDepth())
+            return exceeded(ParseLimits.Limit.depth);
+
+        if ((++tokenCount & 0x3F) == 0) { // these are slower to check
+            if (Thread.currentThread().isInterrupted())
+                throw new UncheckedIOException(new InterruptedIOException("Parse interrupted"));
+            if (deadline != 0 && System.nanoTime() - deadline > 0)
+                return exceeded(ParseLimits.Limit.time);
+        }
+        return false;
+    }
+
+    private boolean exceeded(ParseLimits.Limit limit) {
+        if (limits.throwOnExceed())
+            throw new ParseLimitException(limit, reader.pos());
+        if (errors.canAddError())
+            errors.add(ParseError.Code.LimitExceeded, reader, limit);
+        return true;
+    }
+
     protected abstract boolean process(Token token);
 
+    /**
+     * If completed elements are checked, for a streaming extraction parse or a stop query.
+     */
+    final boolean tracksClosedElements() {
+        return extractQuery != null || stopQuery != null;
+    }
+
+    /**
+     * Called in a streaming extraction parse or a parse with a stop query when an element is complete: when it is
+     * removed from the stack, or was inserted as an empty element. If it matches the stop query, the parse stops after
+     * the current token. If it matches the extraction query, it is handed to the handler and then detached (keeping its
+     * base URI), along with any whitespace text just before it.
+     */
+    void elementClosed(Element el) {
+        if (el.parent() == null)
+            return;
+        if (stopQuery != null && !stopped && stopQuery.matches(doc, el))
+            stopped = true;
+        if (extractQuery == null || !extractQuery.matches(doc, el))
+            return;
+        extractHandler.handle(el);
+        el.setBaseUri(el.baseUri()); // hold the base URI once detached from the document
+        Node prev = el.previousSibling();
+        if (prev instanceof TextNode && ((TextNode) prev).isBlank())
+            prev.remove();
+        el.remove();
+    }
+
     protected boolean processStartTag(String name) {
         if (currentToken == start) { // don't recycle an in-use token
             return process(new Token.StartTag().name(name));
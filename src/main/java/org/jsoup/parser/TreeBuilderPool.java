@@ -0,0 +1,51 @@
+package org.jsoup.parser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A small shared pool of HTML tree builders, so that the static parse methods reuse the reader and tokeniser buffers of
+ * earlier parses, instead of allocating them afresh for every document.
+ * <p>The pool is lock free: a builder is claimed by swapping it out of its slot, so any thread, including short lived
+ * virtual threads, can borrow without blocking. If all slots are empty a new builder is created, and if all are full a
+ * returned builder is left to be collected. A builder that failed mid parse is not returned.</p>
+ */
+final class TreeBuilderPool {
+    private static final int size = Math.min(64, Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+    private static final AtomicReferenceArray<HtmlTreeBuilder> slots = new AtomicReferenceArray<HtmlTreeBuilder>(size);
+
+    private TreeBuilderPool() {}
+
+    /**
+     * Take a builder from the pool, or create one if none are free.
+     */
+    static HtmlTreeBuilder borrow() {
+        int start = start();
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            if (slots.get(slot) != null) {
+                HtmlTreeBuilder treeBuilder = slots.getAndSet(slot, null);
+                if (treeBuilder != null)
+                    return treeBuilder;
+            }
+        }
+        return new HtmlTreeBuilder();
+    }
+
+    /**
+     * Return a builder to the pool once its parse is complete. Its references to the parsed document are dropped.
+     */
+    static void release(HtmlTreeBuilder treeBuilder) {
+        treeBuilder.release();
+        int start = start();
+        for (int i = 0; i < size; i++) {
+            int slot = (start + i) % size;
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, treeBuilder))
+                return;
+        }
+    }
+
+    private static int start() {
+        // spread threads over the slots, to lessen contention
+        return (int) ((Thread.currentThread().getId() & Integer.MAX_VALUE) % size);
+    }
+}
@@ -23,7 +23,7 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     @Override
-    protected void initialiseParse(String input, String baseUri, ParseErrorList errors, ParseSettings settings) {
+    protected void initialiseParse(CharacterReader input, String baseUri, ParseErrorList errors, ParseSettings settings) {
         super.initialiseParse(input, baseUri, errors, settings);
         stack.add(doc); // place the document onto the stack. differs from HtmlTreeBuilder (not on stack)
         doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
@@ -63,20 +63,34 @@ public class XmlTreeBuilder extends TreeBuilder {
     Element insert(Token.StartTag startTag) {
         Tag tag = Tag.valueOf(startTag.name(), settings);
         // todo: wonder if for xml parsing, should treat all tags as unknown? because it's not html.
-        Element el = new Element(tag, baseUri, settings.normalizeAttributes(startTag.attributes));
-        insertNode(el);
+        Element el = new Element(tag, "", settings.normalizeAttributes(retainedAttributes(startTag)));
         if (startTag.isSelfClosing()) {
             tokeniser.acknowledgeSelfClosingFlag();
             if (!tag.isKnownTag()) // unknown tag, remember this is self closing for output. see above.
                 tag.setSelfClosing();
+            if (handler != null) {
+                handler.startElement(el.tagName(), el.attributes());
+                handler.endElement(el.tagName());
+            } else {
+                insertNode(el);
+                if (tracksClosedElements())
+                    elementClosed(el);
+            }
         } else {
+            insertNode(el);
             stack.add(el);
         }
         return el;
     }
 
     void insert(Token.Comment commentToken) {
-        Comment comment = new Comment(commentToken.getData(), baseUri);
+        if (handler != null) {
+            handler.comment(commentToken.getData());
+            return;
+        }
+        if (retention != null && !commentToken.bogus && !retention.retainComment(currentElement()))
+            return;
+        Comment comment = new Comment(commentToken.getData());
         Node insert = comment;
         if (commentToken.bogus) { // xml declarations are emitted as bogus comments (which is right for html, but not xml)
             // so we do a bit of a hack and parse the data as an element to pull the attributes out
@@ -84,7 +98,7 @@ public class XmlTreeBuilder extends TreeBuilder {
             if (data.length() > 1 && (data.startsWith("!") || data.startsWith("?"))) {
                 Document doc = Jsoup.parse("<" + data.substring(1, data.length() -1) + ">", baseUri, Parser.xmlParser());
                 Element el = doc.child(0);
-                insert = new XmlDeclaration(settings.normalizeTag(el.tagName()), comment.baseUri(), data.startsWith("!"));
+                insert = new XmlDeclaration(settings.normalizeTag(el.tagName()), data.startsWith("!"));
                 insert.attributes().addAll(el.attributes());
             }
         }
@@ -92,12 +106,23 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     void insert(Token.Character characterToken) {
-        Node node = new TextNode(characterToken.getData(), baseUri);
+        if (handler != null) {
+            handler.text(characterToken.getData());
+            return;
+        }
+        if (retention != null && !retention.retainText(currentElement(), characterToken.getData()))
+            return;
+        Node node = new TextNode(characterToken.getData());
         insertNode(node);
     }
 
     void insert(Token.Doctype d) {
-        DocumentType doctypeNode = new DocumentType(settings.normalizeTag(d.getName()), d.getPubSysKey(), d.getPublicIdentifier(), d.getSystemIdentifier(), baseUri);
+        if (handler != null) {
+            handler.doctype(settings.normalizeTag(d.getName()), d.getPublicIdentifier(), d.getSystemIdentifier());
+            return;
+        }
+        DocumentType doctypeNode = new DocumentType(settings.normalizeTag(d.getName()), d.getPublicIdentifier(), d.getSystemIdentifier());
+        doctypeNode.setPubSysKey(d.getPubSysKey());
         insertNode(doctypeNode);
     }
 
@@ -130,7 +155,7 @@ public class XmlTreeBuilder extends TreeBuilder {
     }
 
     List<Node> parseFragment(String inputFragment, String baseUri, ParseErrorList errors, ParseSettings settings) {
-        initialiseParse(inputFragment, baseUri, errors, settings);
+        initialiseParse(new CharacterReader(inputFragment, reader), baseUri, errors, settings);
         runParser();
         return doc.childNodes();
     }
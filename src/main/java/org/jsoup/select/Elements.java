@@ -430,9 +430,23 @@ public class Elements extends ArrayList<Element> {
      * @see #empty()
      */
     public Elements remove() {
+        // removed from each parent in one pass, as removing one at a time is slow for a wide parent
+        Map<Element, List<Node>> byParent = new IdentityHashMap<Element, List<Node>>();
         for (Element element : this) {
-            element.remove();
+            Element parent = element.parent();
+            if (parent == null) {
+                element.remove(); // not in a tree; fails
+                continue;
+            }
+            List<Node> children = byParent.get(parent);
+            if (children == null) {
+                children = new ArrayList<Node>();
+                byParent.put(parent, children);
+            }
+            children.add(element);
         }
+        for (Map.Entry<Element, List<Node>> entry : byParent.entrySet())
+            entry.getKey().removeChildren(entry.getValue());
         return this;
     }
     
@@ -394,7 +394,7 @@ public abstract class Evaluator {
 		@Override
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
-			return p != null && !(p instanceof Document) && element.elementSiblingIndex() == p.children().size()-1;
+			return p != null && !(p instanceof Document) && element.elementSiblingIndex() == p.childrenSize()-1;
 		}
     	
 		@Override
@@ -493,7 +493,7 @@ public abstract class Evaluator {
 
         @Override
         protected int calculatePosition(Element root, Element element) {
-        	return element.parent().children().size() - element.elementSiblingIndex();
+        	return element.parent().childrenSize() - element.elementSiblingIndex();
         }
         
 		@Override
@@ -513,10 +513,9 @@ public abstract class Evaluator {
 
 		protected int calculatePosition(Element root, Element element) {
 			int pos = 0;
-        	Elements family = element.parent().children();
-            for (Element el : family) {
-                if (el.tag().equals(element.tag())) pos++;
-                if (el == element) break;
+        	final Element parent = element.parent();
+        	for (int i = 0, index = element.elementSiblingIndex(); i <= index; i++) {
+                if (parent.child(i).tag().equals(element.tag())) pos++;
             }
 			return pos;
 		}
@@ -536,9 +535,9 @@ public abstract class Evaluator {
 		@Override
 		protected int calculatePosition(Element root, Element element) {
 			int pos = 0;
-        	Elements family = element.parent().children();
-        	for (int i = element.elementSiblingIndex(); i < family.size(); i++) {
-        		if (family.get(i).tag().equals(element.tag())) pos++;
+        	final Element parent = element.parent();
+        	for (int i = element.elementSiblingIndex(), size = parent.childrenSize(); i < size; i++) {
+        		if (parent.child(i).tag().equals(element.tag())) pos++;
         	}
 			return pos;
 		}
@@ -586,7 +585,7 @@ public abstract class Evaluator {
 		@Override
 		public boolean matches(Element root, Element element) {
 			final Element p = element.parent();
-			return p!=null && !(p instanceof Document) && element.siblingElements().size() == 0;
+			return p!=null && !(p instanceof Document) && p.childrenSize() == 1;
 		}
     	@Override
     	public String toString() {
@@ -601,9 +600,8 @@ public abstract class Evaluator {
 			if (p==null || p instanceof Document) return false;
 			
 			int pos = 0;
-        	Elements family = p.children();
-            for (Element el : family) {
-                if (el.tag().equals(element.tag())) pos++;
+        	for (int i = 0, size = p.childrenSize(); i < size; i++) {
+                if (p.child(i).tag().equals(element.tag())) pos++;
             }
         	return pos == 1;
 		}
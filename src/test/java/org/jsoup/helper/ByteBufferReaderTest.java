@@ -0,0 +1,67 @@
+package org.jsoup.helper;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+public class ByteBufferReaderTest {
+    private static final String text = "<p title=\"café\">新聞 😀 &amp; more</p>";
+
+    @Test public void decodesUtf8() throws IOException {
+        Charset utf8 = Charset.forName("UTF-8");
+        assertEquals(text, readAll(new ByteBufferReader(utf8.encode(text), utf8), 1024));
+        assertEquals(text, readAll(new ByteBufferReader(utf8.encode(text), utf8), 1)); // splits the surrogate pair
+        assertEquals(text, readAll(new ByteBufferReader(utf8.encode(text), utf8), 3));
+    }
+
+    @Test public void decodesSingleByteAndOtherCharsets() throws IOException {
+        String latin = "<p>café ü</p>";
+        Charset latin1 = Charset.forName("ISO-8859-1");
+        assertEquals(latin, readAll(new ByteBufferReader(latin1.encode(latin), latin1), 4));
+
+        String jp = "<p>日本語</p>";
+        Charset sjis = Charset.forName("Shift_JIS");
+        assertEquals(jp, readAll(new ByteBufferReader(sjis.encode(jp), sjis), 1));
+        assertEquals(jp, readAll(new ByteBufferReader(sjis.encode(jp), sjis), 100));
+    }
+
+    @Test public void readsNulCharsOneAtATime() throws IOException {
+        String nuls = "A\u0000B\u0000\u0000C😀\u0000";
+        for (String name : new String[] {"UTF-16BE", "UTF-16LE", "Shift_JIS", "UTF-8", "ISO-8859-1"}) {
+            Charset charset = Charset.forName(name);
+            String input = charset.newEncoder().canEncode(nuls) ? nuls : "A\u0000B\u0000\u0000C\u0000";
+            Reader reader = new ByteBufferReader(charset.encode(input), charset);
+            StringBuilder sb = new StringBuilder();
+            int c;
+            while ((c = reader.read()) != -1)
+                sb.append((char) c);
+            assertEquals(name, input, sb.toString());
+            assertEquals(name, input, readAll(new ByteBufferReader(charset.encode(input), charset), 1));
+        }
+    }
+
+    @Test public void replacesMalformedUtf8() throws IOException {
+        byte[] bytes = {'a', (byte) 0x80, 'b', (byte) 0xE6, (byte) 0x96, 'c', (byte) 0xC0, (byte) 0xAF, (byte) 0xE6};
+        assertEquals("a�b�c���", readAll(new ByteBufferReader(ByteBuffer.wrap(bytes), Charset.forName("UTF-8")), 16));
+    }
+
+    @Test public void doesNotMoveBufferPosition() throws IOException {
+        ByteBuffer bytes = Charset.forName("UTF-8").encode(text);
+        readAll(new ByteBufferReader(bytes, Charset.forName("UTF-8")), 16);
+        assertEquals(0, bytes.position());
+    }
+
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[chunk];
+        int read;
+        while ((read = reader.read(buf, 0, chunk)) != -1)
+            sb.append(buf, 0, read);
+        return sb.toString();
+    }
+}
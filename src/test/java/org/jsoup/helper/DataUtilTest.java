@@ -1,5 +1,6 @@
 package org.jsoup.helper;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -124,4 +125,33 @@ public class DataUtilTest {
         assertTrue(doc.title().contains("UTF-32LE"));
         assertTrue(doc.text().contains("가각갂갃간갅"));
     }
+
+    @Test
+    public void prescansMetaCharsetBeforeDecoding() throws IOException {
+        String html = "<html><head><!-- <meta charset=koi8-r> --><title x='<meta charset=ascii>'>\u041f</title>" +
+            "<meta http-equiv=\"Content-Type\" content=\"text/html; charset=windows-1251\"></head><body>\u041f\u0440</body></html>";
+        byte[] bytes = html.getBytes("windows-1251");
+
+        Document doc = DataUtil.parseByteData(ByteBuffer.wrap(bytes), null, "http://example.com/", Parser.htmlParser());
+        assertEquals("windows-1251", doc.outputSettings().charset().name());
+        assertEquals("\u041f\u0440", doc.body().text());
+
+        doc = DataUtil.load(new ByteArrayInputStream(bytes), null, "http://example.com/");
+        assertEquals("windows-1251", doc.outputSettings().charset().name());
+        assertEquals("\u041f", doc.title());
+    }
+
+    @Test
+    public void prescanFindsCharsetAndXmlEncoding() {
+        assertEquals("gb2312", prescan("<html><head><META CHARSET = 'GB2312'>"));
+        assertEquals("iso-8859-1", prescan("<meta name=x content=\"charset=utf-8\"><meta charset=iso-8859-1>")); // content w/o http-equiv ignored
+        assertEquals("iso-8859-1", prescan("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><data/>"));
+        assertEquals("UTF-8", prescan("<meta charset=utf-16le>")); // ascii markup can't declare utf-16
+        assertEquals(null, prescan("<html><head><meta charset=iso-8></head>"));
+        assertEquals(null, prescan("<p>charset=gb2312</p>"));
+    }
+
+    private static String prescan(String html) {
+        return CharsetPrescanner.prescan(Charset.forName("UTF-8").encode(html));
+    }
 }
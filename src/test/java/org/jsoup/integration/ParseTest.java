@@ -3,6 +3,7 @@ package org.jsoup.integration;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
 import org.jsoup.select.Elements;
 import org.junit.Test;
 
@@ -168,6 +169,51 @@ public class ParseTest {
         assertEquals("In July, GM said its electric Chevrolet Volt will be sold in the United States at $41,000 -- $8,000 more than its nearest competitor, the Nissan Leaf.", p.text());
     }
 
+    @Test
+    public void testStreamedParseMatchesStringParse() throws IOException {
+        // these are all larger than the streaming reader's buffer, so exercise the window sliding
+        String[] files = {"/htmltests/news-com-au-home.html", "/htmltests/google-ipod.html", "/htmltests/nyt-article-1.html"};
+        for (String file : files) {
+            String html = readString(getFile(file), "UTF-8");
+            Document fromString = Jsoup.parse(html, "http://example.com/");
+            Document fromReader = Parser.htmlParser().parseInput(new StringReader(html), "http://example.com/");
+            assertEquals(fromString.outerHtml(), fromReader.outerHtml());
+        }
+    }
+
+    @Test
+    public void testStreamedRcdataPastBufferMatchesStringParse() throws IOException {
+        // the </title> and </textarea> lookahead must find end tags beyond the streaming reader's buffer window
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 40000; i++)
+            sb.append('y');
+        String[] inputs = {
+            "<title><b>x" + sb + "</title><p>z",
+            "<title><b>x" + sb + "<p>z",
+            "<textarea><b>x" + sb + sb + "</TEXTAREA><p>z",
+        };
+        for (String html : inputs) {
+            Document fromString = Jsoup.parse(html);
+            Document fromStream = Jsoup.parse(inputStreamFrom(html), "UTF-8", "");
+            assertEquals(fromString.outerHtml(), fromStream.outerHtml());
+        }
+        assertEquals(0, Jsoup.parse(inputStreamFrom(inputs[0]), "UTF-8", "").select("b").size());
+    }
+
+    static String readString(File in, String charset) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(in), charset);
+        try {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[4096];
+            int read;
+            while ((read = reader.read(buf)) != -1)
+                sb.append(buf, 0, read);
+            return sb.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
     public static File getFile(String resourceName) {
         try {
             File file = new File(ParseTest.class.getResource(resourceName).toURI());
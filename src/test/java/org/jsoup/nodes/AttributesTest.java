@@ -3,6 +3,7 @@ package org.jsoup.nodes;
 import org.junit.Test;
 
 import java.util.Iterator;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -99,4 +100,89 @@ public class AttributesTest {
         assertFalse(a.hasKey("Tot"));
     }
 
+    @Test
+    public void attributesAreViews() {
+        Attributes a = new Attributes();
+        a.put("one", "1");
+        a.put("two", "2");
+
+        for (Attribute attribute : a) {
+            attribute.setValue(attribute.getValue() + "0");
+        }
+        Attribute first = a.asList().get(0);
+        first.setKey("One");
+        assertEquals(" One=\"10\" two=\"20\"", a.html());
+
+        Attribute three = new Attribute("three", "3");
+        a.put(three);
+        three.setValue("30");
+        assertEquals("30", a.get("three"));
+
+        Attribute clone = three.clone();
+        clone.setValue("300");
+        assertEquals("30", a.get("three"));
+    }
+
+    @Test
+    public void growsAndShrinksInOrder() {
+        Attributes a = new Attributes();
+        for (int i = 0; i < 50; i++)
+            a.put("k" + i, String.valueOf(i));
+        a.put("k10", "ten"); // replaces in place
+        assertEquals(50, a.size());
+        assertEquals("ten", a.asList().get(10).getValue());
+
+        for (int i = 0; i < 50; i += 2)
+            a.remove("k" + i);
+        assertEquals(25, a.size());
+        assertEquals("k1", a.asList().get(0).getKey());
+        assertEquals("k49", a.asList().get(24).getKey());
+        assertFalse(a.hasKey("k10"));
+        assertEquals("", a.get("k10"));
+    }
+
+    @Test
+    public void equalsIgnoresOrder() {
+        Attributes a = new Attributes();
+        a.put("one", "1");
+        a.put("two", true);
+        Attributes b = new Attributes();
+        b.put("two", "");
+        b.put("one", "1");
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+
+        Attributes c = a.clone();
+        c.put("one", "2");
+        assertFalse(a.equals(c));
+        assertEquals("1", a.get("one"));
+        assertEquals(" one=\"1\" two", a.html());
+    }
+
+    @Test
+    public void removesIgnoreCase() {
+        Attributes a = new Attributes();
+        a.put("Tot", "a&p");
+        a.put("tot", "one");
+        a.put("Hello", "There");
+        a.removeIgnoreCase("TOT");
+        assertEquals(1, a.size());
+        assertEquals("There", a.getIgnoreCase("HELLO"));
+    }
+
+    @Test
+    public void datasetIteratorRemoves() {
+        Attributes a = new Attributes();
+        a.put("data-one", "1");
+        a.put("data-two", "2");
+        a.put("id", "x");
+        a.put("data-three", "3");
+
+        Iterator<Map.Entry<String, String>> it = a.dataset().entrySet().iterator();
+        while (it.hasNext()) {
+            if (!it.next().getKey().equals("three"))
+                it.remove();
+        }
+        assertEquals(" id=\"x\" data-three=\"3\"", a.html());
+    }
 }
@@ -7,6 +7,10 @@ import org.jsoup.select.Elements;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.Assert.*;
 
@@ -102,6 +106,109 @@ public class ElementTest {
         assertEquals("Hello there", doc.text());
     }
 
+    @Test public void textComposesFromMemoizedChildren() {
+        Document doc = Jsoup.parse("<div>One<span> <p>Two</p> three</span><b> four</b> <i><br>five</i></div>");
+        assertFalse(doc.memoizeText());
+        doc.memoizeText(true);
+        Element div = doc.select("div").first();
+        // descendants first, so the div's text joins theirs
+        assertEquals("four", doc.select("b").text());
+        assertEquals("five", doc.select("i").text());
+        assertEquals("Two three", doc.select("span").text());
+        assertEquals("One Two three four five", div.text());
+        assertEquals("One Two three four five", doc.text());
+        assertTrue(div.hasText());
+    }
+
+    @Test public void textFollowsMutations() {
+        Document doc = Jsoup.parse("<div><p>One <b>Two</b></p><p>Three</p></div>").memoizeText(true);
+        Element div = doc.select("div").first();
+        Element b = doc.select("b").first();
+        assertEquals("One Two Three", div.text());
+
+        b.textNodes().get(0).text("2");
+        assertEquals("One 2 Three", div.text());
+        b.append("<i>!</i>");
+        assertEquals("One 2! Three", div.text());
+        b.tagName("div");
+        assertEquals("One 2! Three", div.text());
+        b.textNodes().get(0).attr("text", "  Two  ");
+        assertEquals("One Two ! Three", div.text());
+
+        Element pre = doc.body().appendElement("pre");
+        pre.appendChild(b);
+        assertEquals("One Three", div.text());
+        assertEquals("Two  !", pre.text());
+
+        div.child(1).remove();
+        assertEquals("One", div.text());
+        div.child(0).text(" ");
+        assertEquals("", div.text());
+        assertFalse(div.hasText());
+        assertEquals("Two  !", doc.text());
+    }
+
+    @Test public void textFollowsWritesToHeldAttributes() {
+        Document doc = Jsoup.parse("<div><p>One <b>Two</b></p></div>").memoizeText(true);
+        Element div = doc.select("div").first();
+        TextNode two = doc.select("b").first().textNodes().get(0);
+        Attributes attributes = two.attributes();
+        assertEquals("Two", two.attr("text"));
+        assertEquals("One Two", div.text());
+
+        attributes.put("text", "2");
+        assertEquals("One 2", div.text());
+        for (Attribute attribute : attributes)
+            attribute.setValue("II");
+        assertEquals("One II", div.text());
+        attributes.put("data-x", "y"); // not the text
+        assertEquals("One II", div.text());
+        attributes.remove("text");
+        assertEquals("One", div.text());
+
+        TextNode clone = (TextNode) doc.select("p").first().clone().childNode(0);
+        Element holder = doc.body().appendElement("div");
+        holder.appendChild(clone);
+        assertEquals("One", holder.text());
+        clone.attributes().put("text", "Uno");
+        assertEquals("Uno", holder.text());
+        assertEquals("One", div.text());
+    }
+
+    @Test public void memoizedTextIsSafeToReadConcurrently() throws Exception {
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 200; i++)
+            html.append("<div>Item ").append(i).append(" <p>Para <b>").append(i).append("</b> <i><br>x</i></p></div>");
+        List<String> expected = new ArrayList<String>();
+        for (Element el : Jsoup.parse(html.toString()).getAllElements()) // not memoized
+            expected.add(el.text());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 20; round++) {
+                final Elements els = Jsoup.parse(html.toString()).memoizeText(true).getAllElements();
+                List<Future<List<String>>> results = new ArrayList<Future<List<String>>>();
+                for (int t = 0; t < 8; t++) {
+                    final int start = t * els.size() / 8;
+                    results.add(executor.submit(new Callable<List<String>>() {
+                        public List<String> call() {
+                            String[] texts = new String[els.size()];
+                            for (int i = 0; i < els.size(); i++) { // each starts at a different element, so all race
+                                int j = (start + i) % els.size();
+                                texts[j] = els.get(j).text();
+                            }
+                            return Arrays.asList(texts);
+                        }
+                    }));
+                }
+                for (Future<List<String>> result : results)
+                    assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test public void testGetSiblings() {
         Document doc = Jsoup.parse("<div><p>Hello<p id=1>there<p>this<p>is<p>an<p id=last>element</div>");
         Element p = doc.getElementById("1");
@@ -152,6 +259,57 @@ public class ElementTest {
         assertTrue(2 == ps.get(2).elementSiblingIndex());
     }
 
+    @Test public void elementSiblingIndexFollowsMutations() {
+        Document doc = Jsoup.parse("<div><p id=1>One</p> text <p id=2>Two</p><!-- c --><p id=3>Three</p></div>");
+        Element div = doc.select("div").first();
+        Element p2 = doc.getElementById("2");
+        assertEquals(1, p2.elementSiblingIndex());
+        assertEquals(3, div.childrenSize());
+
+        div.prependElement("h1");
+        assertEquals(2, p2.elementSiblingIndex());
+        assertEquals("1", p2.previousElementSibling().id());
+        assertEquals("3", p2.nextElementSibling().id());
+
+        doc.getElementById("1").remove();
+        assertEquals(1, p2.elementSiblingIndex());
+        assertEquals("h1", p2.previousElementSibling().tagName());
+
+        doc.getElementById("3").replaceWith(new Element(Tag.valueOf("span"), ""));
+        assertEquals("span", p2.nextElementSibling().tagName());
+        assertEquals("span", p2.lastElementSibling().tagName());
+        assertEquals("h1", p2.firstElementSibling().tagName());
+
+        p2.before(new TextNode("more", ""));
+        div.appendElement("em");
+        assertEquals(1, p2.elementSiblingIndex());
+        assertEquals(4, div.childrenSize());
+        assertEquals("em", div.child(3).tagName());
+
+        Element clone = div.clone();
+        clone.child(0).remove();
+        assertEquals(3, clone.childrenSize());
+        assertEquals(4, div.childrenSize());
+
+        div.empty();
+        assertEquals(0, div.childrenSize());
+        assertNull(p2.nextElementSibling());
+    }
+
+    @Test public void navigatesWideSiblingLists() {
+        StringBuilder sb = new StringBuilder("<table>");
+        for (int i = 0; i < 10000; i++)
+            sb.append("<tr><td>").append(i).append("</td></tr>\n");
+        Document doc = Jsoup.parse(sb.append("</table>").toString());
+
+        assertEquals("4999", doc.select("tr:nth-child(5000)").text());
+        assertEquals("9999", doc.select("tr:nth-last-child(1)").text());
+        assertEquals(9000, doc.select("tr:nth-child(1000)").nextAll().size());
+        Element last = doc.select("tr").last();
+        assertEquals(9999, last.elementSiblingIndex());
+        assertEquals("9998", last.previousElementSibling().text());
+    }
+
     @Test public void testGetElementsWithClass() {
         Document doc = Jsoup.parse("<div class='mellow yellow'><span class=mellow>Hello <b class='yellow'>Yellow!</b></span><p>Empty</p></div>");
 
@@ -801,6 +959,63 @@ public class ElementTest {
             TextUtil.stripNewlines(doc.body().html()));
     }
 
+    @Test
+    public void removeChildren() {
+        Document doc = Jsoup.parse("<div>One <p>Two</p> Three <p>Four</p><p>Five</p></div>");
+        doc.outputSettings().prettyPrint(false);
+        Element div = doc.select("div").first();
+        List<Node> remove = new ArrayList<Node>();
+        remove.add(div.childNode(4));
+        remove.add(div.childNode(0));
+        remove.add(div.childNode(2));
+        div.removeChildren(remove);
+
+        assertEquals("<p>Two</p><p>Four</p>", div.html());
+        assertNull(remove.get(0).parent());
+        assertEquals(1, div.child(1).siblingIndex());
+        assertEquals("Two", div.child(1).previousElementSibling().text());
+
+        try {
+            div.removeChildren(remove); // no longer children
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    @Test
+    public void replaceChildren() {
+        Document doc = Jsoup.parse("<div id=1>One <p>Two</p></div><div id=2><i>Three</i> Four <b>Five</b></div>");
+        doc.outputSettings().prettyPrint(false);
+        Element div1 = doc.getElementById("1");
+        Element div2 = doc.getElementById("2");
+
+        List<Node> reversed = new ArrayList<Node>(div2.childNodes());
+        Collections.reverse(reversed);
+        div2.replaceChildren(reversed);
+        assertEquals("<b>Five</b> Four <i>Three</i>", div2.html());
+        assertEquals(2, div2.select("i").first().siblingIndex());
+
+        div1.replaceChildren(div2.select("b, i"));
+        assertEquals("<b>Five</b><i>Three</i>", div1.html());
+        assertEquals(" Four ", div2.html());
+        assertEquals(1, div1.child(1).elementSiblingIndex());
+    }
+
+    @Test
+    public void insertChildrenFromSameParent() {
+        Document doc = Jsoup.parse("<div><p>1</p><p>2</p><p>3</p><p>4</p><p>5</p></div>");
+        Element div = doc.select("div").first();
+        List<Node> moved = new ArrayList<Node>();
+        moved.add(div.child(3));
+        moved.add(div.child(4));
+        div.insertChildren(0, moved);
+
+        assertEquals("4 5 1 2 3", div.text());
+        for (int i = 0; i < div.childNodeSize(); i++)
+            assertEquals(i, div.childNode(i).siblingIndex());
+        assertEquals("1", div.child(1).nextElementSibling().text());
+    }
+
     @Test
     public void testCssPath() {
         Document doc = Jsoup.parse("<div id=\"id1\">A</div><div>B</div><div class=\"c1 c2\">C</div>");
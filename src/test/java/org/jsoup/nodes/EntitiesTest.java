@@ -1,6 +1,7 @@
 package org.jsoup.nodes;
 
 import org.jsoup.Jsoup;
+import org.jsoup.parser.Parser;
 import org.junit.Test;
 
 import static org.jsoup.nodes.Document.OutputSettings;
@@ -137,6 +138,25 @@ public class EntitiesTest {
         assertEquals(string, Entities.unescape(string));
     }
 
+    @Test public void unescapesLongestBaseMatch() {
+        // base (legacy) entities may omit the ;, so match as a prefix. extended entities need the ;
+        assertEquals("\u00ac\u2209 \u00acit; \u00a92017 \u00acinva", Entities.unescape("&not&notin; &notit; &copy2017 &notinva"));
+        assertEquals("&copy2017 \u00a9 x", Entities.unescape("&copy2017 &copy x", true)); // not in attributes
+        assertEquals("\u00ac\u2209", Parser.unescapeEntities("&not&notin;", false));
+    }
+
+    @Test public void unescapeWithoutReferencesReturnsInput() {
+        String string = "No references here; & none < here &";
+        assertEquals(string, Entities.unescape(string));
+        String plain = "Plain text";
+        assertSame(plain, Entities.unescape(plain));
+    }
+
+    @Test public void unescapesNumericReferences() {
+        assertEquals("< \u65b0 \ufffd \ufffd \ufffd \u0000 &# &#x; &#z", Entities.unescape("&#60 &#X65b0; &#xD800; &#x110000; &#99999999999; &#0; &# &#x; &#z"));
+        assertEquals("\ud835\udd2e", Entities.unescape("&#x1D52E;"));
+    }
+
     @Test public void escapesGtInXmlAttributesButNotInHtml() {
         // https://github.com/jhy/jsoup/issues/528 - < is OK in HTML attribute values, but not in XML
 
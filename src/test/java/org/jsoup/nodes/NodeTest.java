@@ -6,6 +6,7 @@ import org.jsoup.parser.Tag;
 import org.jsoup.select.NodeVisitor;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -44,6 +45,51 @@ public class NodeTest {
         assertEquals(baseUri, doc.select("p").first().baseUri());
     }
 
+    @Test public void baseUriIsResolvedFromTree() {
+        Document doc = Jsoup.parse("<div><p>One <a href=two>Two</a></p></div>", "http://example.com/a/");
+        Element a = doc.select("a").first();
+        TextNode text = (TextNode) doc.select("p").first().childNode(0);
+        assertEquals("http://example.com/a/two", a.absUrl("href"));
+        assertEquals("http://example.com/a/", text.baseUri());
+
+        Element div = doc.select("div").first();
+        div.setBaseUri("http://example.com/b/"); // overrides for its subtree only
+        assertEquals("http://example.com/b/two", a.absUrl("href"));
+        assertEquals("http://example.com/a/", doc.body().baseUri());
+
+        Document other = Jsoup.parse("<p></p>", "http://other.com/");
+        other.body().appendChild(a); // moved nodes resolve from their new tree
+        assertEquals("http://other.com/two", a.absUrl("href"));
+    }
+
+    @Test public void createdNodesResolveBaseUri() {
+        Document doc = new Document("http://example.com/");
+        Element a = doc.createElement("a").attr("href", "one");
+        assertEquals("http://example.com/one", a.absUrl("href")); // holds the document's base URI, before it is added
+
+        TextNode text = new TextNode("Two");
+        Comment comment = new Comment("Three");
+        assertEquals("", text.baseUri());
+        doc.appendElement("p").appendChild(text).appendChild(comment);
+        assertEquals("http://example.com/", text.baseUri());
+        assertEquals("http://example.com/", comment.baseUri());
+    }
+
+    @Test public void detachedNodesKeepExplicitBaseUri() {
+        Document doc = Jsoup.parse("<base href='http://example.com/base/'><p><a href=one>One</a></p>", "http://example.com/");
+        Element a = doc.select("a").first();
+        assertEquals("http://example.com/base/one", a.absUrl("href"));
+
+        Element clone = a.clone();
+        assertNull(clone.parent());
+        assertEquals("http://example.com/base/one", clone.absUrl("href"));
+
+        a.remove();
+        assertEquals("", a.baseUri()); // no longer in a tree with a base
+        Element standalone = new Element(Tag.valueOf("a"), "http://foo.com/").attr("href", "bar");
+        assertEquals("http://foo.com/bar", standalone.absUrl("href"));
+    }
+
     @Test public void handlesAbsPrefix() {
         Document doc = Jsoup.parse("<a href=/foo>Hello</a>", "https://jsoup.org/");
         Element a = doc.select("a").first();
@@ -289,4 +335,27 @@ public class NodeTest {
         assertTrue(el.text().equals("None"));
         assertTrue(elClone.text().equals("Text"));
     }
+
+    @Test public void siblingIndexesAreCurrentAfterParseAndBulkChanges() {
+        // tree builder corrections (foster parenting, the adoption agency, implied ends) move nodes around
+        Document doc = Jsoup.parse("<table><tr><td>1</td>Foster<b>B</b></tr></table><p><b>1<i>2<p>3</b>4</i>5" +
+            "<ul><li>One<li>Two</ul><div>Six</div>");
+        assertIndexesCurrent(doc);
+
+        Element body = doc.body();
+        body.insertChildren(1, Arrays.<Node>asList(new Element(Tag.valueOf("hr"), ""), new TextNode("New", "")));
+        body.removeChildren(body.select("div, ul"));
+        assertIndexesCurrent(doc);
+        body.select("p").remove();
+        assertIndexesCurrent(doc);
+    }
+
+    private static void assertIndexesCurrent(Node node) {
+        // reads the field, so that a read can't repair a stale index
+        List<Node> children = node.childNodes;
+        for (int i = 0; i < children.size(); i++) {
+            assertEquals(i, children.get(i).siblingIndex);
+            assertIndexesCurrent(children.get(i));
+        }
+    }
 }
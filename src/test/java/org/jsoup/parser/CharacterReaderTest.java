@@ -2,6 +2,8 @@ package org.jsoup.parser;
 
 import org.junit.Test;
 
+import java.io.StringReader;
+
 import static org.junit.Assert.*;
 
 /**
@@ -137,6 +139,28 @@ public class CharacterReaderTest {
         assertEquals(" qux", r.consumeToAny('&', ';'));
     }
 
+    @Test public void consumeToAnyScanTable() {
+        ScanTable stops = new ScanTable('&', ';', '\u0000');
+        CharacterReader r = new CharacterReader("One \u2603&bar;\u0000 qux");
+        assertEquals("One \u2603", r.consumeToAny(stops)); // \u2603 is past the table, so not a stop
+        assertEquals('&', r.consume());
+        assertEquals("bar", r.consumeToAny(stops));
+        assertEquals(';', r.consume());
+        assertEquals("", r.consumeToAny(stops));
+        assertEquals('\u0000', r.consume());
+        assertEquals(" qux", r.consumeToAny(stops));
+        assertTrue(r.isEmpty());
+    }
+
+    @Test public void consumeDataAndTagName() {
+        CharacterReader r = new CharacterReader("Some text&amp;<div\tclass=x>");
+        assertEquals("Some text", r.consumeData());
+        r.consumeTo('<');
+        r.advance();
+        assertEquals("div", r.consumeTagName());
+        assertEquals('\t', r.current());
+    }
+
     @Test public void consumeLetterSequence() {
         CharacterReader r = new CharacterReader("One &bar; qux");
         assertEquals("One", r.consumeLetterSequence());
@@ -147,12 +171,43 @@ public class CharacterReaderTest {
 
     @Test public void consumeLetterThenDigitSequence() {
         CharacterReader r = new CharacterReader("One12 Two &bar; qux");
-        assertEquals("One12", r.consumeLetterThenDigitSequence());
+        assertEquals("One12", r.consumeLetterThenDigitSequence(32));
         assertEquals(' ', r.consume());
-        assertEquals("Two", r.consumeLetterThenDigitSequence());
+        assertEquals("Tw", r.consumeLetterThenDigitSequence(2));
+        assertEquals("o", r.consumeLetterThenDigitSequence(32));
         assertEquals(" &bar; qux", r.consumeToEnd());
     }
 
+    @Test public void consumeNumber() {
+        CharacterReader r = new CharacterReader("0065;x1F 99999999999 z");
+        assertEquals(65, r.consumeNumber(false));
+        assertEquals(';', r.consume());
+        assertEquals(-1, r.consumeNumber(true));
+        assertEquals('x', r.consume());
+        assertEquals(0x1F, r.consumeNumber(true));
+        assertEquals(' ', r.consume());
+        assertEquals(0x110000, r.consumeNumber(false)); // capped, past the last code point
+        assertEquals(" z", r.consumeToEnd());
+    }
+
+    @Test public void holdsMarkAcrossBufferSlides() {
+        StringBuilder sb = new StringBuilder("0123456789abc&");
+        for (int i = 0; i < 40; i++)
+            sb.append('x');
+        sb.append(";tail");
+        CharacterReader r = new CharacterReader(new StringReader(sb.toString()), 16);
+        assertEquals("0123456789abc", r.consumeTo('&'));
+        r.mark();
+        r.advance();
+        assertEquals(33, r.consumeLetterThenDigitSequence(33).length()); // past the window
+        assertFalse(r.matches(';')); // slides the window
+        r.rewindToMark();
+        assertEquals('&', r.consume());
+        r.unmark();
+        assertEquals(40, r.consumeTo(';').length());
+        assertEquals(";tail", r.consumeToEnd());
+    }
+
     @Test public void matches() {
         CharacterReader r = new CharacterReader("One Two Three");
         assertTrue(r.matches('O'));
@@ -244,5 +299,83 @@ public class CharacterReaderTest {
         assertFalse(r.rangeEquals(18, 5, "CHIKE"));
     }
 
+    @Test public void readsFromReaderWithSmallBuffer() {
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            in.append("Line ").append(i).append(";");
+        CharacterReader r = new CharacterReader(new StringReader(in.toString()), 16);
+
+        StringBuilder out = new StringBuilder();
+        while (!r.isEmpty()) {
+            out.append(r.consumeTo(';')); // only scans to the end of the current buffer
+            if (r.matches(';'))
+                out.append(r.consume());
+        }
+        assertEquals(in.toString(), out.toString());
+        assertEquals(in.length(), r.pos());
+    }
 
+    @Test public void markAndUnconsumeSurviveBufferSlide() {
+        CharacterReader r = new CharacterReader(new StringReader("0123456789abcdefghijklmnopqrstuvwxyz"), 16);
+        assertEquals("0123456789", r.consumeTo('a'));
+        r.mark();
+        assertEquals('a', r.consume());
+        assertEquals('b', r.consume());
+        assertEquals('c', r.consume()); // slides the buffer
+        r.unconsume();
+        assertEquals('c', r.current());
+        r.rewindToMark();
+        assertEquals('a', r.consume());
+        assertEquals(11, r.pos());
+        assertEquals("bcdefghijklmnopqrst", r.consumeTo('u') + r.consumeTo('u'));
+    }
+
+    @Test public void consumeToStringAcrossBufferBoundary() {
+        // the terminator straddles the first buffer's end
+        CharacterReader r = new CharacterReader(new StringReader("<[[0123456789ab]]>tail"), 16);
+        StringBuilder data = new StringBuilder();
+        while (!r.isEmpty() && !r.matches("]]>"))
+            data.append(r.consumeTo("]]>"));
+        assertEquals("<[[0123456789ab", data.toString());
+        assertTrue(r.matchConsume("]]>"));
+        assertEquals("tail", r.consumeToEnd());
+    }
+
+    @Test public void consumeRawTextSkipsToEndTagCandidate() {
+        ScanTable stops = new ScanTable('<', '\u0000');
+        CharacterReader r = new CharacterReader("if (a<b && c </d) x = '</SCRIPT-not'; </ScRiPt> after");
+        assertEquals("if (a<b && c </d) x = '", r.consumeRawText(stops, "script", false, false));
+        assertTrue(r.matches("</SCRIPT-not")); // a candidate; the tokeniser checks the char after the name
+        r.advance();
+        assertEquals("/SCRIPT-not'; ", r.consumeRawText(stops, "script", false, false));
+        assertTrue(r.matchesIgnoreCase("</script>"));
+
+        r = new CharacterReader("a <!- b <!-- c");
+        assertEquals("a <!- b ", r.consumeRawText(stops, "script", true, false));
+        r = new CharacterReader("a <!-- c <b>");
+        assertEquals("a <!-- c <b>", r.consumeRawText(stops, "style", false, false));
+        r = new CharacterReader("a <b>");
+        assertEquals("a ", r.consumeRawText(stops, "title", false, true));
+        r = new CharacterReader("a < b");
+        assertEquals("a ", r.consumeRawText(stops, null, false, false)); // no end tag name, so stops at any <
+        r = new CharacterReader("a\u0000b");
+        assertEquals("a", r.consumeRawText(stops, "script", false, false));
+    }
+
+    @Test public void consumeRawTextStopsWhenLookaheadNotBuffered() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20; i++)
+            sb.append("x < y;");
+        sb.append("</script>");
+        CharacterReader r = new CharacterReader(new StringReader(sb.toString()), 16);
+        StringBuilder data = new StringBuilder();
+        while (!r.isEmpty()) {
+            String chunk = r.consumeRawText(new ScanTable('<', '\u0000'), "script", false, false);
+            assertFalse(chunk.contains("</script")); // never scans past the end tag, even across the buffer boundary
+            if (chunk.length() == 0)
+                data.append(r.consume()); // stopped at a < to be checked by the tokeniser
+            data.append(chunk);
+        }
+        assertEquals(sb.toString(), data.toString());
+    }
 }
@@ -0,0 +1,31 @@
+package org.jsoup.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for decoding character references.
+ */
+public class CharacterReferencesTest {
+    @Test public void matchesNamedReferences() {
+        int[] codepoints = new int[2];
+        assertEquals(3, CharacterReferences.matchNamed("ampersand", 0, 9, false, codepoints));
+        assertEquals('&', codepoints[0]);
+        assertEquals(-1, codepoints[1]);
+        assertEquals(0, CharacterReferences.matchNamed("notin", 2, 5, false, codepoints)); // "tin"
+        assertEquals(5, CharacterReferences.matchNamed("notin", 0, 5, true, codepoints));
+        assertEquals(0x2209, codepoints[0]);
+        assertEquals(3, CharacterReferences.matchNamed("notin", 0, 5, false, codepoints)); // no ; so just not
+        assertEquals(3, CharacterReferences.matchNamed("nGt", 0, 3, true, codepoints));
+        assertEquals(0x226B, codepoints[0]);
+        assertEquals(0x20D2, codepoints[1]);
+    }
+
+    @Test public void unescapesInOnePass() {
+        assertEquals("One & Two \u2209 \u00acit; &xyz;", CharacterReferences.unescape("One &amp Two &notin; &notit; &xyz;", false));
+        assertEquals("&copy=x \u00a9", CharacterReferences.unescape("&copy=x &copy", true));
+        String plain = "Plain text";
+        assertSame(plain, CharacterReferences.unescape(plain, false));
+    }
+}
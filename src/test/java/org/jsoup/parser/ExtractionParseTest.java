@@ -0,0 +1,128 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for streaming extraction parses.
+ */
+public class ExtractionParseTest {
+
+    static class Collector implements ElementHandler {
+        final List<String> found = new ArrayList<String>();
+
+        public void handle(Element element) {
+            assertNotNull(element.parent()); // still attached during the callback
+            found.add(element.outerHtml());
+        }
+    }
+
+    @Test public void extractsAndDetachesMatches() {
+        String html = "<table id=t>\n<tr class=item><td>One</td></tr>\n<tr><td>Skip</td></tr>\n" +
+            "<tr class=item><td>Two<img src=/two.png></td></tr>\n</table><p>After";
+        Collector collector = new Collector();
+        Document doc = Parser.htmlParser().parseInput(new StringReader(html), "", "tr.item", collector);
+
+        assertEquals(2, collector.found.size());
+        assertEquals("<tr class=\"item\">\n <td>One</td>\n</tr>", collector.found.get(0));
+        assertEquals("<tr class=\"item\">\n <td>Two<img src=\"/two.png\"></td>\n</tr>", collector.found.get(1));
+
+        assertEquals(0, doc.select("tr.item").size());
+        assertEquals(1, doc.select("tr").size());
+        assertEquals("After", doc.select("p").text());
+    }
+
+    @Test public void extractedElementsKeepBaseUri() {
+        final List<Element> links = new ArrayList<Element>();
+        Parser.htmlParser().parseInput("<base href=http://example.com/docs/><p><a href=one>One</a><a href=/two>Two</a>",
+            "http://example.com/", "a", new ElementHandler() {
+                public void handle(Element element) {
+                    links.add(element);
+                }
+            });
+        assertEquals(2, links.size());
+        assertNull(links.get(0).parent());
+        assertEquals("http://example.com/docs/one", links.get(0).absUrl("href"));
+        assertEquals("http://example.com/two", links.get(1).absUrl("href"));
+    }
+
+    @Test public void matchesImpliedEndsAndEmptyElements() {
+        Collector collector = new Collector();
+        Parser.htmlParser().parseInput("<ul><li>One<li>Two<img class=x></ul><li>Three", "", "li, img.x", collector);
+        assertEquals(4, collector.found.size());
+        assertEquals("<li>One</li>", collector.found.get(0));
+        assertEquals("<img class=\"x\">", collector.found.get(1)); // empty element is complete on insert
+        assertEquals("<li>Two</li>", collector.found.get(2)); // img already handed off
+        assertEquals("<li>Three</li>", collector.found.get(3)); // closed at end of input
+    }
+
+    @Test public void canMatchOnAncestors() {
+        final List<String> ids = new ArrayList<String>();
+        Parser.htmlParser().parseInput("<div class=list><p id=1>One</div><p id=2>Two<div class=list><p id=3>Three",
+            "", "div.list > p", new ElementHandler() {
+                public void handle(Element element) {
+                    ids.add(element.id());
+                }
+            });
+        assertEquals(2, ids.size());
+        assertEquals("1", ids.get(0));
+        assertEquals("3", ids.get(1));
+    }
+
+    @Test public void boundedRetentionOnLargeInput() {
+        final int rows = 20000;
+        Reader reader = new Reader() {
+            int row = -1;
+            String pending = "<table>";
+            int pos = 0;
+
+            @Override public int read(char[] cbuf, int off, int len) {
+                if (pos == pending.length()) {
+                    row++;
+                    if (row > rows) return -1;
+                    pending = row < rows ? "\n<tr class=item><td>Row " + row + "</td><td>x</td></tr>" : "</table>";
+                    pos = 0;
+                }
+                int n = Math.min(len, pending.length() - pos);
+                pending.getChars(pos, pos + n, cbuf, off);
+                pos += n;
+                return n;
+            }
+
+            @Override public void close() {}
+        };
+
+        final int[] count = {0};
+        Document doc = Parser.htmlParser().parseInput(reader, "", "tr.item", new ElementHandler() {
+            public void handle(Element element) {
+                assertEquals("Row " + count[0], element.child(0).text());
+                assertEquals(0, (int) element.elementSiblingIndex()); // previous rows are gone
+                count[0]++;
+            }
+        });
+        assertEquals(rows, count[0]);
+        assertEquals(0, doc.select("tbody").first().childNodeSize());
+    }
+
+    @Test public void xmlExtraction() {
+        final List<String> found = new ArrayList<String>();
+        Document doc = Parser.xmlParser().parseInput("<feed><entry id='1'/><entry id='2'><t>Two</t></entry></feed>", "",
+            "entry", new ElementHandler() {
+                public void handle(Element element) {
+                    found.add(element.id() + ":" + element.text());
+                }
+            });
+        assertEquals(2, found.size());
+        assertEquals("1:", found.get(0));
+        assertEquals("2:Two", found.get(1));
+        assertEquals("<feed></feed>", doc.html());
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -649,6 +650,49 @@ public class HtmlParserTest {
         assertEquals("<!-- one <script>Blah</script> -->", doc.select("script").first().data());
     }
 
+    @Test public void handlesMarkupInRawText() {
+        String js = "if (a<b && b <c) { html = '<div class=x></div></span></scripts>' + \"</SCRIPT\" + '<!- x'; }";
+        Document doc = Jsoup.parse("<script>" + js + "</Script ><style>p < b { } </b></STYLE><title>a<b <i>c</i></title>" +
+            "<script>x <!-- <script>y</script> z --> </script><p>After");
+        Elements scripts = doc.select("script");
+        assertEquals(js, scripts.get(0).data());
+        assertEquals("x <!-- <script>y</script> z --> ", scripts.get(1).data());
+        assertEquals("p < b { } </b>", doc.select("style").first().data());
+        assertEquals("a<b <i>c</i>", doc.title());
+        assertEquals("After", doc.select("p").text());
+
+        // read through the sliding buffer, so that end tag candidates straddle the buffer boundary
+        StringBuilder longJs = new StringBuilder();
+        while (longJs.length() < CharacterReader.maxBufferLen * 3)
+            longJs.append(js);
+        Document streamed = Parser.htmlParser().parseInput(new StringReader("<script>" + longJs + "</script><p>After"), "");
+        assertEquals(longJs.toString(), streamed.select("script").first().data());
+        assertEquals("After", streamed.select("p").text());
+    }
+
+    @Test public void streamsCharacterReferenceRunsLongerThanTheBuffer() {
+        StringBuilder letters = new StringBuilder();
+        StringBuilder digits = new StringBuilder();
+        StringBuilder zeros = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            letters.append((char) ('a' + i % 26));
+            digits.append((char) ('0' + i % 10));
+            zeros.append('0');
+        }
+        String[] inputs = {
+            "<p>&" + letters + ";",
+            "<p>&" + letters + "&amp; &notin;",
+            "<p><a href=\"&" + digits + "\">One</a> &" + digits + ";",
+            "<p>&#" + zeros + "65; &#x" + zeros + "41; &#" + digits + ";",
+        };
+        for (String html : inputs) {
+            Document doc = Jsoup.parse(html);
+            Document streamed = Parser.htmlParser().parseInput(new StringReader(html), "");
+            assertEquals(doc.outerHtml(), streamed.outerHtml());
+        }
+        assertEquals("A A \uFFFD", Jsoup.parse(inputs[3]).text());
+    }
+
     @Test public void handles0CharacterAsText() {
         Document doc = Jsoup.parse("0<p>0</p>");
         assertEquals("0\n<p>0</p>", doc.body().html());
@@ -703,6 +747,55 @@ public class HtmlParserTest {
         assertEquals("36: Invalid character reference: invalid named referenece 'arrgh'", errors.get(2).toString());
     }
 
+    @Test public void tracksErrorCodesAndLines() {
+        String html = "<p>One</p href='no'>\n<!DOCTYPE html>\n  &arrgh;<font /><br /><foo";
+        Parser parser = Parser.htmlParser().setTrackErrors(2);
+        parser.parseInput(html, "");
+
+        List<ParseError> errors = parser.getErrors();
+        assertEquals(2, errors.size());
+        ParseError error = errors.get(1);
+        assertEquals(ParseError.Code.UnexpectedToken, error.getCode());
+        assertEquals(36, error.getPosition());
+        assertEquals(2, error.getLineNumber());
+        assertEquals(16, error.getColumnNumber());
+        assertEquals("Unexpected token [Doctype] when in state [InBody]", error.getErrorMessage());
+        assertEquals(1, errors.get(0).getLineNumber());
+
+        // counted past the max tracked
+        assertEquals(1, parser.getErrorCount(ParseError.Code.CharacterReferenceInvalidName));
+        assertEquals(1, parser.getErrorCount(ParseError.Code.UnacknowledgedSelfClosingFlag));
+        assertEquals(5, ((ParseErrorList) errors).totalCount());
+    }
+
+    @Test public void countsErrorsWithoutTracking() {
+        String html = "<p>One</p href='no'><!DOCTYPE html>&arrgh;&bogus;<font /><br /><foo";
+        Parser parser = Parser.htmlParser().setTrackErrors(0).setCountErrors(true);
+        assertTrue(parser.isCountErrors());
+        parser.parseInput(html, "");
+        assertEquals(0, parser.getErrors().size());
+        assertEquals(2, parser.getErrorCount(ParseError.Code.CharacterReferenceInvalidName));
+        assertEquals(1, parser.getErrorCount(ParseError.Code.UnexpectedEof));
+        assertEquals(0, parser.getErrorCount(ParseError.Code.LimitExceeded));
+
+        parser.setCountErrors(false).parseInput(html, "");
+        assertEquals(0, parser.getErrorCount(ParseError.Code.CharacterReferenceInvalidName));
+    }
+
+    @Test public void errorLinesTrackedThroughSlidingBuffer() {
+        StringBuilder html = new StringBuilder();
+        while (html.length() < CharacterReader.maxBufferLen * 3)
+            html.append("<p>Line\n");
+        html.append("\n</br id=x>");
+        Parser parser = Parser.htmlParser().setTrackErrors(10);
+        parser.parseInput(new StringReader(html.toString()), "");
+
+        ParseError error = parser.getErrors().get(0);
+        assertEquals(ParseError.Code.AttributesOnEndTag, error.getCode());
+        assertEquals(html.length() / 8 + 1, error.getLineNumber());
+        assertEquals(11, error.getColumnNumber());
+    }
+
     @Test public void noErrorsByDefault() {
         String html = "<p>One</p href='no'>&arrgh;<font /><br /><foo";
         Parser parser = Parser.htmlParser();
@@ -851,6 +944,53 @@ public class HtmlParserTest {
         assertTrue(System.currentTimeMillis() - start < 1000);
     }
 
+    private static String repeat(String s, int count) {
+        StringBuilder sb = new StringBuilder(s.length() * count);
+        for (int i = 0; i < count; i++)
+            sb.append(s);
+        return sb.toString();
+    }
+
+    @Test public void handlesPathologicalFormattingInLinearTime() {
+        long start = System.currentTimeMillis();
+        Jsoup.parse(repeat("<b>x<div>y", 20000)); // deep stack with no scope boundary
+        Jsoup.parse(repeat("<b>", 10000) + repeat("<div>", 10000) + repeat("</b>", 10000)); // adoption agency
+        Jsoup.parse(repeat("<font size=1>", 10000) + repeat("</p>x", 10000));
+        Jsoup.parse(repeat("<span>", 20000) + repeat("</x>", 20000)); // unmatched end tags
+        assertTrue(System.currentTimeMillis() - start < 5000);
+    }
+
+    @Test public void reconstructsAllActiveFormattingElements() {
+        // each p closes its b, which remains active, so is reconstructed in each later p
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 100; i++)
+            html.append("<p><b id=").append(i).append(">x</p>");
+        Document doc = Jsoup.parse(html.toString());
+        assertEquals(100, doc.select("p").size());
+        assertEquals(100 * 101 / 2, doc.select("b").size());
+        assertEquals(100, doc.select("p").last().select("b").size());
+
+        // Noah's Ark: at most three of the same formatting element are reconstructed
+        doc = Jsoup.parse("<p><b class=x><b class=x><b class=x><b class=x>One</p>Two");
+        assertEquals("<p><b class=\"x\"><b class=\"x\"><b class=\"x\"><b class=\"x\">One</b></b></b></b></p>" +
+            "<b class=\"x\"><b class=\"x\"><b class=\"x\">Two</b></b></b>", TextUtil.stripNewlines(doc.body().html()));
+    }
+
+    @Test public void findsEndTagsPastDeepOpenElements() {
+        // a deep stack of ordinary unclosed elements doesn't hide the elements below from scope checks
+        Document doc = Jsoup.parse("<p>" + repeat("<span>", 500) + "x</p>y");
+        assertEquals(500, doc.select("p span").size());
+        assertEquals("y", doc.body().ownText());
+
+        doc = Jsoup.parse("<table><tr><td>" + repeat("<div>", 500) + "x</table>y");
+        assertEquals(500, doc.select("td div").size());
+        assertEquals("y", doc.body().ownText());
+
+        doc = Jsoup.parse("<ul><li>One" + repeat("<b>", 500) + "Two</ul><p>Three");
+        assertEquals(1, doc.select("ul").size());
+        assertEquals("Three", doc.select("body > p").text());
+    }
+
     @Test
     public void testInvalidTableContents() throws IOException {
         File in = ParseTest.getFile("/htmltests/table-invalid-elements.html");
@@ -0,0 +1,95 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+import java.nio.CharBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for push mode incremental parsing.
+ */
+public class IncrementalParseTest {
+    private static final String html = "<!DOCTYPE html><html><head><title>One &amp; Two</title>" +
+        "<script>if (a < b) x = '</scr' + 'ipt>';</script></head><body><!-- a comment -->" +
+        "<p class=one id='two'>Hello &notin; &amp there</p><br/><textarea>a<b</textarea>" +
+        "<div><![CDATA[ data ]]></div></body></html>";
+
+    private static Document feedInChunks(Parser parser, String input, int chunkSize) {
+        IncrementalParse parse = parser.newIncrementalParse("http://example.com/");
+        for (int i = 0; i < input.length(); i += chunkSize)
+            parse.feed(input.substring(i, Math.min(input.length(), i + chunkSize)));
+        return parse.finish();
+    }
+
+    @Test public void chunkedParseMatchesFullParse() {
+        String expected = Jsoup.parse(html, "http://example.com/").outerHtml();
+        for (int size : new int[] {1, 2, 5, 13, 64, 1000}) {
+            assertEquals("Chunk size " + size, expected, feedInChunks(Parser.htmlParser(), html, size).outerHtml());
+        }
+    }
+
+    @Test public void chunkedParseTracksSameErrors() {
+        String bad = "<p =a>One<p>Two</div> &unknown; <img src=x/ alt=\"y\"/> </b></p>";
+        Parser full = Parser.htmlParser().setTrackErrors(100);
+        full.parseInput(bad, "");
+
+        Parser chunked = Parser.htmlParser().setTrackErrors(100);
+        feedInChunks(chunked, bad, 3);
+        assertTrue(full.getErrors().size() > 0);
+        assertEquals(full.getErrors().toString(), chunked.getErrors().toString());
+    }
+
+    @Test public void chunkedParseCountsSameErrors() {
+        String bad = "<p><a href=\"&#;&#x110000;\">One &#; &#x110000;</a>";
+        Parser full = Parser.htmlParser().setTrackErrors(1);
+        full.parseInput(bad, "");
+        ParseErrorList fullErrors = (ParseErrorList) full.getErrors();
+
+        for (int size : new int[] {1, 2, 3, 7}) {
+            Parser chunked = Parser.htmlParser().setTrackErrors(1);
+            feedInChunks(chunked, bad, size);
+            ParseErrorList errors = (ParseErrorList) chunked.getErrors();
+            assertEquals(2, errors.count(ParseError.Code.CharacterReferenceNoNumerals));
+            assertEquals(2, errors.count(ParseError.Code.CharacterReferenceOutOfRange));
+            for (ParseError.Code code : ParseError.Code.values())
+                assertEquals("Chunk size " + size + ", " + code, fullErrors.count(code), errors.count(code));
+            assertEquals(fullErrors.totalCount(), errors.totalCount());
+        }
+    }
+
+    @Test public void parsesAsInputArrives() {
+        IncrementalParse parse = Parser.htmlParser().newIncrementalParse("");
+        parse.feed("<div id=1><p>One</p><p>Two, and then some more text");
+        Document doc = parse.document();
+        assertEquals(1, doc.select("div").size());
+        assertEquals("One", doc.select("p").first().text());
+
+        parse.feed(CharBuffer.wrap("</p><sp"));
+        assertEquals(2, doc.select("p").size());
+        assertEquals(0, doc.select("span").size()); // tag not complete yet
+
+        parse.feed("an>Three, and then some more".toCharArray());
+        assertEquals(1, doc.select("span").size());
+        assertFalse(parse.isFinished());
+
+        assertSame(doc, parse.finish());
+        assertTrue(parse.isFinished());
+        assertEquals("One Two, and then some more textThree, and then some more", doc.select("div").text());
+    }
+
+    @Test public void incrementalXmlParse() {
+        String xml = "<?xml version=\"1.0\"?><doc><val>One<val>Two</val>Three</val><!-- c --></doc>";
+        String expected = Jsoup.parse(xml, "", Parser.xmlParser()).outerHtml();
+        assertEquals(expected, feedInChunks(Parser.xmlParser(), xml, 4).outerHtml());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void cannotFeedAfterFinish() {
+        IncrementalParse parse = Parser.htmlParser().newIncrementalParse("");
+        parse.feed("<p>One");
+        parse.finish();
+        parse.feed("<p>Two");
+    }
+}
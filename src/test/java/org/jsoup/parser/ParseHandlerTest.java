@@ -0,0 +1,101 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Attributes;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for event based parsing to a ParseHandler.
+ */
+public class ParseHandlerTest {
+
+    /** Records events as a compact markup string, and checks they are well nested. */
+    static class Recorder implements ParseHandler {
+        final StringBuilder out = new StringBuilder();
+        final List<String> open = new ArrayList<String>();
+
+        public void startElement(String name, Attributes attributes) {
+            open.add(name);
+            out.append('<').append(name);
+            for (Attribute attribute : attributes)
+                out.append(' ').append(attribute.getKey()).append("=").append(attribute.getValue());
+            out.append('>');
+        }
+
+        public void endElement(String name) {
+            assertEquals(open.remove(open.size() - 1), name);
+            out.append("</").append(name).append('>');
+        }
+
+        public void text(String text) {
+            out.append(text);
+        }
+
+        public void comment(String data) {
+            out.append("<!--").append(data).append("-->");
+        }
+
+        public void doctype(String name, String publicId, String systemId) {
+            out.append("<!doctype ").append(name).append(' ').append(publicId).append(' ').append(systemId).append('>');
+        }
+    }
+
+    private static String events(String html) {
+        Recorder recorder = new Recorder();
+        Parser.htmlParser().parseInput(html, "", recorder);
+        assertEquals(0, recorder.open.size());
+        return recorder.out.toString();
+    }
+
+    @Test public void reportsImpliedElements() {
+        assertEquals("<html><head><title>One</title></head><body><p class=a>Two &amp; <br></br>three</p></body></html>",
+            events("<title>One</title><p class=a>Two &amp;amp; <br>three"));
+    }
+
+    @Test public void reportsCommentsAndDoctype() {
+        assertEquals("<!doctype html  ><!--one--><html><head></head><body><!--two--><script>a < b</script></body></html>",
+            events("<!DOCTYPE html><!--one--><body><!--two--><script>a < b</script>"));
+    }
+
+    @Test public void appliesTableRules() {
+        assertEquals("<html><head></head><body><table><tbody><tr><td>One</td></tr></tbody></table></body></html>",
+            events("<table><tr><td>One</table>"));
+    }
+
+    @Test public void eventsAreWellNestedForMisnestedFormatting() {
+        // dom is <b>One</b><p><b>Two</b>Three</p>; as Two was already reported, the p is ended with the b that
+        // contained it, and then started again
+        assertEquals("<html><head></head><body><b>One<p>Two</p></b><p><b></b>Three</p></body></html>",
+            events("<b>One<p>Two</b>Three</p>"));
+    }
+
+    @Test public void sameElementsAsDocument() {
+        String html = "<div id=1><a href=/one>One</a><ul><li>Two<li><a href=/two>Three</a></ul><img src=/x.png></div>" +
+            "<form><input name=q></form>";
+        final List<String> hrefs = new ArrayList<String>();
+        Parser.htmlParser().parseInput(new StringReader(html), "http://example.com/", new Recorder() {
+            @Override public void startElement(String name, Attributes attributes) {
+                super.startElement(name, attributes);
+                if (name.equals("a"))
+                    hrefs.add(attributes.get("href"));
+            }
+        });
+
+        Document doc = Jsoup.parse(html);
+        assertEquals(doc.select("a").eachAttr("href"), hrefs);
+    }
+
+    @Test public void xmlParserEvents() {
+        Recorder recorder = new Recorder();
+        Parser.xmlParser().parseInput("<doc><One>1<Two/></One><!-- c --><three>", "", recorder);
+        assertEquals("<doc><One>1<Two></Two></One><!-- c --><three></three></doc>", recorder.out.toString());
+    }
+}
@@ -0,0 +1,148 @@
+package org.jsoup.parser;
+
+import org.jsoup.UncheckedIOException;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.Test;
+
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for parse resource limits.
+ */
+public class ParseLimitsTest {
+
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            sb.append("<div>");
+        return sb.toString();
+    }
+
+    @Test public void truncatesAtMaxDepth() {
+        Parser parser = Parser.htmlParser().setTrackErrors(10).limits(new ParseLimits().maxDepth(100));
+        Document doc = parser.parseInput(nested(5000) + "<p>Deep", "");
+        assertEquals(99, doc.select("div").size()); // html and body are on the stack too; stops after the 101st
+        assertEquals(0, doc.select("p").size());
+        assertEquals(1, parser.getErrors().size());
+        assertEquals("Parse limit exceeded: depth", parser.getErrors().get(0).getErrorMessage());
+    }
+
+    @Test public void throwsOnMaxDepth() {
+        Parser parser = Parser.htmlParser().limits(new ParseLimits().maxDepth(100).throwOnExceed(true));
+        try {
+            parser.parseInput(nested(5000), "");
+            fail();
+        } catch (ParseLimitException e) {
+            assertEquals(ParseLimits.Limit.depth, e.limit());
+            assertTrue(e.position() > 0);
+        }
+    }
+
+    @Test public void truncatesAtMaxNodes() {
+        Parser parser = Parser.htmlParser().limits(new ParseLimits().maxNodes(5));
+        Document doc = parser.parseInput("<p>One<p>Two<p>Three<p>Four", "");
+        assertEquals("One Two Three", doc.text()); // the third p is the fifth node
+    }
+
+    @Test public void dropsExcessAttributes() {
+        StringBuilder html = new StringBuilder("<div");
+        for (int i = 0; i < 1000; i++)
+            html.append(" a").append(i).append("=").append(i);
+        html.append(">One</div><p class=x>Two");
+
+        Parser parser = Parser.htmlParser().setTrackErrors(10).limits(new ParseLimits().maxAttributes(10));
+        Document doc = parser.parseInput(html.toString(), "");
+        Element div = doc.select("div").first();
+        assertEquals(10, div.attributes().size());
+        assertEquals("9", div.attr("a9"));
+        assertEquals("One Two", doc.text()); // parse continues
+        assertEquals("x", doc.select("p").attr("class"));
+        assertEquals(1, parser.getErrors().size());
+
+        parser.limits().throwOnExceed(true);
+        try {
+            parser.parseInput(html.toString(), "");
+            fail();
+        } catch (ParseLimitException e) {
+            assertEquals(ParseLimits.Limit.attributes, e.limit());
+        }
+    }
+
+    @Test public void truncatesAtMaxChars() {
+        String html = "<p>Hello there</p><p>Another paragraph</p>";
+        Parser parser = Parser.htmlParser().limits(new ParseLimits().maxChars(14));
+        assertEquals("Hello there", parser.parseInput(html, "").text());
+        assertEquals("Hello there", parser.parseInput(new StringReader(html), "").text());
+
+        parser.limits().throwOnExceed(true);
+        try {
+            parser.parseInput(new StringReader(html), "");
+            fail();
+        } catch (ParseLimitException e) {
+            assertEquals(ParseLimits.Limit.chars, e.limit());
+        }
+    }
+
+    @Test public void boundsEndlessInput() {
+        Reader endless = new Reader() {
+            @Override public int read(char[] cbuf, int off, int len) {
+                for (int i = 0; i < len; i++)
+                    cbuf[off + i] = 'x';
+                return len;
+            }
+
+            @Override public void close() {}
+        };
+
+        Parser parser = Parser.htmlParser().limits(new ParseLimits().maxChars(100000));
+        Document doc = parser.parseInput(endless, "");
+        assertEquals(100000, doc.body().text().length());
+    }
+
+    @Test public void truncatesAtTimeout() {
+        Reader slow = new Reader() {
+            @Override public int read(char[] cbuf, int off, int len) {
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                int n = Math.min(len, 1024);
+                for (int i = 0; i < n; i++)
+                    cbuf[off + i] = "<p>x".charAt(i % 4);
+                return n;
+            }
+
+            @Override public void close() {}
+        };
+
+        Parser parser = Parser.htmlParser().limits(new ParseLimits().timeout(100));
+        long start = System.currentTimeMillis();
+        Document doc = parser.parseInput(slow, "");
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertTrue(doc.select("p").size() > 0);
+    }
+
+    @Test public void interruptible() {
+        Parser parser = Parser.htmlParser().limits(new ParseLimits());
+        Thread.currentThread().interrupt();
+        try {
+            parser.parseInput(nested(500), "");
+            fail();
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getCause() instanceof InterruptedIOException);
+            assertTrue(Thread.interrupted()); // status is retained; and cleared here
+        }
+    }
+
+    @Test public void noLimitsByDefault() {
+        Parser parser = Parser.htmlParser();
+        assertNull(parser.limits());
+        assertEquals(5000, parser.parseInput(nested(5000), "").select("div").size());
+    }
+}
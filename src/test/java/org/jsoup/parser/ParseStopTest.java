@@ -0,0 +1,131 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for parses that stop early, after the head or at a matched element.
+ */
+public class ParseStopTest {
+    private static final String head = "<!doctype html><html><head><title>The Title</title>" +
+        "<link rel=canonical href=/page><meta name=robots content=noindex><script>var x = '</head>';</script></head>";
+
+    private static String body(int paras) {
+        StringBuilder sb = new StringBuilder("<body>");
+        for (int i = 0; i < paras; i++)
+            sb.append("<p class=item id=p").append(i).append(">Para ").append(i).append("</p>\n");
+        return sb.append("</body></html>").toString();
+    }
+
+    /** A reader that counts the chars read through it. */
+    private static class CountingReader extends Reader {
+        private final Reader in;
+        int count = 0;
+
+        CountingReader(String input) {
+            in = new StringReader(input);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            int read = in.read(cbuf, off, len);
+            if (read > 0)
+                count += read;
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    @Test public void stopsAfterHead() {
+        Parser parser = Parser.htmlParser().stopAfterHead(true);
+        assertTrue(parser.stopAfterHead());
+        assertTrue(parser.isStoppingEarly());
+        Document doc = parser.parseInput(head + body(10), "http://example.com/");
+
+        assertEquals("The Title", doc.title());
+        assertEquals("http://example.com/page", doc.select("link[rel=canonical]").first().absUrl("href"));
+        assertEquals("var x = '</head>';", doc.select("script").first().data());
+        assertEquals(0, doc.select("p").size());
+    }
+
+    @Test public void stopsAfterImpliedHead() {
+        // no </head>, so the head is complete at the first body content
+        Document doc = Parser.htmlParser().stopAfterHead(true).parseInput("<title>One</title><meta charset=utf-8><p>Two<p>Three", "");
+        assertEquals("One", doc.title());
+        assertEquals(1, doc.select("meta").size());
+        assertTrue(doc.select("p").size() <= 1);
+    }
+
+    @Test public void stopsAtFirstMatch() {
+        Parser parser = Parser.htmlParser().stopAt("p.item:contains(Para 2)");
+        assertNotNull(parser.stopAt());
+        Document doc = parser.parseInput(head + body(10), "");
+
+        Element last = doc.select("p").last();
+        assertEquals("p2", last.id());
+        assertEquals("Para 2", last.text()); // complete when matched
+        assertEquals(3, doc.select("p").size());
+    }
+
+    @Test public void stopsAtEmptyElement() {
+        Evaluator evaluator = new Evaluator.Tag("img");
+        Document doc = Parser.htmlParser().stopAt(evaluator).parseInput("<div>One<img src=x>Two</div><p>Three", "");
+        assertEquals(1, doc.select("img").size());
+        assertEquals(0, doc.select("p").size());
+        assertEquals("One", doc.select("div").text());
+    }
+
+    @Test public void stopsReadingInput() {
+        String html = head + body(20000);
+        CountingReader reader = new CountingReader(html);
+        Document doc = Parser.htmlParser().stopAfterHead(true).parseInput(reader, "");
+        assertEquals("The Title", doc.title());
+        assertTrue(reader.count < html.length() / 10);
+
+        reader = new CountingReader(html);
+        doc = Parser.htmlParser().stopAt("#p100").parseInput(reader, "");
+        assertEquals("Para 100", doc.select("p").last().text());
+        assertTrue(reader.count < html.length() / 10);
+    }
+
+    @Test public void noStopByDefault() {
+        Parser parser = Parser.htmlParser();
+        assertFalse(parser.isStoppingEarly());
+        assertEquals(10, parser.parseInput(head + body(10), "").select("p").size());
+
+        parser.stopAt("p").stopAt((String) null);
+        assertFalse(parser.isStoppingEarly());
+        assertEquals(10, parser.parseInput(head + body(10), "").select("p").size());
+    }
+
+    @Test public void stopsIncrementalParse() {
+        IncrementalParse parse = Parser.htmlParser().stopAt("#p1").newIncrementalParse("");
+        String html = head + body(10);
+        for (int i = 0; i < html.length(); i += 16)
+            parse.feed(html.substring(i, Math.min(html.length(), i + 16)));
+        Document doc = parse.finish();
+        assertEquals(2, doc.select("p").size());
+    }
+
+    @Test public void stopsXmlParse() {
+        List<String> ids = new ArrayList<String>();
+        Document doc = Parser.xmlParser().stopAt("item[id=2]").parseInput("<items><item id='1'/><item id='2'>Two</item><item id='3'/></items>", "");
+        for (Element el : doc.select("item"))
+            ids.add(el.id());
+        assertEquals("[1, 2]", ids.toString());
+    }
+}
@@ -0,0 +1,100 @@
+package org.jsoup.parser;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Node;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests that parsers and their buffers can be reused across parses.
+ */
+public class ParserReuseTest {
+
+    @Test public void reusedParserDoesNotLeakState() {
+        Parser parser = Parser.htmlParser();
+        Document one = parser.parseInput("<table><tr><td>One<b><i>Open formatting<form id=f><input name=a>", "");
+        assertEquals(1, one.select("i").size());
+
+        Document two = parser.parseInput("<p>Two", "");
+        assertEquals("<p>Two</p>", two.body().html()); // formatting elements from the first parse are not reconstructed
+        assertEquals(0, two.select("b, i").size());
+
+        Document three = parser.parseInput("<frameset><frame src=x></frameset>", "");
+        assertEquals(1, three.select("frameset").size()); // frameset-ok flag was reset
+    }
+
+    @Test public void reusesBuffersAcrossInputs() {
+        Parser parser = Parser.htmlParser();
+        String big = "<div title=\"A long title here\">" + "Lots of text. " + "</div>";
+        String small = "<p>Hi";
+        for (int i = 0; i < 3; i++) {
+            assertEquals("A long title here", parser.parseInput(big, "").select("div").attr("title"));
+            assertEquals("<p>Hi</p>", parser.parseInput(small, "").body().html()); // stale buffer contents not read
+            assertEquals("<p>Hi</p>", parser.parseInput(new StringReader(small), "").body().html());
+        }
+    }
+
+    @Test public void recycledReaderReadsOnlyNewInput() {
+        CharacterReader first = new CharacterReader("A much longer input than the next");
+        assertEquals("A", first.consumeTo(' '));
+
+        CharacterReader second = new CharacterReader("Short", first);
+        assertEquals("Short", second.consumeToEnd());
+        assertTrue(second.isEmpty());
+
+        CharacterReader third = new CharacterReader(new StringReader("From a reader"), second);
+        assertEquals("From a reader", third.consumeToEnd());
+    }
+
+    @Test public void largeBuffersNotRecycled() {
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() <= CharacterReader.maxRecycledBufferLen)
+            sb.append("0123456789");
+        CharacterReader big = new CharacterReader(sb.toString());
+        assertFalse(big.isRecyclable());
+        assertTrue(new CharacterReader("Small").isRecyclable());
+
+        CharacterReader next = new CharacterReader("Next", big);
+        assertEquals("Next", next.consumeToEnd());
+        assertTrue(next.isRecyclable());
+    }
+
+    @Test public void fragmentParseAfterDocumentParse() {
+        HtmlTreeBuilder treeBuilder = new HtmlTreeBuilder();
+        treeBuilder.parse("<table><tr><td><b>Open", "", ParseErrorList.noTracking(), ParseSettings.htmlDefault);
+        List<Node> nodes = treeBuilder.parseFragment("<td>Cell", null, "", ParseErrorList.noTracking(), ParseSettings.htmlDefault);
+        assertEquals(1, nodes.size());
+        assertEquals("html", nodes.get(0).nodeName());
+        assertEquals("Cell", ((org.jsoup.nodes.Element) nodes.get(0)).text());
+    }
+
+    @Test public void staticParseIsThreadSafe() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 400; i++) {
+                final int n = i;
+                results.add(executor.submit(new Callable<String>() {
+                    public String call() {
+                        String html = "<div id=d" + n + "><b>Item " + n + "<i>" + (n % 2 == 0 ? "even" : "odd");
+                        return Jsoup.parse(html).select("#d" + n).text() + "|" + Jsoup.parseBodyFragment("<p>" + n).text();
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++)
+                assertEquals("Item " + i + (i % 2 == 0 ? "even" : "odd") + "|" + i, results.get(i).get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
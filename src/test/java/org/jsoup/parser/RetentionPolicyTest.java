@@ -0,0 +1,137 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for dropping nodes and attributes at parse time, with a RetentionPolicy.
+ */
+public class RetentionPolicyTest {
+    private static final String html = "<html>\n<head>\n<title>Title</title>\n<style>p { color: red }</style>\n" +
+        "<script src=app.js></script><script>var x = '<b>';</script>\n</head>\n<body>\n<!-- nav -->\n" +
+        "<div id=main class=content style='float: left' onclick='go()'>\n  <p>One <b>Two</b> <i>Three</i></p>\n" +
+        "  <pre>\n  Code  <!-- kept --></pre>\n</div>\n</body>\n</html>";
+
+    @Test public void retainsEverythingByDefault() {
+        Parser parser = Parser.htmlParser();
+        assertNull(parser.retention());
+        Document doc = parser.parseInput(html, "");
+        RetentionPolicy policy = new RetentionPolicy();
+        assertFalse(policy.dropComments() || policy.dropWhitespaceText() || policy.dropData());
+        assertNull(policy.retainAttributes());
+        Document doc2 = Parser.htmlParser().retention(policy).parseInput(html, "");
+        assertEquals(doc.outerHtml(), doc2.outerHtml());
+    }
+
+    @Test public void dropsCommentsWhitespaceAndData() {
+        RetentionPolicy policy = new RetentionPolicy().dropComments(true).dropWhitespaceText(true).dropData(true);
+        Document doc = Parser.htmlParser().retention(policy).parseInput(html, "");
+
+        doc.outputSettings().prettyPrint(false);
+        assertEquals("<html><head><title>Title</title><style></style><script src=\"app.js\"></script><script></script></head>" +
+            "<body><div id=\"main\" class=\"content\" style=\"float: left\" onclick=\"go()\"><p>One <b>Two</b><i>Three</i></p>" +
+            "<pre>\n  Code  </pre></div></body></html>", doc.html());
+        assertEquals("Title", doc.title());
+        assertEquals(2, doc.select("script").size());
+    }
+
+    @Test public void retainsContentOfAllowedTags() {
+        RetentionPolicy policy = new RetentionPolicy().dropComments(true).dropWhitespaceText(true).dropData(true)
+            .retainTags("PRE", "script");
+        assertTrue(policy.retainTags().contains("pre"));
+        Document doc = Parser.htmlParser().retention(policy).parseInput(html, "");
+
+        doc.outputSettings().prettyPrint(false);
+        assertEquals("\n  Code  <!-- kept -->", doc.select("pre").first().html());
+        assertEquals("var x = '<b>';", doc.select("script").get(1).data());
+        assertEquals("", doc.select("style").first().data());
+        assertEquals(0, doc.body().select("div").first().textNodes().size());
+    }
+
+    @Test public void retainsAllowedAttributes() {
+        RetentionPolicy policy = new RetentionPolicy().retainAttributes("ID", "class", "src");
+        Document doc = Parser.htmlParser().retention(policy).parseInput(html, "");
+
+        Element div = doc.select("div").first();
+        assertEquals(2, div.attributes().size());
+        assertEquals("main", div.id());
+        assertEquals("content", div.className());
+        assertFalse(div.hasAttr("style"));
+        assertFalse(div.hasAttr("onclick"));
+        assertEquals("app.js", doc.select("script").first().attr("src"));
+
+        policy.retainAttributes((String[]) null);
+        assertEquals(4, Parser.htmlParser().retention(policy).parseInput(html, "").select("div").first().attributes().size());
+    }
+
+    @Test public void treeIsBuiltAsIfRetained() {
+        // the dropped whitespace and comment would otherwise be foster parented out of the table
+        RetentionPolicy policy = new RetentionPolicy().dropComments(true).dropWhitespaceText(true);
+        Document doc = Parser.htmlParser().retention(policy).parseInput("<table> <tr> <td>A</td> <!-- c --> </tr> </table>", "");
+        assertEquals("<table><tbody><tr><td>A</td></tr></tbody></table>", doc.body().html().replace("\n", "").replace(" ", ""));
+        Elements cells = doc.select("td");
+        assertEquals(1, cells.size());
+    }
+
+    @Test public void treeAttributesAreReadBeforeDropped() {
+        // the input's type decides if it stays in the table, and the base's href sets the base uri
+        String h = "<base href='http://example.com/'><table><tr><td>x</td></tr><input type=hidden name=q><input type=text name=r></table><a href=one>One</a>";
+        RetentionPolicy policy = new RetentionPolicy().retainAttributes("name");
+        Document doc = Parser.htmlParser().retention(policy).parseInput(h, "");
+        Document full = Parser.htmlParser().parseInput(h, "");
+
+        assertEquals(full.select("table input").size(), doc.select("table input").size());
+        Element hidden = doc.select("table input").first();
+        assertEquals("q", hidden.attr("name"));
+        assertEquals(1, hidden.attributes().size());
+        assertEquals("r", doc.select("input").first().attr("name")); // fostered before the table
+        assertEquals("http://example.com/", doc.baseUri());
+        assertFalse(doc.select("base").first().hasAttr("href"));
+        assertFalse(doc.select("a").first().hasAttr("href"));
+    }
+
+    @Test public void retainsPerTagAttributes() {
+        String h = "<div id=d class=c><a href=/x id=a title=t>One</a></div>";
+        RetentionPolicy policy = new RetentionPolicy().retainTagAttributes("A", "href");
+        assertEquals("<div id=\"d\" class=\"c\"><a href=\"/x\">One</a></div>", bodyHtml(policy, h));
+
+        policy.retainAttributes("id"); // adds to the tag's allowlist
+        assertEquals("<div id=\"d\"><a href=\"/x\" id=\"a\">One</a></div>", bodyHtml(policy, h));
+
+        policy.retainTagAttributes("a", (String[]) null);
+        assertEquals("<div id=\"d\"><a id=\"a\">One</a></div>", bodyHtml(policy, h));
+    }
+
+    @Test public void dropsDeniedAttributes() {
+        RetentionPolicy policy = new RetentionPolicy().dropAttributes("STYLE", "on*");
+        assertTrue(policy.dropAttributes().contains("on*"));
+        Document doc = Parser.htmlParser().retention(policy).parseInput(html, "");
+        Element div = doc.select("div").first();
+        assertEquals(2, div.attributes().size());
+        assertEquals("main", div.id());
+        assertFalse(div.hasAttr("style"));
+        assertFalse(div.hasAttr("onclick"));
+
+        // the denylist wins over the allowlist
+        policy.retainAttributes("id", "style");
+        assertEquals("<p id=\"1\"></p>", bodyHtml(policy, "<p id=1 style=x ONMOUSEOVER=y open>"));
+    }
+
+    @Test public void appliesToXml() {
+        RetentionPolicy policy = new RetentionPolicy().dropComments(true).dropWhitespaceText(true).retainAttributes("id");
+        Document doc = Parser.xmlParser().retention(policy)
+            .parseInput("<?xml version=\"1.0\"?>\n<doc>\n  <!-- c -->\n  <item id=1 type=x>One</item>\n</doc>", "");
+        doc.outputSettings().prettyPrint(false);
+        assertEquals("<?xml version=\"1.0\"?><doc><item id=\"1\">One</item></doc>", doc.outerHtml());
+    }
+
+    private static String bodyHtml(RetentionPolicy policy, String html) {
+        Document doc = Parser.htmlParser().retention(policy).parseInput(html, "");
+        doc.outputSettings().prettyPrint(false);
+        return doc.body().html();
+    }
+}
@@ -0,0 +1,70 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for sharing strings across documents with a SymbolTable.
+ */
+public class SymbolTableTest {
+    private static final String html = "<div>\n    <a class=\"external-link-style\" href=\"/x\" rel=nofollow>One</a>\n    </div>";
+
+    private static Attribute attribute(Document doc, String key) {
+        for (Attribute attribute : doc.select("a").first().attributes()) {
+            if (attribute.getKey().equals(key))
+                return attribute;
+        }
+        throw new IllegalArgumentException(key);
+    }
+
+    @Test public void sharesStringsAcrossDocuments() {
+        SymbolTable symbols = new SymbolTable(1024);
+        Document one = Parser.htmlParser().symbols(symbols).parseInput(html, "");
+        Document two = Parser.htmlParser().symbols(symbols).parseInput(new StringReader(html), "");
+
+        assertSame(attribute(one, "rel").getKey(), attribute(two, "rel").getKey());
+        assertSame(attribute(one, "rel").getValue(), attribute(two, "rel").getValue());
+        assertSame(attribute(one, "class").getValue(), attribute(two, "class").getValue()); // past the per doc cache length
+
+        Element div1 = one.select("div").first();
+        Element div2 = two.select("div").first();
+        assertSame(((TextNode) div1.childNode(0)).getWholeText(), ((TextNode) div2.childNode(0)).getWholeText());
+        assertEquals("One", two.text());
+    }
+
+    @Test public void notSharedByDefault() {
+        Parser parser = Parser.htmlParser();
+        assertNull(parser.symbols());
+        Document one = parser.parseInput(html, "");
+        Document two = Parser.htmlParser().parseInput(html, "");
+        assertEquals(attribute(one, "rel").getValue(), attribute(two, "rel").getValue());
+        assertNotSame(attribute(one, "rel").getValue(), attribute(two, "rel").getValue());
+    }
+
+    @Test public void boundedAndCorrectOnCollisions() {
+        SymbolTable symbols = new SymbolTable(2); // everything collides
+        for (int i = 0; i < 100; i++) {
+            String word = "word" + i;
+            char[] chars = word.toCharArray();
+            String got = symbols.get(chars, 0, chars.length, word.hashCode());
+            assertEquals(word, got);
+            assertSame(got, symbols.get(chars, 0, chars.length, word.hashCode()));
+        }
+        symbols.clear();
+        char[] chars = "abc".toCharArray();
+        assertEquals("abc", symbols.get(chars, 0, 3, "abc".hashCode()));
+    }
+
+    @Test public void sharedTableIsSingleton() {
+        assertSame(SymbolTable.shared(), SymbolTable.shared());
+        Document doc = Parser.htmlParser().symbols(SymbolTable.shared()).parseInput(html, "");
+        assertEquals("nofollow", doc.select("a").attr("rel"));
+    }
+}
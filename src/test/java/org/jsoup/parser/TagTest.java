@@ -63,6 +63,22 @@ public class TagTest {
         assertTrue(foo.formatAsBlock());
     }
 
+    @Test public void treeSets() {
+        assertTrue(Tag.valueOf("table").inTreeSet(Tag.ScopeBoundary));
+        assertTrue(Tag.valueOf("table").inTreeSet(Tag.TableScopeBoundary | Tag.Special));
+        assertFalse(Tag.valueOf("div").inTreeSet(Tag.ScopeBoundary | Tag.TableScopeBoundary));
+        assertTrue(Tag.valueOf("div").inTreeSet(Tag.Special));
+        assertTrue(Tag.valueOf("li").inTreeSet(Tag.ImpliedEndTag));
+        assertTrue(Tag.valueOf("ul").inTreeSet(Tag.ListScopeBoundary));
+        assertTrue(Tag.valueOf("option").inTreeSet(Tag.SelectScopeTransparent));
+
+        Tag marquee = Tag.valueOf("marquee"); // not a registered tag, but still in the scope sets
+        assertFalse(marquee.isKnownTag());
+        assertTrue(marquee.inTreeSet(Tag.ScopeBoundary | Tag.Special));
+        assertFalse(Tag.valueOf("FOO").inTreeSet(~0));
+        assertFalse(Tag.valueOf("TABLE").inTreeSet(~0)); // case sensitive, as name comparisons were
+    }
+
     @Test(expected = IllegalArgumentException.class) public void valueOfChecksNotNull() {
         Tag.valueOf(null);
     }
@@ -0,0 +1,87 @@
+package org.jsoup.parser;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+
+import static org.jsoup.parser.TokenReader.TokenType.*;
+import static org.junit.Assert.*;
+
+/**
+ Tests for the pull TokenReader.
+ */
+public class TokenReaderTest {
+
+    private static String tokens(TokenReader reader) {
+        StringBuilder sb = new StringBuilder();
+        while (reader.hasNext()) {
+            TokenReader.TokenType type = reader.next();
+            sb.append(type);
+            switch (type) {
+                case StartTag:
+                    sb.append(':').append(reader.tagName());
+                    if (reader.attributes().size() > 0)
+                        sb.append(reader.attributes().html());
+                    if (reader.isSelfClosing())
+                        sb.append('/');
+                    break;
+                case EndTag:
+                    sb.append(':').append(reader.tagName());
+                    break;
+                case Character:
+                case Comment:
+                case Doctype:
+                    sb.append(':').append(reader.text());
+                    break;
+            }
+            sb.append(' ');
+        }
+        return sb.toString().trim();
+    }
+
+    @Test public void readsTokensAsInInput() {
+        TokenReader reader = new TokenReader("<!doctype html><P ID=one>One &amp; <b>Two</p></b><!-- c --><br/>");
+        assertEquals("Doctype:html StartTag:p id=\"one\" Character:One &  StartTag:b Character:Two EndTag:p EndTag:b " +
+            "Comment: c  StartTag:br/ EOF", tokens(reader));
+    }
+
+    @Test public void readsRawTextElementsAsText() {
+        TokenReader reader = new TokenReader(new StringReader(
+            "<script>if (a<b) x='<p>'</script><title>A <i>&amp;</title><style>p > b {}</style><p>"));
+        assertEquals("StartTag:script Character:if (a<b) x='<p>' EndTag:script StartTag:title Character:A <i>& " +
+            "EndTag:title StartTag:style Character:p > b {} EndTag:style StartTag:p EOF", tokens(reader));
+    }
+
+    @Test public void prefilter() {
+        assertTrue(hasForm("<html><body><div><FORM action=/x>"));
+        assertFalse(hasForm("<html><body><div><script>'<form>'</script><!-- <form> --><p>form"));
+    }
+
+    private static boolean hasForm(String html) {
+        TokenReader reader = new TokenReader(html);
+        while (reader.hasNext()) {
+            if (reader.next() == StartTag && reader.tagName().equals("form"))
+                return true;
+        }
+        return false;
+    }
+
+    @Test public void noTokensAfterEof() {
+        TokenReader reader = new TokenReader("");
+        assertNull(reader.type());
+        assertTrue(reader.hasNext());
+        assertEquals(EOF, reader.next());
+        assertFalse(reader.hasNext());
+        try {
+            reader.next();
+            fail();
+        } catch (NoSuchElementException expected) {}
+    }
+
+    @Test(expected = IllegalStateException.class) public void noTagNameForText() {
+        TokenReader reader = new TokenReader("Text");
+        reader.next();
+        reader.tagName();
+    }
+}
@@ -0,0 +1,75 @@
+package org.jsoup.parser;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.safety.Cleaner;
+import org.jsoup.safety.Whitelist;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ Tests for parses that trust the input to be well-formed. The documents built must match the full parse.
+ */
+public class WellFormedParseTest {
+    private static void assertSameParse(String html) {
+        Parser full = Parser.htmlParser().setTrackErrors(100);
+        Parser trusted = Parser.htmlParser().setTrackErrors(100).trustWellFormed(true);
+        assertEquals(full.parseInput(html, "").outerHtml(), trusted.parseInput(html, "").outerHtml());
+        assertEquals(full.getErrors().toString(), trusted.getErrors().toString());
+    }
+
+    @Test public void notTrustedByDefault() {
+        Parser parser = Parser.htmlParser();
+        assertFalse(parser.trustWellFormed());
+        assertTrue(parser.trustWellFormed(true).trustWellFormed());
+    }
+
+    @Test public void parsesWellFormed() {
+        assertSameParse("<!doctype html><html><head><title>One</title></head><body><div id=1><p>One <b>Two</b> " +
+            "<i class=x>Three</i></p><ul><li><a href=/four>Four</a></li></ul><img src=five.png><br/><hr></div>" +
+            "<section><h1>Six</h1><!-- seven --><span>Eight<em>Nine</em></span></section></body></html>");
+    }
+
+    @Test public void keepsHtmlRulesForVoidAndRawText() {
+        String html = "<div><script>if (a < b) document.write('</div>');</script><textarea><p>Text</p></textarea>" +
+            "<img src=x><input name=y><br>Z</div>";
+        assertSameParse(html);
+        Document doc = Parser.htmlParser().trustWellFormed(true).parseInput(html, "");
+        assertEquals(1, doc.select("div").size());
+        assertEquals("<p>Text</p>", doc.select("textarea").first().val());
+        assertEquals(0, doc.select("img").first().childNodeSize());
+    }
+
+    @Test public void fallsBackOnMalformed() {
+        assertSameParse("<div><p>One<p>Two</div><b>Three<i>Four</b>Five</i><table><td>Six</table>Seven");
+        assertSameParse("<p><div>One</div></p><b><p>Two</b></p>");
+        assertSameParse("<ul><li>One<li>Two</ul><span><div>Three</span></div></body><p>Four");
+        assertSameParse("<b><b><b><b>One</b></b></b></b><a href=1>Two<a href=2>Three</a>");
+    }
+
+    @Test public void parsesCleanerOutput() {
+        String dirty = "<p>One <b>Two<i>Three</b> <a href='http://example.com/' onclick=x>Four</a><script>y</script>";
+        Document clean = new Cleaner(Whitelist.basic()).clean(Parser.htmlParser().parseInput(dirty, ""));
+        String html = clean.body().html();
+        assertSameParse(html);
+        assertEquals(html, Parser.htmlParser().trustWellFormed(true).parseInput(html, "").body().html());
+    }
+
+    @Test public void matchesFullParseWhenPreservingCase() {
+        String html = "<p>One<DIV>Two</DIV></p><TABLE><TR><TD>Three</TD></TR></TABLE><B>Four<I>Five</I></B>";
+        Parser full = Parser.htmlParser().settings(ParseSettings.preserveCase).setTrackErrors(100);
+        Parser trusted = Parser.htmlParser().settings(ParseSettings.preserveCase).setTrackErrors(100).trustWellFormed(true);
+        Document doc = trusted.parseInput(html, "");
+        assertEquals(full.parseInput(html, "").outerHtml(), doc.outerHtml());
+        assertEquals(full.getErrors().toString(), trusted.getErrors().toString());
+        assertEquals(0, doc.select("p DIV").size()); // the DIV closes the p
+    }
+
+    @Test public void appliesToIncrementalParse() {
+        String html = "<div><p>One <b>Two</b></p><p>Three<br>Four</p></div>";
+        IncrementalParse parse = Parser.htmlParser().trustWellFormed(true).newIncrementalParse("");
+        for (int i = 0; i < html.length(); i += 5)
+            parse.feed(html.substring(i, Math.min(html.length(), i + 5)));
+        assertEquals(Parser.htmlParser().parseInput(html, "").outerHtml(), parse.finish().outerHtml());
+    }
+}
@@ -12,6 +12,7 @@ import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -224,6 +225,27 @@ public class ElementsTest {
         assertEquals("<div> jsoup </div>", doc.body().html());
     }
     
+    @Test public void removeFromWideParent() {
+        StringBuilder sb = new StringBuilder("<div>");
+        for (int i = 0; i < 10000; i++)
+            sb.append("<p class=").append(i % 3 == 0 ? "ad" : "item").append(">").append(i).append("</p>");
+        Document doc = Jsoup.parse(sb.append("</div><p class=ad>outside</p>").toString());
+
+        Elements ads = doc.select("p.ad");
+        assertEquals(3335, ads.size());
+        ads.remove();
+        for (Element ad : ads)
+            assertNull(ad.parent());
+
+        Elements items = doc.select("div > p");
+        assertEquals(6666, items.size());
+        assertEquals("1", items.first().text());
+        assertEquals(6665, items.last().elementSiblingIndex());
+        assertEquals(6665, items.last().siblingIndex());
+        assertEquals("9997", items.last().previousElementSibling().text());
+        assertEquals(0, doc.select("p.ad").size());
+    }
+
     @Test public void eq() {
         String h = "<p>Hello<p>there<p>world";
         Document doc = Jsoup.parse(h);